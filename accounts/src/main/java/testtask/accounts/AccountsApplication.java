@@ -1,23 +1,25 @@
 package testtask.accounts;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.boot.jackson.JsonComponentModule;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.web.client.RestTemplate;
-import testtask.accounts.serializator.JsonBigDecimalSerializer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter;
+import testtask.accounts.serializator.ObjectMappers;
+import testtask.accounts.serializator.SmileHttpMessageConverter;
 
-import java.math.BigDecimal;
+import java.util.List;
 
 /**
  *
  */
 @SpringBootApplication
+@EnableScheduling
 public class AccountsApplication {
 
     public static void main(String[] args) {
@@ -33,15 +35,21 @@ public class AccountsApplication {
     @Bean
     @Primary
     public static ObjectMapper serializingObjectMapper() {
-        ObjectMapper mapper = new ObjectMapper();
-        JsonComponentModule jsonBigDecimal = new JsonComponentModule();
-        jsonBigDecimal.addSerializer(BigDecimal.class, new JsonBigDecimalSerializer());
-        mapper.registerModule(jsonBigDecimal);
-        mapper.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
-        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-//        mapper.configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
-//        mapper.configure(MapperFeature.ALLOW_EXPLICIT_PROPERTY_RENAMING, true);
-        return mapper;
+        return ObjectMappers.json();
+    }
+
+    /**
+     * Smile for clients which ask for it by Accept or Content-Type. The converter goes after json,
+     * so json stays the answer to any other Accept, including no Accept.
+     */
+    @Bean
+    public WebMvcConfigurerAdapter smileConfigurer() {
+        return new WebMvcConfigurerAdapter() {
+            @Override
+            public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+                converters.add(new SmileHttpMessageConverter());
+            }
+        };
     }
 
 }
@@ -0,0 +1,40 @@
+package testtask.accounts.cache;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Statistics of {@link ClientAccountsCache} for the actuator /metrics endpoint, to size the cache.
+ */
+@Component
+public class CacheMetrics implements PublicMetrics {
+
+    private final ClientAccountsCache cache;
+
+    @Autowired
+    public CacheMetrics(ClientAccountsCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        CacheStats stats = cache.getStats();
+        List<Metric<?>> metrics = new ArrayList<>(8);
+        metrics.add(new Metric<>("cache.client-accounts.size", cache.getSize()));
+        metrics.add(new Metric<>("cache.client-accounts.hit.ratio", stats.hitRate()));
+        metrics.add(new Metric<>("cache.client-accounts.hits", stats.hitCount()));
+        metrics.add(new Metric<>("cache.client-accounts.misses", stats.missCount()));
+        metrics.add(new Metric<>("cache.client-accounts.evictions", stats.evictionCount()));
+        metrics.add(new Metric<>("cache.client-accounts.eviction.weight", stats.evictionWeight()));
+        metrics.add(new Metric<>("cache.client-accounts.load.average.ms", stats.averageLoadPenalty() / 1_000_000d));
+        metrics.add(new Metric<>("cache.client-accounts.load.failures", stats.loadFailureCount()));
+        return metrics;
+    }
+}
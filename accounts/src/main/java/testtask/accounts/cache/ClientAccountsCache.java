@@ -0,0 +1,178 @@
+package testtask.accounts.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import testtask.accounts.model.Account;
+import testtask.accounts.util.TransactionHooks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * All accounts of a client, ordered by id, by client id.
+ * <p>
+ * Caffeine cache bounded by the total count of cached accounts, admission and eviction by W-TinyLFU:
+ * a client list replaces another one only if its clients are requested more often.
+ * Clients with more accounts than max accounts per client are cached as a marker of weight one,
+ * their pages are read from the database without loading the client again.
+ * <p>
+ * Entries are invalidated after commit of the transaction which changes accounts of the client.
+ * A load running concurrently with the invalidation is finished before the entry is removed,
+ * so the cache can't keep accounts older than the last committed change.
+ * Accounts changed by id only (bulk deletes, balance ledger) are found by the reverse index of cached accounts;
+ * a load which may miss such invalidation of one of its accounts (it ran concurrently) isn't cached.
+ * Invalidations are counted by stripes of account ids, so changes of other clients don't discard a load.
+ * Cached accounts are shared by readers and must not be changed.
+ */
+@Slf4j
+@Component
+public class ClientAccountsCache {
+
+    private static final int INVALIDATION_STRIPE_BITS = 10;
+    private static final int INVALIDATION_STRIPES = 1 << INVALIDATION_STRIPE_BITS;
+
+    /**
+     * cached value of a client with too many accounts
+     */
+    private static final List<Account> TOO_MANY_ACCOUNTS = Collections.unmodifiableList(new ArrayList<>());
+
+    private final Cache<Long, List<Account>> cache;
+    /**
+     * client id of every cached account
+     */
+    private final Map<Long, Long> clientByAccount = new ConcurrentHashMap<>();
+    /**
+     * count of invalidations by stripes of account ids, a load is cached only if there were none
+     * of its accounts while it ran
+     */
+    private final AtomicLongArray accountInvalidations = new AtomicLongArray(INVALIDATION_STRIPES);
+    private final int maxAccountsPerClient;
+
+    @Autowired
+    public ClientAccountsCache(@Value("${accounts.cache.max-accounts:100000}") long maxAccounts,
+                               @Value("${accounts.cache.max-accounts-per-client:1000}") int maxAccountsPerClient,
+                               @Value("${accounts.cache.expire-after-write-s:600}") long expireAfterWriteSeconds) {
+        this.maxAccountsPerClient = maxAccountsPerClient;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxAccounts)
+                .<Long, List<Account>>weigher((clientId, accounts) -> accounts.size() + 1)
+                .expireAfterWrite(expireAfterWriteSeconds, TimeUnit.SECONDS)
+                // same thread, so the reverse index is cleaned before the next load of the client
+                .executor(Runnable::run)
+                .removalListener(this::onRemoval)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * @return limit of accounts of one cached client, loader reads one more to find clients not to cache
+     */
+    public int getMaxAccountsPerClient() {
+        return maxAccountsPerClient;
+    }
+
+    /**
+     * @param clientId
+     * @param loader reads up to {@link #getMaxAccountsPerClient()} + 1 accounts of the client ordered by id
+     * @return all accounts of the client ordered by id,
+     * null if the client isn't cached (too many accounts or accounts changed while they were loaded)
+     */
+    public List<Account> get(Long clientId, Function<Long, List<Account>> loader) {
+        List<Account> accounts = cache.get(clientId, id -> {
+            long[] invalidations = new long[INVALIDATION_STRIPES];
+            for (int i = 0; i < INVALIDATION_STRIPES; i++) {
+                invalidations[i] = accountInvalidations.get(i);
+            }
+            List<Account> loaded = loader.apply(id);
+            if (loaded.size() > maxAccountsPerClient) {
+                return TOO_MANY_ACCOUNTS;
+            }
+            loaded.forEach(account -> clientByAccount.put(account.getId(), id));
+            for (Account account : loaded) {
+                int stripe = stripe(account.getId());
+                if (accountInvalidations.get(stripe) != invalidations[stripe]) {
+                    loaded.forEach(changed -> clientByAccount.remove(changed.getId(), id));
+                    return null;
+                }
+            }
+            return Collections.unmodifiableList(loaded);
+        });
+        return accounts == TOO_MANY_ACCOUNTS ? null : accounts;
+    }
+
+    /**
+     * Invalidate the clients after commit of the current transaction.
+     *
+     * @param clientIds
+     */
+    public void invalidateClients(Collection<Long> clientIds) {
+        TransactionHooks.afterCommit(() -> clientIds.stream()
+                .filter(Objects::nonNull)
+                .forEach(cache::invalidate));
+    }
+
+    public void invalidateClient(Long clientId) {
+        invalidateClients(Collections.singleton(clientId));
+    }
+
+    /**
+     * Invalidate clients of cached accounts after commit of the current transaction.
+     *
+     * @param accountIds
+     */
+    public void invalidateAccounts(Collection<Long> accountIds) {
+        TransactionHooks.afterCommit(() -> {
+            accountIds.forEach(accountId -> accountInvalidations.incrementAndGet(stripe(accountId)));
+            accountIds.stream()
+                    .map(clientByAccount::get)
+                    .filter(Objects::nonNull)
+                    .distinct()
+                    .forEach(cache::invalidate);
+        });
+    }
+
+    /**
+     * Drop all cached clients, for changes made around the service.
+     */
+    public void invalidateAll() {
+        for (int i = 0; i < INVALIDATION_STRIPES; i++) {
+            accountInvalidations.incrementAndGet(i);
+        }
+        cache.invalidateAll();
+    }
+
+    /**
+     * Fibonacci hashing: low bits of snowflake ids are mostly the same sequence and node.
+     */
+    private static int stripe(Long accountId) {
+        return (int) ((accountId * 0x9E3779B97F4A7C15L) >>> (Long.SIZE - INVALIDATION_STRIPE_BITS));
+    }
+
+    private void onRemoval(Long clientId, List<Account> accounts, RemovalCause cause) {
+        if (accounts != null) {
+            accounts.forEach(account -> clientByAccount.remove(account.getId(), clientId));
+        }
+    }
+
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+}
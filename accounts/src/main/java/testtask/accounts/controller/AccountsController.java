@@ -2,7 +2,9 @@ package testtask.accounts.controller;
 
 import io.swagger.annotations.Api;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -12,38 +14,118 @@ import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import testtask.accounts.model.Account;
+import testtask.accounts.model.AccountPage;
+import testtask.accounts.model.AccountsByIds;
+import testtask.accounts.model.BalanceChange;
+import testtask.accounts.model.BalanceSummary;
+import testtask.accounts.model.Transfer;
 import testtask.accounts.service.AccountService;
-
+import testtask.accounts.service.BalanceService;
+import testtask.accounts.service.TransferService;
+import testtask.accounts.util.ETags;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/accounts")
 @Api(value = "accounts", description = "Rest API for accounts operations", tags = "Accounts API")
 public class AccountsController {
 
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
     private final AccountService accountService;
+    private final TransferService transferService;
+    private final BalanceService balanceService;
 
     @Autowired
-    public AccountsController(AccountService accountService) {
+    public AccountsController(AccountService accountService, TransferService transferService,
+                              BalanceService balanceService) {
         this.accountService = accountService;
+        this.transferService = transferService;
+        this.balanceService = balanceService;
     }
 
     @GetMapping("")
-    public List getAll() {
-        return accountService.getAll();
+    public ResponseEntity<List<Account>> getAll(@RequestParam(value = "cursor", required = false) String cursor,
+                                                @RequestParam(value = "limit", required = false) Integer limit) {
+        return pageResponse(accountService.getAll(cursor, limit));
+    }
+
+    /**
+     * Accounts by ids in the order of ids, not existing ids are listed as missing.
+     */
+    @GetMapping(value = "", params = "ids")
+    public ResponseEntity<AccountsByIds> getByIds(@RequestParam("ids") List<Long> ids) {
+        return new ResponseEntity<>(accountService.findByIds(ids), HttpStatus.OK);
     }
 
+    /**
+     * The same as GET with ids, for id lists too long for the url.
+     */
+    @PostMapping("/byIds")
+    public ResponseEntity<AccountsByIds> postByIds(@RequestBody List<Long> ids) {
+        return new ResponseEntity<>(accountService.findByIds(ids), HttpStatus.OK);
+    }
+
+    /**
+     * Accounts of many clients grouped by client id, every requested client has a list, maybe empty.
+     */
+    @PostMapping("/byClientIds")
+    public ResponseEntity<Map<Long, List<Account>>> postByClientIds(@RequestBody List<Long> clientIds) {
+        return new ResponseEntity<>(accountService.findByClientIds(clientIds), HttpStatus.OK);
+    }
+
+    /**
+     * All accounts as newline delimited json, streamed from the database cursor.
+     */
+    @GetMapping(value = "/export", produces = APPLICATION_NDJSON_VALUE)
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_NDJSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        accountService.exportAll(response.getOutputStream());
+    }
+
+    /**
+     * Tagged by the row version, a matching If-None-Match is answered by 304 without the body.
+     */
     @GetMapping("/{id}")
     public ResponseEntity<Account> get(@PathVariable("id") Long id) {
         Account account = accountService.get(id);
-        return new ResponseEntity<>(account, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(ETags.of(account)).body(account);
     }
 
+    /**
+     * Tagged by versions of the page accounts, pages of cached clients are tagged without the database.
+     */
     @GetMapping("/ClientId/{id}")
-    public ResponseEntity<List<Account>> getByClientId(@PathVariable("id") Long clientId) {
-        return new ResponseEntity<>(accountService.findByClientId(clientId), HttpStatus.OK);
+    public ResponseEntity<List<Account>> getByClientId(@PathVariable("id") Long clientId,
+                                                       @RequestParam(value = "cursor", required = false) String cursor,
+                                                       @RequestParam(value = "limit", required = false) Integer limit) {
+        return pageResponse(accountService.findByClientId(clientId, cursor, limit));
+    }
+
+    /**
+     * Sum, count, min and max of client's balances by currency, computed by the database.
+     */
+    @GetMapping("/ClientId/{id}/summary")
+    public ResponseEntity<List<BalanceSummary>> getSummary(@PathVariable("id") Long clientId) {
+        return new ResponseEntity<>(balanceService.summarize(clientId), HttpStatus.OK);
+    }
+
+    /**
+     * Balance summaries of many clients grouped by client id, every requested client has a list, maybe empty.
+     */
+    @PostMapping("/summary/byClientIds")
+    public ResponseEntity<Map<Long, List<BalanceSummary>>> postSummaryByClientIds(@RequestBody List<Long> clientIds) {
+        return new ResponseEntity<>(balanceService.summarize(clientIds), HttpStatus.OK);
     }
 
     @PostMapping()
@@ -59,6 +141,47 @@ public class AccountsController {
         return new ResponseEntity<>(created, HttpStatus.OK);
     }
 
+    /**
+     * Bulk create from a json array, the body is parsed while it is read.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Long>> importList(HttpServletRequest request) throws IOException {
+        long created = accountService.importAccounts(request.getInputStream());
+        return new ResponseEntity<>(Collections.singletonMap("created", created), HttpStatus.OK);
+    }
+
+    /**
+     * Move money between two accounts atomically.
+     *
+     * @return debited and credited accounts
+     */
+    @PostMapping("/transfers")
+    public ResponseEntity<List<Account>> transfer(@RequestBody Transfer transfer) {
+        return new ResponseEntity<>(transferService.transfer(transfer), HttpStatus.OK);
+    }
+
+    /**
+     * Accepted when the change is journaled, the balance in the database is updated by the ledger flush.
+     *
+     * @return the change with expected balance of the account
+     */
+    @PostMapping("/{id}/deposit")
+    public ResponseEntity<BalanceChange> deposit(@PathVariable Long id, @RequestBody BalanceChange change) {
+        change.setAccountId(id);
+        return new ResponseEntity<>(balanceService.deposit(change), HttpStatus.ACCEPTED);
+    }
+
+    /**
+     * Accepted when the change is journaled, the balance in the database is updated by the ledger flush.
+     *
+     * @return the change with expected balance of the account
+     */
+    @PostMapping("/{id}/withdraw")
+    public ResponseEntity<BalanceChange> withdraw(@PathVariable Long id, @RequestBody BalanceChange change) {
+        change.setAccountId(id);
+        return new ResponseEntity<>(balanceService.withdraw(change), HttpStatus.ACCEPTED);
+    }
+
     @PutMapping("/{id}")
     public ResponseEntity update(@PathVariable Long id, @RequestBody Account account) {
         account.setId(id);
@@ -80,7 +203,7 @@ public class AccountsController {
 
     @DeleteMapping("/{id}")
     public ResponseEntity delete(@PathVariable Long id) {
-        accountService.delete(accountService.get(id));
+        accountService.delete(id);
         return new ResponseEntity(HttpStatus.OK);
     }
 
@@ -96,4 +219,13 @@ public class AccountsController {
         return new ResponseEntity(HttpStatus.OK);
     }
 
+    private ResponseEntity<List<Account>> pageResponse(AccountPage page) {
+        HttpHeaders headers = new HttpHeaders();
+        if (page.hasNext()) {
+            headers.set(AccountPage.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        headers.setETag(ETags.ofPage(page.getAccounts(), page.getNextCursor()));
+        return new ResponseEntity<>(page.getAccounts(), headers, HttpStatus.OK);
+    }
+
 }
@@ -1,46 +1,55 @@
 package testtask.accounts.dao;
 
 import testtask.accounts.model.Account;
+import testtask.accounts.model.Money;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Created by Alex Volobuev on 25.01.2018.
+ * <p>
+ * Conversions are done by the generated {@link AccountMapper}.
  */
 public class AccountConvertor {
+
+    private static final AccountMapper MAPPER = AccountMapper.INSTANCE;
+
     public static Account toModel (AccountEntity accountEntity) {
-        Account account = new Account();
-        account.setId(accountEntity.getId());
-        account.setBalance(accountEntity.getBalance());
-        account.setClientId(accountEntity.getClientId());
-        account.setCurrency(accountEntity.getCurrency());
-        account.setName(accountEntity.getName());
-        return account;
+        return MAPPER.toModel(accountEntity);
     }
 
     public static AccountEntity toEntity (Account account) {
-        AccountEntity accountEntity = new AccountEntity();
-        accountEntity.setId(account.getId());
-        accountEntity.setBalance(account.getBalance());
-        accountEntity.setClientId(account.getClientId());
-        accountEntity.setCurrency(account.getCurrency());
-        accountEntity.setName(account.getName());
-        return accountEntity;
+        return MAPPER.toEntity(account);
     }
 
     public static List<Account> toModels (Iterable<AccountEntity> accountEntityList) {
-        List<Account> accountList = new ArrayList<>();
-        accountEntityList.forEach(accountEntity ->
-                accountList.add(AccountConvertor.toModel(accountEntity)));
-        return accountList;
+        return MAPPER.toModels(accountEntityList);
     }
 
     public static List<AccountEntity> toEntities (Iterable<Account> accountList) {
-        List<AccountEntity> entityList = new ArrayList<>();
-        accountList.forEach(account ->
-                entityList.add(AccountConvertor.toEntity(account)));
-        return entityList;
+        return MAPPER.toEntities(accountList);
     }
 
+    /**
+     * Copy to the entity only fields which differ, so unchanged managed entities stay clean
+     * and are not updated on flush.
+     *
+     * @param account source
+     * @param accountEntity managed entity
+     * @return true if any field was changed
+     */
+    public static boolean copyChanges (Account account, AccountEntity accountEntity) {
+        boolean changed = false;
+        Money balance = Money.of(account.getBalance(), account.getCurrency());
+        if (!Objects.equals(balance, accountEntity.getBalance())) {
+            accountEntity.setBalance(balance);
+            changed = true;
+        }
+        if (!Objects.equals(account.getName(), accountEntity.getName())) {
+            accountEntity.setName(account.getName());
+            changed = true;
+        }
+        return changed;
+    }
 }
@@ -5,13 +5,23 @@
  */
 package testtask.accounts.dao;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import testtask.accounts.id.SnowflakeHibernateGenerator;
 import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
 
+import javax.persistence.AttributeOverride;
+import javax.persistence.Cacheable;
+import javax.persistence.Column;
+import javax.persistence.Embedded;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
-import java.math.BigDecimal;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
 import java.util.Objects;
 
 /**
@@ -20,17 +30,46 @@ import java.util.Objects;
  */
 @SuppressWarnings("WeakerAccess")
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = AccountEntity.CACHE_REGION)
+@Table(name = "account_entity", indexes = @Index(name = AccountEntity.CLIENT_LIST_INDEX,
+        columnList = "clientId, id, currency, balance, name"))
 public class AccountEntity {
 
+    /**
+     * Index for client's accounts queries, it also covers all columns of the list,
+     * so client's page is read from the index only. Schema is created by db/migration/accounts.
+     */
+    public static final String CLIENT_LIST_INDEX = "account_client_list_idx";
+
+    /**
+     * Second level cache region of accounts, see ehcache-accounts.xml.
+     */
+    public static final String CACHE_REGION = "account";
+
+    /**
+     * Time ordered id generated by the application, see {@link SnowflakeHibernateGenerator}.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = SnowflakeHibernateGenerator.NAME)
+    @GenericGenerator(name = SnowflakeHibernateGenerator.NAME, strategy = SnowflakeHibernateGenerator.STRATEGY)
     private Long id;
 
     private Long clientId;
     private String name;
-    private BigDecimal balance;
 
-    private Currency currency;
+    /**
+     * Balance columns: balance numeric(19, 2) and currency.
+     */
+    @Embedded
+    @AttributeOverride(name = "amount", column = @Column(name = "balance", precision = 19, scale = Money.SCALE))
+    private Money balance;
+
+    /**
+     * Optimistic lock, every update of the account checks and increments it.
+     */
+    @Version
+    private Long version;
 
     public Long getId() {
         return id;
@@ -56,25 +95,29 @@ public class AccountEntity {
         this.name = name;
     }
 
-    public Currency getCurrency() {
-        return currency;
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
     }
 
-    public void setCurrency(Currency currency) {
-        this.currency = currency;
+    public Currency getCurrency() {
+        return balance == null ? null : balance.getCurrency();
     }
 
     /**
      * @return the balance
      */
-    public BigDecimal getBalance() {
+    public Money getBalance() {
         return balance;
     }
 
     /**
      * @param balance the balance to set
      */
-    public void setBalance(BigDecimal balance) {
+    public void setBalance(Money balance) {
         this.balance = balance;
     }
 
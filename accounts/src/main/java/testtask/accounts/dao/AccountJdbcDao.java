@@ -0,0 +1,234 @@
+package testtask.accounts.dao;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import testtask.accounts.model.BalanceSummary;
+import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
+import testtask.accounts.util.TransactionHooks;
+
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plain jdbc access to account rows, for statements which don't need entities.
+ */
+@Repository
+public class AccountJdbcDao {
+
+    /**
+     * Net change of account balance from the balance ledger.
+     */
+    public static class BalanceDelta {
+
+        private final long accountId;
+        private final long minorUnits;
+        private final Currency currency;
+
+        /**
+         * @param accountId
+         * @param minorUnits change of balance in minor units
+         * @param currency currency of the account
+         */
+        public BalanceDelta(long accountId, long minorUnits, Currency currency) {
+            this.accountId = accountId;
+            this.minorUnits = minorUnits;
+            this.currency = currency;
+        }
+
+        public long getAccountId() {
+            return accountId;
+        }
+
+        public long getMinorUnits() {
+            return minorUnits;
+        }
+
+        public Money getChange() {
+            return Money.ofMinor(minorUnits, currency);
+        }
+    }
+
+    /**
+     * Ledger changes of one journal which are in the balances: all changes up to the flushed sequence number,
+     * except changes of held accounts from their first not flushed sequence number.
+     */
+    public static class LedgerCheckpoint {
+
+        private final long flushedSeq;
+        private final Map<Long, Long> heldSeqs;
+
+        /**
+         * @param flushedSeq
+         * @param heldSeqs first not flushed sequence number by account id
+         */
+        public LedgerCheckpoint(long flushedSeq, Map<Long, Long> heldSeqs) {
+            this.flushedSeq = flushedSeq;
+            this.heldSeqs = heldSeqs;
+        }
+
+        public long getFlushedSeq() {
+            return flushedSeq;
+        }
+
+        public Map<Long, Long> getHeldSeqs() {
+            return heldSeqs;
+        }
+
+        /**
+         * @param accountId
+         * @param seq sequence number of a ledger change of the account
+         * @return true if the change is in the balance of the account
+         */
+        public boolean isFlushed(long accountId, long seq) {
+            Long heldSeq = heldSeqs.get(accountId);
+            return seq <= flushedSeq && (heldSeq == null || seq < heldSeq);
+        }
+
+        /**
+         * @return sequence number of the first change which may be not in the balances
+         */
+        public long getFirstNotFlushedSeq() {
+            long first = flushedSeq + 1;
+            for (long heldSeq : heldSeqs.values()) {
+                first = Math.min(first, heldSeq);
+            }
+            return first;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize = 50;
+
+    @Autowired
+    public AccountJdbcDao(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    /**
+     * @param accountId
+     * @return balance of the account, null if account doesn't exist
+     */
+    public Money findBalance(long accountId) {
+        List<Money> balances = jdbcTemplate.query("select balance, currency from account_entity where id = ?",
+                (rs, rowNum) -> Money.of(rs.getBigDecimal(1), Currency.valueOf(rs.getString(2))), accountId);
+        return balances.isEmpty() ? null : balances.get(0);
+    }
+
+    /**
+     * @param accountIds not empty, up to a chunk of ids for one IN
+     * @return balances by account id, only existing accounts
+     */
+    public Map<Long, Money> findBalances(Collection<Long> accountIds) {
+        Map<Long, Money> balances = new HashMap<>(accountIds.size() * 2);
+        namedJdbcTemplate.query("select id, balance, currency from account_entity where id in (:ids)",
+                new MapSqlParameterSource("ids", accountIds),
+                rs -> {
+                    balances.put(rs.getLong(1), Money.of(rs.getBigDecimal(2), Currency.valueOf(rs.getString(3))));
+                });
+        return balances;
+    }
+
+    /**
+     * Add deltas to balances by jdbc batches and save the ledger checkpoint of the journal in one transaction.
+     * Every delta also moves the account version, so concurrent entity updates fail by optimistic lock
+     * instead of overwriting the balance.
+     * Updated accounts are evicted from the second level cache after commit, jdbc goes around Hibernate.
+     *
+     * @param deltas
+     * @param journalId id of the journal the changes of deltas come from
+     * @param checkpoint changes of the journal in the balances with the deltas
+     * @return applied deltas, a delta of a not existing account isn't applied
+     */
+    @Transactional
+    public List<BalanceDelta> addToBalances(List<BalanceDelta> deltas, String journalId,
+                                            LedgerCheckpoint checkpoint) {
+        int[][] counts = jdbcTemplate.batchUpdate("update account_entity"
+                        + " set balance = balance + ?, version = version + 1 where id = ?",
+                deltas, batchSize, (ps, delta) -> {
+                    ps.setBigDecimal(1, Money.toBigDecimal(delta.getMinorUnits()));
+                    ps.setLong(2, delta.getAccountId());
+                });
+        List<BalanceDelta> applied = new ArrayList<>(deltas.size());
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    applied.add(deltas.get(index));
+                }
+                index++;
+            }
+        }
+        saveLedgerCheckpoint(journalId, checkpoint);
+        Cache cache = entityManagerFactory.getCache();
+        TransactionHooks.afterCommit(() -> applied.forEach(delta -> cache.evict(AccountEntity.class,
+                delta.getAccountId())));
+        return applied;
+    }
+
+    private void saveLedgerCheckpoint(String journalId, LedgerCheckpoint checkpoint) {
+        if (jdbcTemplate.update("update ledger_checkpoint set flushed_seq = ? where journal_id = ?",
+                checkpoint.getFlushedSeq(), journalId) == 0) {
+            jdbcTemplate.update("insert into ledger_checkpoint (journal_id, flushed_seq) values (?, ?)",
+                    journalId, checkpoint.getFlushedSeq());
+        }
+        jdbcTemplate.update("delete from ledger_held_account where journal_id = ?", journalId);
+        if (!checkpoint.getHeldSeqs().isEmpty()) {
+            jdbcTemplate.batchUpdate("insert into ledger_held_account (journal_id, account_id, first_seq)"
+                            + " values (?, ?, ?)",
+                    checkpoint.getHeldSeqs().entrySet(), batchSize, (ps, held) -> {
+                        ps.setString(1, journalId);
+                        ps.setLong(2, held.getKey());
+                        ps.setLong(3, held.getValue());
+                    });
+        }
+    }
+
+    /**
+     * @param journalId
+     * @return the last saved ledger checkpoint of the journal, nothing flushed for a new journal
+     */
+    public LedgerCheckpoint findLedgerCheckpoint(String journalId) {
+        List<Long> flushedSeqs = jdbcTemplate.queryForList(
+                "select flushed_seq from ledger_checkpoint where journal_id = ?", Long.class, journalId);
+        Map<Long, Long> heldSeqs = new HashMap<>();
+        jdbcTemplate.query("select account_id, first_seq from ledger_held_account where journal_id = ?",
+                rs -> {
+                    heldSeqs.put(rs.getLong(1), rs.getLong(2));
+                }, journalId);
+        return new LedgerCheckpoint(flushedSeqs.isEmpty() ? 0 : flushedSeqs.get(0), heldSeqs);
+    }
+
+    /**
+     * Aggregate balances in the database, no account rows leave it.
+     *
+     * @param clientIds not empty
+     * @return summaries by client and currency, ordered by client id and currency,
+     * clients without accounts have no summaries
+     */
+    public List<BalanceSummary> summarizeBalances(Collection<Long> clientIds) {
+        return namedJdbcTemplate.query("select client_id, currency, count(*), sum(balance), min(balance), max(balance)"
+                        + " from account_entity where client_id in (:clientIds)"
+                        + " group by client_id, currency order by client_id, currency",
+                new MapSqlParameterSource("clientIds", clientIds),
+                (rs, rowNum) -> new BalanceSummary(rs.getLong(1), Currency.valueOf(rs.getString(2)), rs.getLong(3),
+                        rs.getBigDecimal(4), rs.getBigDecimal(5), rs.getBigDecimal(6)));
+    }
+}
@@ -0,0 +1,64 @@
+package testtask.accounts.dao;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+import testtask.accounts.model.Account;
+import testtask.accounts.model.Money;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Mapping of accounts, the implementation is generated by MapStruct at compile time, no reflection.
+ * Lists from collections are created with the size of the source,
+ * other iterables (CrudRepository returns Iterable) are checked for a collection first.
+ */
+@Mapper(imports = Money.class, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface AccountMapper {
+
+    AccountMapper INSTANCE = Mappers.getMapper(AccountMapper.class);
+
+    @Mapping(target = "currency", source = "balance.currency")
+    Account toModel(AccountEntity accountEntity);
+
+    /**
+     * Version is not taken from the model, it belongs to the row.
+     */
+    @Mapping(target = "balance", expression = "java(Money.of(account.getBalance(), account.getCurrency()))")
+    @Mapping(target = "version", ignore = true)
+    AccountEntity toEntity(Account account);
+
+    List<Account> toModels(Collection<AccountEntity> accountEntities);
+
+    List<AccountEntity> toEntities(Collection<Account> accounts);
+
+    default List<Account> toModels(Iterable<AccountEntity> accountEntities) {
+        if (accountEntities == null || accountEntities instanceof Collection) {
+            return toModels((Collection<AccountEntity>) accountEntities);
+        }
+        List<Account> accounts = new ArrayList<>();
+        for (AccountEntity accountEntity : accountEntities) {
+            accounts.add(toModel(accountEntity));
+        }
+        return accounts;
+    }
+
+    default List<AccountEntity> toEntities(Iterable<Account> accounts) {
+        if (accounts == null || accounts instanceof Collection) {
+            return toEntities((Collection<Account>) accounts);
+        }
+        List<AccountEntity> accountEntities = new ArrayList<>();
+        for (Account account : accounts) {
+            accountEntities.add(toEntity(account));
+        }
+        return accountEntities;
+    }
+
+    default BigDecimal toAmount(Money money) {
+        return money != null ? money.toBigDecimal() : null;
+    }
+}
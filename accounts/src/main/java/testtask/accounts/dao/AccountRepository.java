@@ -1,14 +1,117 @@
 package testtask.accounts.dao;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import testtask.accounts.model.Account;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
 
 /**
  * Created by Alex Volobuev on 24.01.2018.
  */
 @Repository
-public interface AccountRepository extends CrudRepository<AccountEntity, Long> {
+public interface AccountRepository extends CrudRepository<AccountEntity, Long>, AccountRepositoryCustom {
+
     List<AccountEntity> findByClientId(Long id);
+
+    /**
+     * Hint of read only projections: the query doesn't flush the persistence context before it runs.
+     */
+    String FLUSH_MODE = "org.hibernate.flushMode";
+
+    /**
+     * Accounts built by the query itself, no entity is loaded into the persistence context.
+     */
+    String ACCOUNT_VIEW = "select new testtask.accounts.model.Account(a.id, a.clientId, a.name, a.balance, a.version)"
+            + " from AccountEntity a";
+
+    /**
+     * Keyset page of all accounts.
+     *
+     * @param afterId id of the last account of the previous page
+     * @param pageable page size, page number must be 0
+     * @return
+     */
+    @QueryHints(@QueryHint(name = FLUSH_MODE, value = "MANUAL"))
+    @Query(ACCOUNT_VIEW + " where a.id > :afterId order by a.id")
+    List<Account> findViewsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Keyset page of client's accounts.
+     *
+     * @param clientId client id
+     * @param afterId id of the last account of the previous page
+     * @param pageable page size, page number must be 0
+     * @return
+     */
+    @QueryHints(@QueryHint(name = FLUSH_MODE, value = "MANUAL"))
+    @Query(ACCOUNT_VIEW + " where a.clientId = :clientId and a.id > :afterId order by a.id")
+    List<Account> findViewsOfClientAfter(@Param("clientId") Long clientId, @Param("afterId") Long afterId,
+                                         Pageable pageable);
+
+    List<AccountEntity> findByClientIdAndIdIn(Long clientId, Collection<Long> ids);
+
+    /**
+     * @param ids account ids, not empty
+     * @return existing accounts in any order
+     */
+    @QueryHints(@QueryHint(name = FLUSH_MODE, value = "MANUAL"))
+    @Query(ACCOUNT_VIEW + " where a.id in :ids")
+    List<Account> findViewsByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * @param clientIds client ids, not empty
+     * @param pageable limit of accounts, page number must be 0
+     * @return accounts of the clients ordered by id
+     */
+    @QueryHints(@QueryHint(name = FLUSH_MODE, value = "MANUAL"))
+    @Query(ACCOUNT_VIEW + " where a.clientId in :clientIds order by a.id")
+    List<Account> findViewsOfClients(@Param("clientIds") Collection<Long> clientIds, Pageable pageable);
+
+    /**
+     * Delete account by one statement.
+     *
+     * @param id account id
+     * @return count of deleted accounts, 0 or 1
+     */
+    @Modifying
+    @Query("delete from AccountEntity a where a.id = :id")
+    int deleteById(@Param("id") Long id);
+
+    /**
+     * Delete accounts by one statement.
+     *
+     * @param ids account ids, not empty
+     * @return count of deleted accounts
+     */
+    @Modifying
+    @Query("delete from AccountEntity a where a.id in :ids")
+    int deleteAllByIds(@Param("ids") Collection<Long> ids);
+
+    /**
+     * @param clientId client id
+     * @return ids of client's accounts
+     */
+    @Query("select a.id from AccountEntity a where a.clientId = :clientId")
+    List<Long> findIdsOfClient(@Param("clientId") Long clientId);
+
+    /**
+     * Load and lock accounts for update. Rows are locked in id order,
+     * so concurrent transactions locking the same accounts can't deadlock.
+     *
+     * @param ids account ids
+     * @return locked accounts ordered by id
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select a from AccountEntity a where a.id in :ids order by a.id")
+    List<AccountEntity> findForUpdate(@Param("ids") Collection<Long> ids);
 }
@@ -0,0 +1,32 @@
+package testtask.accounts.dao;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Account queries that Spring Data can't derive.
+ */
+public interface AccountRepositoryCustom {
+
+    /**
+     * Walk all accounts ordered by id with a forward only database cursor.
+     * Entities are detached as soon as the consumer got them, so memory stays flat.
+     * Must be called inside a transaction.
+     *
+     * @param fetchSize rows per database round trip
+     * @param consumer
+     * @return count of walked accounts
+     */
+    long scrollAll(int fetchSize, Consumer<AccountEntity> consumer);
+
+    /**
+     * Insert new accounts with jdbc batches. Persistence context is flushed every batch,
+     * so pending changes of entities loaded before by the caller are written too and stay managed.
+     * Only the inserted entities are detached after their batch, so returned entities are detached.
+     * Must be called inside a transaction.
+     *
+     * @param entities new accounts without ids
+     * @return saved accounts with ids
+     */
+    List<AccountEntity> insertAll(List<AccountEntity> entities);
+}
@@ -0,0 +1,71 @@
+package testtask.accounts.dao;
+
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hibernate specific part of {@link AccountRepository}.
+ */
+public class AccountRepositoryImpl implements AccountRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize = 50;
+
+    @Override
+    public long scrollAll(int fetchSize, Consumer<AccountEntity> consumer) {
+        Session session = entityManager.unwrap(Session.class);
+        ScrollableResults results = session.createQuery("select a from AccountEntity a order by a.id")
+                .setFetchSize(fetchSize)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .scroll(ScrollMode.FORWARD_ONLY);
+
+        long count = 0;
+        try {
+            while (results.next()) {
+                AccountEntity entity = (AccountEntity) results.get(0);
+                consumer.accept(entity);
+                session.evict(entity);
+                count++;
+            }
+        } finally {
+            results.close();
+        }
+        return count;
+    }
+
+    @Override
+    public List<AccountEntity> insertAll(List<AccountEntity> entities) {
+        int from = 0;
+        for (int i = 0; i < entities.size(); i++) {
+            entityManager.persist(entities.get(i));
+            if ((i + 1) % batchSize == 0) {
+                flushAndDetach(entities, from, i + 1);
+                from = i + 1;
+            }
+        }
+        flushAndDetach(entities, from, entities.size());
+        return entities;
+    }
+
+    /**
+     * Detach only the inserted entities, other entities of the caller's persistence context stay managed.
+     */
+    private void flushAndDetach(List<AccountEntity> entities, int from, int to) {
+        entityManager.flush();
+        for (int i = from; i < to; i++) {
+            entityManager.detach(entities.get(i));
+        }
+    }
+}
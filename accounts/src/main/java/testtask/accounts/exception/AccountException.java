@@ -1,5 +1,7 @@
 package testtask.accounts.exception;
 
+import java.util.List;
+
 /**
  * Created by Alex Volobuev on 26.01.2018.
  */
@@ -17,6 +19,11 @@ public class AccountException extends MicroserviceException {
         this.accountId = null;
     }
 
+    public AccountException(ErrorTypes errorTypes, String string, List<ItemError> itemErrors) {
+        super(errorTypes, string, itemErrors);
+        this.accountId = null;
+    }
+
     public AccountException(ErrorTypes errorTypes) {
         this(errorTypes, getStandartInfo(errorTypes, null));
     }
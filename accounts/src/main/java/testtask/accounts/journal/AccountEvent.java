@@ -0,0 +1,181 @@
+package testtask.accounts.journal;
+
+import testtask.accounts.dao.AccountEntity;
+import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
+
+/**
+ * Change of accounts in {@link AccountJournal}. Immutable.
+ * Sequence number and time are assigned by the journal on append.
+ */
+public final class AccountEvent {
+
+    public enum Type {
+        /**
+         * new account with its client and balance
+         */
+        CREATED,
+        /**
+         * new client and balance of the account, written when the balance is set,
+         * the balance includes ledger changes before it which the database doesn't have yet
+         */
+        UPDATED,
+        DELETED,
+        /**
+         * all accounts of the client are deleted, only client id is set;
+         * deletes of client's accounts are journaled per account now, the type is kept for older journals
+         */
+        CLIENT_DELETED,
+        /**
+         * amount is added to the balance of the account
+         */
+        BALANCE_CHANGED,
+        /**
+         * amount is added to the balance by the balance ledger, the database gets it with a later ledger flush
+         */
+        LEDGER_CHANGED,
+        /**
+         * the account is moved to the client, the balance is kept
+         */
+        CLIENT_CHANGED
+    }
+
+    private static final Type[] TYPES = Type.values();
+    private static final Currency[] CURRENCIES = Currency.values();
+
+    private final long seq;
+    private final long time;
+    private final Type type;
+    private final long accountId;
+    private final long clientId;
+    private final long amount;
+    private final Currency currency;
+
+    AccountEvent(long seq, long time, Type type, long accountId, long clientId, long amount, Currency currency) {
+        this.seq = seq;
+        this.time = time;
+        this.type = type;
+        this.accountId = accountId;
+        this.clientId = clientId;
+        this.amount = amount;
+        this.currency = currency;
+    }
+
+    private AccountEvent(Type type, long accountId, long clientId, Money amount) {
+        this(0, 0, type, accountId, clientId, amount == null ? 0 : amount.getMinorUnits(),
+                amount == null ? null : amount.getCurrency());
+    }
+
+    public static AccountEvent created(AccountEntity account) {
+        return new AccountEvent(Type.CREATED, account.getId(), clientId(account), account.getBalance());
+    }
+
+    public static AccountEvent updated(AccountEntity account) {
+        return updated(account, account.getBalance());
+    }
+
+    /**
+     * @param account
+     * @param balance balance of the account with its pending ledger changes
+     * @return
+     */
+    public static AccountEvent updated(AccountEntity account, Money balance) {
+        return new AccountEvent(Type.UPDATED, account.getId(), clientId(account), balance);
+    }
+
+    public static AccountEvent clientChanged(long accountId, long clientId) {
+        return new AccountEvent(Type.CLIENT_CHANGED, accountId, clientId, null);
+    }
+
+    public static AccountEvent deleted(long accountId) {
+        return new AccountEvent(Type.DELETED, accountId, 0, null);
+    }
+
+    public static AccountEvent clientDeleted(long clientId) {
+        return new AccountEvent(Type.CLIENT_DELETED, 0, clientId, null);
+    }
+
+    /**
+     * @param accountId
+     * @param change added to the balance, negative for withdrawals
+     * @return
+     */
+    public static AccountEvent balanceChanged(long accountId, Money change) {
+        return new AccountEvent(Type.BALANCE_CHANGED, accountId, 0, change);
+    }
+
+    /**
+     * @param accountId
+     * @param change added to the balance by the balance ledger, negative for withdrawals
+     * @return
+     */
+    public static AccountEvent ledgerChanged(long accountId, Money change) {
+        return new AccountEvent(Type.LEDGER_CHANGED, accountId, 0, change);
+    }
+
+    private static long clientId(AccountEntity account) {
+        return account.getClientId() == null ? 0 : account.getClientId();
+    }
+
+    static Type type(int ordinal) {
+        return TYPES[ordinal];
+    }
+
+    /**
+     * @param code 0 for no currency, ordinal + 1 otherwise
+     * @return
+     */
+    static Currency currency(int code) {
+        return code == 0 ? null : CURRENCIES[code - 1];
+    }
+
+    int currencyCode() {
+        return currency == null ? 0 : currency.ordinal() + 1;
+    }
+
+    /**
+     * @return sequence number, starts from 1 and grows by 1 without gaps
+     */
+    public long getSeq() {
+        return seq;
+    }
+
+    /**
+     * @return append time in epoch milliseconds, doesn't decrease with the sequence
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long getAccountId() {
+        return accountId;
+    }
+
+    public long getClientId() {
+        return clientId;
+    }
+
+    /**
+     * @return balance (CREATED, UPDATED) or change of the balance (BALANCE_CHANGED, LEDGER_CHANGED),
+     * null for other types
+     */
+    public Money getAmount() {
+        return currency == null ? null : Money.ofMinor(amount, currency);
+    }
+
+    @Override
+    public String toString() {
+        return "AccountEvent{"
+                + "seq=" + seq
+                + ", time=" + time
+                + ", type=" + type
+                + ", accountId=" + accountId
+                + ", clientId=" + clientId
+                + ", amount=" + getAmount()
+                + '}';
+    }
+}
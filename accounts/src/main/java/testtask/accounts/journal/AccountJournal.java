@@ -0,0 +1,641 @@
+package testtask.accounts.journal;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import testtask.accounts.util.TransactionHooks;
+
+import javax.annotation.PreDestroy;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * Append only journal of account changes, the audit trail of accounts.
+ * <p>
+ * Events are written to memory mapped segment files "journal-{first seq}.seg" of fixed 48 byte records:
+ * seq, time, account id, client id, amount in minor units (longs), type, currency code (shorts) and crc32.
+ * Append only copies records to the mapped segment, so it doesn't wait for the disk.
+ * Segments are forced to the disk by a background thread every commit interval, or at once when a writer
+ * waits for its event in {@link #awaitCommitted} (group commit): one force serves all waiters of the batch.
+ * A crash of the machine loses at most the last interval of events nobody waited for;
+ * mapped records survive a crash of the process.
+ * <p>
+ * Events of an account are in the order its changes are committed to the database. Services append events
+ * of their transactions by {@link #appendOnCommit} right after the commit, while the accounts are still fenced
+ * by the balance ledger, so no later change of the accounts is appended before them. Appends only take the
+ * journal monitor for the copy of their records, nothing is locked across a database commit.
+ * The balance ledger appends its changes before they are applied and waits for them to be forced.
+ * <p>
+ * Snapshots "snapshot-{seq}.snap" with state of all accounts are written periodically.
+ * {@link #replay} reads the latest snapshot before the requested time and applies only events after it.
+ * The last retained snapshots are kept, with segments after the oldest of them, so the state can be rebuilt
+ * for any time since that snapshot. Older segments are deleted only when the ledger has flushed their changes.
+ */
+@Slf4j
+@Component
+public class AccountJournal implements Closeable {
+
+    static final int RECORD_SIZE = 48;
+
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".snap";
+    private static final String ID_FILE = "journal.id";
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    private final Path dir;
+    private final String id;
+    private final int segmentSize;
+    private final int retainedSnapshots;
+    private final LongSupplier clock;
+    private final Thread committer;
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final Object snapshotLock = new Object();
+    /**
+     * reads of segments and snapshots take read lock, deletion of old ones takes write lock
+     */
+    private final ReadWriteLock filesLock = new ReentrantReadWriteLock();
+    /**
+     * guards commit requests, committed sequence changes are notified on it
+     */
+    private final Object commitMonitor = new Object();
+    private boolean commitRequested;
+
+    /**
+     * segment, sequence and time are guarded by this
+     */
+    private MappedByteBuffer segment;
+    private long lastSeq;
+    private long lastTime;
+    private boolean closed;
+
+    private volatile long committedSeq;
+    private volatile long snapshotSeq;
+    private volatile long ledgerFlushedSeq;
+
+    @Autowired
+    public AccountJournal(@Value("${accounts.journal.dir:journal}") String dir,
+                          @Value("${accounts.journal.segment-size:50331648}") long segmentSize,
+                          @Value("${accounts.journal.commit-interval-ms:10}") long commitIntervalMillis,
+                          @Value("${accounts.journal.retained-snapshots:6}") int retainedSnapshots)
+            throws IOException {
+        this(Paths.get(dir), segmentSize, commitIntervalMillis, retainedSnapshots, System::currentTimeMillis);
+    }
+
+    AccountJournal(Path dir, long segmentSize, long commitIntervalMillis, int retainedSnapshots, LongSupplier clock)
+            throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.segmentSize = (int) Math.min(segmentSize, Integer.MAX_VALUE) / RECORD_SIZE * RECORD_SIZE;
+        if (this.segmentSize == 0) {
+            throw new IllegalArgumentException("Journal segment size is less than a record: " + segmentSize);
+        }
+        if (retainedSnapshots < 1) {
+            throw new IllegalArgumentException("At least one journal snapshot is retained: " + retainedSnapshots);
+        }
+        this.retainedSnapshots = retainedSnapshots;
+        this.clock = clock;
+        this.id = readId();
+        openLastSegment();
+        committedSeq = lastSeq;
+        List<Long> snapshots = files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        snapshotSeq = snapshots.isEmpty() ? 0 : snapshots.get(snapshots.size() - 1);
+
+        committer = new Thread(() -> commitLoop(commitIntervalMillis), "account-journal-commit");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Commit every interval or when requested by a waiter, until the thread is interrupted by close.
+     */
+    private void commitLoop(long commitIntervalMillis) {
+        while (true) {
+            synchronized (commitMonitor) {
+                try {
+                    if (!commitRequested) {
+                        commitMonitor.wait(commitIntervalMillis);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                commitRequested = false;
+            }
+            try {
+                commit();
+            } catch (RuntimeException e) {
+                log.error("Account journal commit failed", e);
+            }
+        }
+    }
+
+    /**
+     * Id of the journal, a new directory gets a new one.
+     */
+    private String readId() throws IOException {
+        Path file = dir.resolve(ID_FILE);
+        if (Files.exists(file)) {
+            return new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).trim();
+        }
+        String created = UUID.randomUUID().toString();
+        Files.write(file, created.getBytes(StandardCharsets.US_ASCII));
+        log.info("Account journal {} created with id {}", dir, created);
+        return created;
+    }
+
+    /**
+     * Continue the last segment after its last valid record, a torn record of a crash is overwritten.
+     */
+    private void openLastSegment() throws IOException {
+        List<Long> segments = files(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        if (segments.isEmpty()) {
+            return;
+        }
+        long firstSeq = segments.get(segments.size() - 1);
+        segment = map(firstSeq, FileChannel.MapMode.READ_WRITE);
+        AccountEvent[] last = new AccountEvent[1];
+        int end = read(segment, firstSeq, event -> {
+            last[0] = event;
+            return true;
+        });
+        segment.position(end);
+        lastSeq = last[0] == null ? firstSeq - 1 : last[0].getSeq();
+        lastTime = last[0] == null ? 0 : last[0].getTime();
+        log.info("Account journal {} opened, last seq {}", dir, lastSeq);
+    }
+
+    /**
+     * Append events of one change, they get consecutive sequence numbers and the same time.
+     *
+     * @param events
+     * @return sequence number of the last event
+     */
+    public long append(List<AccountEvent> events) {
+        return write(events);
+    }
+
+    /**
+     * Append events of the current transaction, or right now when there is no transaction.
+     * Events of created accounts are appended at once, nobody else sees the accounts before the commit,
+     * and if the transaction is rolled back they are followed by deleted events of the accounts.
+     * Other events are appended when the transaction is committed, nothing is appended after a rollback.
+     * The caller fences changed accounts in the ledger until the transaction completes,
+     * so the events precede later changes of the accounts.
+     *
+     * @param events
+     */
+    public void appendOnCommit(List<AccountEvent> events) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (!events.isEmpty()) {
+                append(events);
+            }
+            return;
+        }
+        List<AccountEvent> created = new ArrayList<>();
+        List<AccountEvent> committed = new ArrayList<>();
+        events.forEach(event -> (event.getType() == AccountEvent.Type.CREATED ? created : committed).add(event));
+        if (!created.isEmpty()) {
+            long lastSeq = append(created);
+            CreatedEvents bound = (CreatedEvents) TransactionSynchronizationManager.getResource(this);
+            if (bound == null) {
+                bound = new CreatedEvents();
+                TransactionSynchronizationManager.bindResource(this, bound);
+                TransactionSynchronizationManager.registerSynchronization(bound);
+            }
+            bound.add(lastSeq - created.size() + 1, lastSeq);
+        }
+        if (!committed.isEmpty()) {
+            TransactionHooks.afterCommit(() -> write(committed));
+        }
+    }
+
+    /**
+     * Sequence ranges of created events appended by a transaction, only the ranges are kept:
+     * a rolled back transaction reads the events back to delete their accounts.
+     */
+    private class CreatedEvents extends TransactionSynchronizationAdapter {
+
+        /**
+         * first and last sequence numbers, consecutive appends are merged
+         */
+        final List<long[]> ranges = new ArrayList<>();
+
+        void add(long firstSeq, long lastSeq) {
+            long[] last = ranges.isEmpty() ? null : ranges.get(ranges.size() - 1);
+            if (last != null && last[1] + 1 == firstSeq) {
+                last[1] = lastSeq;
+            } else {
+                ranges.add(new long[]{firstSeq, lastSeq});
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(AccountJournal.this);
+            if (status != STATUS_ROLLED_BACK) {
+                return;
+            }
+            for (long[] range : ranges) {
+                try {
+                    deleteCreated(range[0], range[1]);
+                } catch (IOException | RuntimeException e) {
+                    log.error("Account journal can't delete accounts created by events {}..{} of rolled back"
+                            + " transaction", range[0], range[1], e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Append deleted events of accounts created by the events of the range, in batches.
+     */
+    private void deleteCreated(long firstSeq, long lastSeq) throws IOException {
+        List<AccountEvent> deleted = new ArrayList<>(DELETE_BATCH_SIZE);
+        filesLock.readLock().lock();
+        try {
+            scan(firstSeq, event -> {
+                if (event.getSeq() > lastSeq) {
+                    return false;
+                }
+                if (event.getType() == AccountEvent.Type.CREATED) {
+                    deleted.add(AccountEvent.deleted(event.getAccountId()));
+                }
+                if (deleted.size() == DELETE_BATCH_SIZE) {
+                    write(deleted);
+                    deleted.clear();
+                }
+                return true;
+            });
+        } finally {
+            filesLock.readLock().unlock();
+        }
+        if (!deleted.isEmpty()) {
+            write(deleted);
+        }
+    }
+
+    private synchronized long write(List<AccountEvent> events) {
+        if (closed) {
+            throw new IllegalStateException("Account journal is closed");
+        }
+        long time = Math.max(clock.getAsLong(), lastTime);
+        for (AccountEvent event : events) {
+            if (segment == null || segment.remaining() < RECORD_SIZE) {
+                rotate();
+            }
+            long seq = lastSeq + 1;
+            record.clear();
+            record.putLong(seq).putLong(time)
+                    .putLong(event.getAccountId()).putLong(event.getClientId())
+                    .putLong(event.getAmount() == null ? 0 : event.getAmount().getMinorUnits())
+                    .putShort((short) event.getType().ordinal()).putShort((short) event.currencyCode());
+            crc.reset();
+            crc.update(record.array(), 0, RECORD_SIZE - Integer.BYTES);
+            record.putInt((int) crc.getValue());
+            record.flip();
+            segment.put(record);
+            lastSeq = seq;
+            lastTime = time;
+        }
+        return lastSeq;
+    }
+
+    /**
+     * Force the full segment and start the next one.
+     */
+    private void rotate() {
+        try {
+            if (segment != null) {
+                segment.force();
+                committed(lastSeq);
+            }
+            segment = map(lastSeq + 1, FileChannel.MapMode.READ_WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't start account journal segment in " + dir, e);
+        }
+    }
+
+    /**
+     * Force appended records to the disk.
+     */
+    void commit() {
+        MappedByteBuffer buffer;
+        long seq;
+        synchronized (this) {
+            buffer = segment;
+            seq = lastSeq;
+        }
+        if (buffer != null && seq > committedSeq) {
+            buffer.force();
+            committed(seq);
+        }
+    }
+
+    private void committed(long seq) {
+        synchronized (commitMonitor) {
+            if (seq > committedSeq) {
+                committedSeq = seq;
+                commitMonitor.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Wait until the event is forced to the disk. Waiters don't force themselves:
+     * the commit thread is woken up and forces once for all events appended before it.
+     *
+     * @param seq sequence number returned by {@link #append}
+     * @throws InterruptedException
+     */
+    public void awaitCommitted(long seq) throws InterruptedException {
+        synchronized (commitMonitor) {
+            while (committedSeq < seq) {
+                commitRequested = true;
+                commitMonitor.notifyAll();
+                commitMonitor.wait();
+            }
+        }
+    }
+
+    /**
+     * Accounts as they were at the time.
+     *
+     * @param untilMillis epoch milliseconds, events appended later are not applied
+     * @return
+     * @throws IOException
+     */
+    public JournalState replay(long untilMillis) throws IOException {
+        filesLock.readLock().lock();
+        try {
+            JournalState state = latestSnapshot(untilMillis);
+            List<Long> segments = files(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            if (!segments.isEmpty() && segments.get(0) > state.getSeq() + 1) {
+                throw new IllegalArgumentException("Account journal history before " + untilMillis
+                        + " isn't retained, the oldest event is " + segments.get(0));
+            }
+            scan(state.getSeq() + 1, event -> {
+                if (event.getTime() > untilMillis) {
+                    return false;
+                }
+                state.apply(event);
+                return true;
+            });
+            return state;
+        } finally {
+            filesLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read events in order, up to the event which was the last one when the read started.
+     * Events before the retained segments are skipped.
+     *
+     * @param fromSeq sequence number of the first event to read
+     * @param visitor
+     * @throws IOException
+     */
+    public void forEach(long fromSeq, Consumer<AccountEvent> visitor) throws IOException {
+        filesLock.readLock().lock();
+        try {
+            scan(fromSeq, event -> {
+                visitor.accept(event);
+                return true;
+            });
+        } finally {
+            filesLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @param visitor returns false to stop
+     */
+    private void scan(long fromSeq, Predicate<AccountEvent> visitor) throws IOException {
+        long endSeq = getLastSeq();
+        List<Long> segments = files(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+        for (int i = 0; i < segments.size() && segments.get(i) <= endSeq; i++) {
+            if (i + 1 < segments.size() && segments.get(i + 1) <= fromSeq) {
+                // whole segment is before the first event
+                continue;
+            }
+            boolean[] stopped = new boolean[1];
+            read(map(segments.get(i), FileChannel.MapMode.READ_ONLY), segments.get(i), event -> {
+                if (event.getSeq() < fromSeq) {
+                    return true;
+                }
+                if (event.getSeq() > endSeq || !visitor.test(event)) {
+                    stopped[0] = true;
+                    return false;
+                }
+                return true;
+            });
+            if (stopped[0]) {
+                break;
+            }
+        }
+    }
+
+    private JournalState latestSnapshot(long untilMillis) throws IOException {
+        List<Long> snapshots = files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            Path file = path(SNAPSHOT_PREFIX, snapshots.get(i), SNAPSHOT_SUFFIX);
+            if (JournalState.readTime(file) <= untilMillis) {
+                return JournalState.readFrom(file);
+            }
+        }
+        return new JournalState();
+    }
+
+    /**
+     * Write snapshot of the current state, if there are events after the last snapshot,
+     * and delete snapshots and segments which are not retained any more.
+     *
+     * @throws IOException
+     */
+    @Scheduled(fixedDelayString = "${accounts.journal.snapshot-interval-ms:600000}")
+    public void snapshot() throws IOException {
+        synchronized (snapshotLock) {
+            if (getLastSeq() > snapshotSeq) {
+                long start = System.currentTimeMillis();
+                JournalState state = replay(Long.MAX_VALUE);
+                state.writeTo(path(SNAPSHOT_PREFIX, state.getSeq(), SNAPSHOT_SUFFIX));
+                snapshotSeq = state.getSeq();
+                log.info("Account journal snapshot at seq {}: {} accounts, {} ms", state.getSeq(),
+                        state.getAccounts().size(), System.currentTimeMillis() - start);
+            }
+            deleteNotRetained();
+        }
+    }
+
+    /**
+     * Delete snapshots older than the retained ones and segments which only have events before the oldest
+     * retained snapshot and flushed by the ledger. The current segment is never deleted.
+     */
+    private void deleteNotRetained() throws IOException {
+        filesLock.writeLock().lock();
+        try {
+            List<Long> snapshots = files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+            if (snapshots.isEmpty()) {
+                return;
+            }
+            int deleted = Math.max(snapshots.size() - retainedSnapshots, 0);
+            for (int i = 0; i < deleted; i++) {
+                Files.delete(path(SNAPSHOT_PREFIX, snapshots.get(i), SNAPSHOT_SUFFIX));
+            }
+            long neededSeq = Math.min(snapshots.get(deleted), ledgerFlushedSeq) + 1;
+            List<Long> segments = files(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+            int deletedSegments = 0;
+            // the next segment starts at or before the needed event, so the segment ends before it
+            while (deletedSegments + 1 < segments.size() && segments.get(deletedSegments + 1) <= neededSeq) {
+                Files.delete(path(SEGMENT_PREFIX, segments.get(deletedSegments), SEGMENT_SUFFIX));
+                deletedSegments++;
+            }
+            if (deleted > 0 || deletedSegments > 0) {
+                log.info("Account journal retention: {} snapshots and {} segments deleted, events from {} are kept",
+                        deleted, deletedSegments, deletedSegments > 0 ? segments.get(deletedSegments) : 1);
+            }
+        } finally {
+            filesLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Read valid records from the start of the segment: crc matches and sequence has no gaps.
+     *
+     * @param buffer segment
+     * @param firstSeq sequence number of the first record of the segment
+     * @param visitor returns false to stop
+     * @return position after the last valid record
+     */
+    private static int read(ByteBuffer buffer, long firstSeq, Predicate<AccountEvent> visitor) {
+        CRC32 check = new CRC32();
+        byte[] bytes = new byte[RECORD_SIZE];
+        ByteBuffer record = ByteBuffer.wrap(bytes);
+        long expectedSeq = firstSeq;
+        int position = 0;
+        while (buffer.limit() - position >= RECORD_SIZE) {
+            buffer.position(position);
+            buffer.get(bytes);
+            check.reset();
+            check.update(bytes, 0, RECORD_SIZE - Integer.BYTES);
+            record.clear();
+            long seq = record.getLong();
+            if (seq != expectedSeq || record.getInt(RECORD_SIZE - Integer.BYTES) != (int) check.getValue()) {
+                break;
+            }
+            long time = record.getLong();
+            long accountId = record.getLong();
+            long clientId = record.getLong();
+            long amount = record.getLong();
+            AccountEvent event = new AccountEvent(seq, time, AccountEvent.type(record.getShort()),
+                    accountId, clientId, amount, AccountEvent.currency(record.getShort()));
+            if (!visitor.test(event)) {
+                break;
+            }
+            position += RECORD_SIZE;
+            expectedSeq++;
+        }
+        return position;
+    }
+
+    private MappedByteBuffer map(long firstSeq, FileChannel.MapMode mode) throws IOException {
+        Path file = path(SEGMENT_PREFIX, firstSeq, SEGMENT_SUFFIX);
+        if (mode == FileChannel.MapMode.READ_ONLY) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return channel.map(mode, 0, channel.size());
+            }
+        }
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(mode, 0, Math.max(channel.size(), segmentSize));
+        }
+    }
+
+    private List<Long> files(String prefix, String suffix) throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*" + suffix)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                indexes.add(Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length())));
+            }
+        }
+        indexes.sort(null);
+        return indexes;
+    }
+
+    private Path path(String prefix, long seq, String suffix) {
+        return dir.resolve(String.format("%s%019d%s", prefix, seq, suffix));
+    }
+
+    /**
+     * @return id of the journal, sequence numbers of journals with different ids are unrelated:
+     * every instance has its own journal, and a lost directory starts a new one from 1
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return sequence number of the last appended event, 0 if none
+     */
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Ledger events up to the sequence number are in the database, recovery of the ledger doesn't need them
+     * and their segments may be deleted. Until it is set no segment is deleted.
+     *
+     * @param seq
+     */
+    public void setLedgerFlushedSeq(long seq) {
+        ledgerFlushedSeq = seq;
+    }
+
+    /**
+     * @return sequence number of the last event forced to the disk
+     */
+    public long getCommittedSeq() {
+        return committedSeq;
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        committer.interrupt();
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (segment != null) {
+                segment.force();
+                committed(lastSeq);
+                segment = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package testtask.accounts.journal;
+
+import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Accounts rebuilt from {@link AccountJournal} events up to some sequence number.
+ * Name of the account isn't journaled, the state has client and balance only.
+ * <p>
+ * Snapshot file is the header (seq, time, count) and fixed 26 byte entries:
+ * account id, client id, balance in minor units and currency code.
+ */
+public class JournalState {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Account in the journal state. Immutable.
+     */
+    public static final class AccountState {
+
+        private final long accountId;
+        private final long clientId;
+        private final Money balance;
+
+        AccountState(long accountId, long clientId, Money balance) {
+            this.accountId = accountId;
+            this.clientId = clientId;
+            this.balance = balance;
+        }
+
+        public long getAccountId() {
+            return accountId;
+        }
+
+        public long getClientId() {
+            return clientId;
+        }
+
+        public Money getBalance() {
+            return balance;
+        }
+
+        @Override
+        public String toString() {
+            return "AccountState{accountId=" + accountId + ", clientId=" + clientId + ", balance=" + balance + '}';
+        }
+    }
+
+    private final Map<Long, AccountState> accounts;
+    /**
+     * account ids by client id, for CLIENT_DELETED
+     */
+    private final Map<Long, Set<Long>> clients;
+    private long seq;
+    private long time;
+
+    JournalState() {
+        this(0, 0, 16);
+    }
+
+    private JournalState(long seq, long time, int capacity) {
+        this.seq = seq;
+        this.time = time;
+        this.accounts = new HashMap<>(capacity);
+        this.clients = new HashMap<>(capacity);
+    }
+
+    /**
+     * @return sequence number of the last applied event, 0 if none
+     */
+    public long getSeq() {
+        return seq;
+    }
+
+    /**
+     * @return time of the last applied event, 0 if none
+     */
+    public long getTime() {
+        return time;
+    }
+
+    public Map<Long, AccountState> getAccounts() {
+        return Collections.unmodifiableMap(accounts);
+    }
+
+    /**
+     * @param accountId
+     * @return null if there is no such account
+     */
+    public AccountState get(long accountId) {
+        return accounts.get(accountId);
+    }
+
+    void apply(AccountEvent event) {
+        switch (event.getType()) {
+            case CREATED:
+            case UPDATED:
+                put(new AccountState(event.getAccountId(), event.getClientId(), event.getAmount()));
+                break;
+            case DELETED:
+                remove(event.getAccountId());
+                break;
+            case CLIENT_DELETED:
+                Set<Long> ids = clients.remove(event.getClientId());
+                if (ids != null) {
+                    ids.forEach(accounts::remove);
+                }
+                break;
+            case CLIENT_CHANGED:
+                AccountState moved = accounts.get(event.getAccountId());
+                if (moved != null) {
+                    put(new AccountState(moved.accountId, event.getClientId(), moved.balance));
+                }
+                break;
+            case BALANCE_CHANGED:
+            case LEDGER_CHANGED:
+                AccountState account = accounts.get(event.getAccountId());
+                if (account != null) {
+                    accounts.put(account.accountId, new AccountState(account.accountId, account.clientId,
+                            Money.ofMinor(Math.addExact(account.balance.getMinorUnits(),
+                                    event.getAmount().getMinorUnits()), account.balance.getCurrency())));
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown event type " + event.getType());
+        }
+        seq = event.getSeq();
+        time = event.getTime();
+    }
+
+    private void put(AccountState account) {
+        AccountState old = accounts.put(account.accountId, account);
+        if (old != null && old.clientId != account.clientId) {
+            unlink(old);
+        }
+        clients.computeIfAbsent(account.clientId, id -> new HashSet<>()).add(account.accountId);
+    }
+
+    private void remove(long accountId) {
+        AccountState old = accounts.remove(accountId);
+        if (old != null) {
+            unlink(old);
+        }
+    }
+
+    private void unlink(AccountState account) {
+        Set<Long> ids = clients.get(account.clientId);
+        if (ids != null && ids.remove(account.accountId) && ids.isEmpty()) {
+            clients.remove(account.clientId);
+        }
+    }
+
+    /**
+     * Write the state to the file atomically, through a temporary file.
+     *
+     * @param file
+     * @throws IOException
+     */
+    void writeTo(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_SIZE))) {
+            out.writeLong(seq);
+            out.writeLong(time);
+            out.writeInt(accounts.size());
+            for (AccountState account : accounts.values()) {
+                out.writeLong(account.accountId);
+                out.writeLong(account.clientId);
+                out.writeLong(account.balance.getMinorUnits());
+                out.writeShort(account.balance.getCurrency().ordinal() + 1);
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @param file snapshot written by {@link #writeTo}
+     * @return
+     * @throws IOException
+     */
+    static JournalState readFrom(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            long seq = in.readLong();
+            long time = in.readLong();
+            int count = in.readInt();
+            JournalState state = new JournalState(seq, time, count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                long accountId = in.readLong();
+                long clientId = in.readLong();
+                long amount = in.readLong();
+                Currency currency = AccountEvent.currency(in.readShort());
+                state.put(new AccountState(accountId, clientId, Money.ofMinor(amount, currency)));
+            }
+            return state;
+        }
+    }
+
+    /**
+     * @param file snapshot written by {@link #writeTo}
+     * @return time of the snapshot, without reading the accounts
+     * @throws IOException
+     */
+    static long readTime(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            in.readLong();
+            return in.readLong();
+        }
+    }
+}
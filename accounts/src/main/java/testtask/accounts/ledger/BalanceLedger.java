@@ -0,0 +1,690 @@
+package testtask.accounts.ledger;
+
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.Striped;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import testtask.accounts.cache.ClientAccountsCache;
+import testtask.accounts.dao.AccountJdbcDao;
+import testtask.accounts.dao.AccountJdbcDao.BalanceDelta;
+import testtask.accounts.dao.AccountJdbcDao.LedgerCheckpoint;
+import testtask.accounts.exception.AccountException;
+import testtask.accounts.journal.AccountEvent;
+import testtask.accounts.journal.AccountJournal;
+import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
+import testtask.accounts.util.TransactionHooks;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import static testtask.accounts.exception.MicroserviceException.ErrorTypes;
+
+/**
+ * In-memory ledger of balance changes with write-behind to the database.
+ * <p>
+ * A change is checked against the known balance of the account, appended to {@link AccountJournal}
+ * as {@link AccountEvent.Type#LEDGER_CHANGED} and added to the pending delta of the account;
+ * it is acknowledged when the journal has forced its event to the disk, concurrent changes share one force.
+ * Changes of one account are serialized by a lock stripe, changes of different accounts run in parallel.
+ * {@link #flush()} takes pending deltas of all accounts at once and adds them to balances by jdbc batches,
+ * in the same transaction it saves the checkpoint of the journal: the sequence number up to which its ledger
+ * events are in the database. Sequence numbers are per journal, so checkpoints are kept by journal id.
+ * After a crash ledger events after the checkpoint are replayed on start.
+ * The journal keeps segments with events after the checkpoint.
+ * <p>
+ * Balances in the database lag behind the ledger up to the flush interval.
+ * Unflushed change of one account is limited by max exposure.
+ * Transactions writing or deleting rows themselves (transfers, balance updates, deletes) {@link #fence}
+ * their accounts, so they see pending changes of the accounts and the ledger sees what they have written.
+ */
+@Slf4j
+@Component
+public class BalanceLedger {
+
+    /**
+     * Ledger state of one account, guarded by the stripe lock of the account.
+     */
+    private static class Entry {
+
+        /**
+         * null while a transaction fences an account the ledger didn't know
+         */
+        final Currency currency;
+        /**
+         * balance known to the database after the last flush, minor units
+         */
+        long base;
+        /**
+         * not flushed change, minor units
+         */
+        long delta;
+        /**
+         * journal sequence number of the first not flushed change
+         */
+        long firstSeq;
+        /**
+         * System.nanoTime of the first not flushed change
+         */
+        long firstChangeNanos;
+        /**
+         * part of base taken by the running flush, it isn't in the database until the flush writes it
+         */
+        long flushing;
+        /**
+         * journal sequence number of the first change of the flushing part
+         */
+        long flushingSeq;
+        /**
+         * set while a transaction which fenced the account runs, released when it completes
+         */
+        CountDownLatch fence;
+        Thread fenceOwner;
+
+        Entry(Money balance) {
+            this.currency = balance == null ? null : balance.getCurrency();
+            this.base = balance == null ? 0 : balance.getMinorUnits();
+        }
+    }
+
+    private final AccountJdbcDao dao;
+    private final AccountJournal journal;
+    private final ClientAccountsCache cache;
+    private final Striped<Lock> stripes;
+    private final long maxExposure;
+
+    @Value("${accounts.ledger.fence-timeout-ms:5000}")
+    private long fenceTimeoutMillis = 5000;
+
+    @Value("${accounts.by-ids.chunk-size:500}")
+    private int idsChunkSize = 500;
+
+    /**
+     * apply and fence take read lock, flush takes write lock to take pending deltas of all accounts atomically
+     */
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    /**
+     * counted down when the running flush has finished its deltas, replaced under write lock
+     */
+    private CountDownLatch runningFlush = new CountDownLatch(0);
+    /**
+     * checkpoint saved by the last flush, guarded by this
+     */
+    private LedgerCheckpoint savedCheckpoint;
+
+    private final AtomicLong flushedDeltas = new AtomicLong();
+    private final AtomicLong missingAccounts = new AtomicLong();
+    private final AtomicLong rejectedByExposure = new AtomicLong();
+    private volatile long lastFlushMillis;
+
+    @Autowired
+    public BalanceLedger(AccountJdbcDao dao, AccountJournal journal, ClientAccountsCache cache,
+                         @Value("${accounts.ledger.stripes:64}") int stripes,
+                         @Value("${accounts.ledger.max-exposure:10000}") String maxExposure) {
+        this.dao = dao;
+        this.journal = journal;
+        this.cache = cache;
+        this.stripes = Striped.lock(stripes);
+        this.maxExposure = Money.parse(maxExposure, null).getMinorUnits();
+    }
+
+    /**
+     * Replay ledger events of the journal after its checkpoint, the previous run didn't flush them.
+     * Events are summed up per account while the journal is read, balances are read by chunks of accounts.
+     *
+     * @throws IOException
+     */
+    @PostConstruct
+    public void recover() throws IOException {
+        LedgerCheckpoint checkpoint = dao.findLedgerCheckpoint(journal.getId());
+        Map<Long, Entry> replayed = new HashMap<>();
+        long[] events = new long[1];
+        journal.forEach(checkpoint.getFirstNotFlushedSeq(), event -> {
+            if (event.getType() == AccountEvent.Type.LEDGER_CHANGED
+                    && !checkpoint.isFlushed(event.getAccountId(), event.getSeq())) {
+                Entry change = replayed.computeIfAbsent(event.getAccountId(), id -> new Entry(null));
+                addToEntry(change, event.getAmount().getMinorUnits(), event.getSeq());
+                events[0]++;
+            }
+        });
+        int recovered = 0;
+        for (List<Long> chunk : Lists.partition(new ArrayList<>(replayed.keySet()), idsChunkSize)) {
+            Map<Long, Money> balances = dao.findBalances(chunk);
+            for (Long accountId : chunk) {
+                Money balance = balances.get(accountId);
+                Entry change = replayed.get(accountId);
+                if (balance == null || change.delta == 0) {
+                    continue;
+                }
+                Entry entry = new Entry(balance);
+                addToEntry(entry, change.delta, change.firstSeq);
+                entries.put(accountId, entry);
+                recovered++;
+            }
+        }
+        if (events[0] > 0) {
+            log.info("Ledger journal {} replay after seq {}: {} events, {} accounts", journal.getId(),
+                    checkpoint.getFlushedSeq(), events[0], recovered);
+        }
+        flush();
+    }
+
+    /**
+     * Add money to the account.
+     *
+     * @param accountId
+     * @param amount positive amount
+     * @return expected balance of the account
+     */
+    public Money deposit(long accountId, Money amount) {
+        return apply(accountId, amount);
+    }
+
+    /**
+     * Take money from the account.
+     *
+     * @param accountId
+     * @param amount positive amount
+     * @return expected balance of the account
+     */
+    public Money withdraw(long accountId, Money amount) {
+        return apply(accountId, amount.negate());
+    }
+
+    private Money apply(long accountId, Money change) {
+        Money balance;
+        long eventSeq;
+        for (;;) {
+            CountDownLatch fence;
+            flushLock.readLock().lock();
+            try {
+                Lock lock = stripes.get(accountId);
+                lock.lock();
+                try {
+                    Entry entry = entries.get(accountId);
+                    if (entry == null) {
+                        Money stored = dao.findBalance(accountId);
+                        if (stored == null) {
+                            throw new AccountException(ErrorTypes.not_found, accountId);
+                        }
+                        entry = new Entry(stored);
+                        entries.put(accountId, entry);
+                    }
+                    fence = entry.fence;
+                    if (fence == null) {
+                        if (entry.currency != change.getCurrency()) {
+                            throw new AccountException(ErrorTypes.business, "Currency of account " + accountId + " "
+                                    + entry.currency + " doesn't match " + change.getCurrency());
+                        }
+                        long delta = Math.addExact(entry.delta, change.getMinorUnits());
+                        if (Math.abs(delta) > maxExposure) {
+                            rejectedByExposure.incrementAndGet();
+                            throw new AccountException(ErrorTypes.business, "Too many not saved changes of account "
+                                    + accountId + ", try again later");
+                        }
+                        long minorBalance = Math.addExact(entry.base, delta);
+                        if (minorBalance < 0) {
+                            throw new AccountException(ErrorTypes.business, "Not enough money on account " + accountId);
+                        }
+                        eventSeq = journal.append(
+                                Collections.singletonList(AccountEvent.ledgerChanged(accountId, change)));
+                        addToEntry(entry, change.getMinorUnits(), eventSeq);
+                        balance = Money.ofMinor(minorBalance, entry.currency);
+                        break;
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            } finally {
+                flushLock.readLock().unlock();
+            }
+            // the balance written by the transaction holding the fence is known when it completes
+            if (!awaitFence(fence)) {
+                throw new AccountException(ErrorTypes.business, "Account " + accountId
+                        + " is being updated, try again later");
+            }
+        }
+        // outside of the locks, so changes of other accounts join the same force
+        awaitCommitted(eventSeq);
+        return balance;
+    }
+
+    private void awaitCommitted(long eventSeq) {
+        try {
+            journal.awaitCommitted(eventSeq);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountException(ErrorTypes.other, "Interrupted while the balance change was saved");
+        }
+    }
+
+    /**
+     * Fence the accounts for the current transaction, which writes or deletes their rows itself.
+     * <p>
+     * Ledger changes of fenced accounts wait until the transaction completes and the flush leaves their deltas
+     * pending meanwhile, so the rows change only by the transaction and its checks can add the pending changes
+     * to the balances it reads. Fencing waits for a running flush of the accounts, so accounts are fenced
+     * before their rows are read or locked and a fence holder never waits for a transaction waiting for its fence.
+     * All accounts are fenced at once or none.
+     * When the transaction commits, pending changes stay on top of the balances it has written
+     * and pending changes of the accounts it has deleted are dropped.
+     * A rolled back transaction leaves the ledger as it was.
+     *
+     * @param accountIds
+     * @return pending changes by account id, accounts without pending changes are absent
+     * @throws CannotAcquireLockException when another transaction or the flush holds the accounts too long
+     */
+    public Map<Long, Money> fence(Collection<Long> accountIds) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Accounts are fenced only in a transaction");
+        }
+        Set<Long> ids = new HashSet<>(accountIds);
+        if (ids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Thread owner = Thread.currentThread();
+        CountDownLatch flushed;
+        for (;;) {
+            CountDownLatch busy = null;
+            flushLock.readLock().lock();
+            try {
+                Iterable<Lock> locks = stripes.bulkGet(ids);
+                locks.forEach(Lock::lock);
+                try {
+                    for (Long accountId : ids) {
+                        Entry entry = entries.get(accountId);
+                        if (entry != null && entry.fence != null && entry.fenceOwner != owner) {
+                            busy = entry.fence;
+                            break;
+                        }
+                    }
+                    if (busy == null) {
+                        flushed = fence(ids, owner) ? runningFlush : null;
+                        break;
+                    }
+                } finally {
+                    locks.forEach(Lock::unlock);
+                }
+            } finally {
+                flushLock.readLock().unlock();
+            }
+            if (!awaitFence(busy)) {
+                throw new CannotAcquireLockException("Ledger changes of accounts " + ids
+                        + " are held by another transaction");
+            }
+        }
+        if (flushed != null && !awaitFence(flushed)) {
+            throw new CannotAcquireLockException("Ledger flush of accounts " + ids + " takes too long");
+        }
+        return pendingChanges(ids);
+    }
+
+    /**
+     * Under the read lock and stripe locks of the accounts.
+     *
+     * @return true if the running flush has taken changes of the accounts
+     */
+    private boolean fence(Set<Long> accountIds, Thread owner) {
+        CountDownLatch fence = new CountDownLatch(1);
+        List<Long> fenced = new ArrayList<>(accountIds.size());
+        boolean flushing = false;
+        for (Long accountId : accountIds) {
+            Entry entry = entries.get(accountId);
+            if (entry != null && entry.fenceOwner == owner) {
+                continue;
+            }
+            if (entry == null) {
+                entry = new Entry(null);
+                entries.put(accountId, entry);
+            }
+            flushing |= entry.flushing != 0;
+            entry.fence = fence;
+            entry.fenceOwner = owner;
+            fenced.add(accountId);
+        }
+        if (!fenced.isEmpty()) {
+            TransactionSynchronizationManager.registerSynchronization(new FencedAccounts(fenced, owner));
+        }
+        return flushing;
+    }
+
+    private Map<Long, Money> pendingChanges(Collection<Long> accountIds) {
+        Map<Long, Money> pending = new HashMap<>();
+        flushLock.readLock().lock();
+        try {
+            for (Long accountId : accountIds) {
+                Lock lock = stripes.get(accountId);
+                lock.lock();
+                try {
+                    Entry entry = entries.get(accountId);
+                    if (entry != null && entry.delta != 0) {
+                        pending.put(accountId, Money.ofMinor(entry.delta, entry.currency));
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        return pending;
+    }
+
+    /**
+     * Accounts fenced by a transaction, released when it completes.
+     */
+    private class FencedAccounts extends TransactionSynchronizationAdapter {
+
+        final List<Long> accountIds;
+        final Thread owner;
+        /**
+         * balances of accounts with pending changes as the transaction has written them, absent if deleted
+         */
+        Map<Long, Money> written = Collections.emptyMap();
+
+        FencedAccounts(List<Long> accountIds, Thread owner) {
+            this.accountIds = accountIds;
+            this.owner = owner;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            List<Long> pendingIds = new ArrayList<>(pendingChanges(accountIds).keySet());
+            if (pendingIds.isEmpty()) {
+                return;
+            }
+            TransactionHooks.flushEntityManagers();
+            written = new HashMap<>(pendingIds.size() * 2);
+            for (List<Long> chunk : Lists.partition(pendingIds, idsChunkSize)) {
+                written.putAll(dao.findBalances(chunk));
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            release(accountIds, owner, status == STATUS_COMMITTED ? written : null);
+        }
+    }
+
+    /**
+     * Lift the fence after the transaction.
+     *
+     * @param written balances of committed accounts with pending changes, null after rollback
+     */
+    private void release(List<Long> accountIds, Thread owner, Map<Long, Money> written) {
+        List<CountDownLatch> fences = new ArrayList<>(1);
+        flushLock.readLock().lock();
+        try {
+            for (Long accountId : accountIds) {
+                Lock lock = stripes.get(accountId);
+                lock.lock();
+                try {
+                    Entry entry = entries.get(accountId);
+                    if (entry == null || entry.fenceOwner != owner) {
+                        continue;
+                    }
+                    fences.add(entry.fence);
+                    entry.fence = null;
+                    entry.fenceOwner = null;
+                    if (entry.delta == 0 && entry.flushing == 0) {
+                        entries.remove(accountId);
+                    } else if (written != null) {
+                        Money balance = written.get(accountId);
+                        if (balance != null) {
+                            entry.base = balance.getMinorUnits();
+                        } else {
+                            entries.remove(accountId);
+                            log.info("Ledger changes {} of deleted account {} are dropped",
+                                    Money.ofMinor(entry.delta, entry.currency), accountId);
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        fences.forEach(CountDownLatch::countDown);
+    }
+
+    private boolean awaitFence(CountDownLatch fence) {
+        try {
+            return fence.await(fenceTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountException(ErrorTypes.other, "Interrupted while the account was updated");
+        }
+    }
+
+    private static void addToEntry(Entry entry, long change, long eventSeq) {
+        if (entry.delta == 0) {
+            entry.firstChangeNanos = System.nanoTime();
+            entry.firstSeq = eventSeq;
+        }
+        entry.delta += change;
+    }
+
+    /**
+     * Add coalesced pending deltas to account balances in the database with the checkpoint of the journal.
+     * Accounts without changes for the whole previous flush interval are forgotten,
+     * so their next change reads the balance from the database again.
+     * Deltas of fenced accounts stay pending, the checkpoint holds their changes.
+     * Deletes fence their accounts, so a delta of an account which doesn't exist any more means the row
+     * was deleted around the ledger: the change is lost, it is logged as an error and counted.
+     */
+    @Scheduled(fixedDelayString = "${accounts.ledger.flush-interval-ms:200}")
+    public synchronized void flush() {
+        long start = System.currentTimeMillis();
+        List<BalanceDelta> deltas = new ArrayList<>();
+        Map<Long, Long> heldSeqs = new HashMap<>();
+        CountDownLatch running = null;
+        long journalSeq;
+
+        flushLock.writeLock().lock();
+        try {
+            // ledger events up to it are taken by this flush, flushed before or held
+            journalSeq = journal.getLastSeq();
+            Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, Entry> item = iterator.next();
+                Entry entry = item.getValue();
+                if (entry.delta == 0) {
+                    if (entry.fence == null) {
+                        iterator.remove();
+                    }
+                    continue;
+                }
+                if (entry.fence != null) {
+                    heldSeqs.put(item.getKey(), entry.firstSeq);
+                    continue;
+                }
+                deltas.add(new BalanceDelta(item.getKey(), entry.delta, entry.currency));
+                entry.base += entry.delta;
+                entry.flushing = entry.delta;
+                entry.flushingSeq = entry.firstSeq;
+                entry.delta = 0;
+            }
+            if (!deltas.isEmpty()) {
+                running = new CountDownLatch(1);
+                runningFlush = running;
+            }
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+
+        LedgerCheckpoint checkpoint = new LedgerCheckpoint(journalSeq, heldSeqs);
+        if (deltas.isEmpty() && savedCheckpoint != null && savedCheckpoint.getFlushedSeq() == journalSeq
+                && savedCheckpoint.getHeldSeqs().equals(heldSeqs)) {
+            return;
+        }
+        List<BalanceDelta> applied;
+        try {
+            // the database never gets a change before its event, even of a change not acknowledged yet
+            awaitCommitted(journalSeq);
+            applied = dao.addToBalances(deltas, journal.getId(), checkpoint);
+        } catch (RuntimeException e) {
+            finishFlush(deltas, true, running);
+            log.error("Ledger flush of {} accounts failed, will retry", deltas.size(), e);
+            return;
+        }
+        finishFlush(deltas, false, running);
+        savedCheckpoint = checkpoint;
+        if (applied.size() < deltas.size()) {
+            forgetMissing(deltas, applied);
+        }
+        if (!applied.isEmpty()) {
+            cache.invalidateAccounts(applied.stream().map(BalanceDelta::getAccountId)
+                    .collect(Collectors.toList()));
+        }
+        flushedDeltas.addAndGet(applied.size());
+        journal.setLedgerFlushedSeq(checkpoint.getFirstNotFlushedSeq() - 1);
+        lastFlushMillis = System.currentTimeMillis() - start;
+    }
+
+    /**
+     * Clear the flushing part of the entries, a failed flush returns it to pending.
+     * Fencing of the accounts waits for it.
+     */
+    private void finishFlush(List<BalanceDelta> deltas, boolean failed, CountDownLatch running) {
+        flushLock.readLock().lock();
+        try {
+            for (BalanceDelta delta : deltas) {
+                Lock lock = stripes.get(delta.getAccountId());
+                lock.lock();
+                try {
+                    Entry entry = entries.get(delta.getAccountId());
+                    if (entry == null || entry.flushing == 0) {
+                        continue;
+                    }
+                    if (failed) {
+                        entry.base -= entry.flushing;
+                        if (entry.delta == 0) {
+                            entry.firstChangeNanos = System.nanoTime();
+                        }
+                        entry.delta += entry.flushing;
+                        entry.firstSeq = entry.flushingSeq;
+                    }
+                    entry.flushing = 0;
+                    entry.flushingSeq = 0;
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            flushLock.readLock().unlock();
+        }
+        if (running != null) {
+            running.countDown();
+        }
+    }
+
+    /**
+     * Forget accounts whose rows the flush didn't find, their changes are lost.
+     */
+    private void forgetMissing(List<BalanceDelta> deltas, List<BalanceDelta> applied) {
+        Set<Long> appliedIds = applied.stream().map(BalanceDelta::getAccountId).collect(Collectors.toSet());
+        flushLock.readLock().lock();
+        try {
+            for (BalanceDelta delta : deltas) {
+                if (appliedIds.contains(delta.getAccountId())) {
+                    continue;
+                }
+                missingAccounts.incrementAndGet();
+                Lock lock = stripes.get(delta.getAccountId());
+                lock.lock();
+                try {
+                    Entry entry = entries.get(delta.getAccountId());
+                    long pending = 0;
+                    if (entry != null && entry.fence == null) {
+                        pending = entry.delta;
+                        entries.remove(delta.getAccountId());
+                    }
+                    Money pendingChange = Money.ofMinor(pending, delta.getChange().getCurrency());
+                    log.error("Ledger flush: account {} doesn't exist, its changes {} and pending {} are lost",
+                            delta.getAccountId(), delta.getChange(), pendingChange);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    /**
+     * @return count of accounts with not flushed changes
+     */
+    public int getPendingAccounts() {
+        int count = 0;
+        for (Entry entry : entries.values()) {
+            if (entry.delta != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return age of the oldest not flushed change in milliseconds, 0 if all changes are flushed
+     */
+    public long getFlushLagMillis() {
+        long now = System.nanoTime();
+        long oldest = now;
+        for (Entry entry : entries.values()) {
+            if (entry.delta != 0 && entry.firstChangeNanos - oldest < 0) {
+                oldest = entry.firstChangeNanos;
+            }
+        }
+        return (now - oldest) / 1_000_000L;
+    }
+
+    public long getFlushedDeltas() {
+        return flushedDeltas.get();
+    }
+
+    /**
+     * @return count of flushed deltas of accounts which didn't exist, their changes are lost
+     */
+    public long getMissingAccounts() {
+        return missingAccounts.get();
+    }
+
+    public long getRejectedByExposure() {
+        return rejectedByExposure.get();
+    }
+
+    public long getLastFlushMillis() {
+        return lastFlushMillis;
+    }
+}
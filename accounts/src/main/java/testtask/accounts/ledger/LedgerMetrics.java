@@ -0,0 +1,36 @@
+package testtask.accounts.ledger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * State of {@link BalanceLedger} for the actuator /metrics endpoint.
+ */
+@Component
+public class LedgerMetrics implements PublicMetrics {
+
+    private final BalanceLedger ledger;
+
+    @Autowired
+    public LedgerMetrics(BalanceLedger ledger) {
+        this.ledger = ledger;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>(6);
+        metrics.add(new Metric<>("ledger.pending.accounts", ledger.getPendingAccounts()));
+        metrics.add(new Metric<>("ledger.flush.lag.ms", ledger.getFlushLagMillis()));
+        metrics.add(new Metric<>("ledger.flush.last.ms", ledger.getLastFlushMillis()));
+        metrics.add(new Metric<>("ledger.flushed.deltas", ledger.getFlushedDeltas()));
+        metrics.add(new Metric<>("ledger.flush.missing.accounts", ledger.getMissingAccounts()));
+        metrics.add(new Metric<>("ledger.rejected.exposure", ledger.getRejectedByExposure()));
+        return metrics;
+    }
+}
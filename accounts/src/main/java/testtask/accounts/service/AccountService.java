@@ -1,17 +1,48 @@
 package testtask.accounts.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import java.util.Collections;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import testtask.accounts.cache.ClientAccountsCache;
 import testtask.accounts.dao.AccountConvertor;
 import testtask.accounts.dao.AccountEntity;
 import testtask.accounts.dao.AccountRepository;
 import testtask.accounts.exception.AccountException;
+import testtask.accounts.exception.ItemError;
+import testtask.accounts.journal.AccountEvent;
+import testtask.accounts.journal.AccountJournal;
+import testtask.accounts.ledger.BalanceLedger;
 import testtask.accounts.model.Account;
+import testtask.accounts.model.AccountPage;
+import testtask.accounts.model.AccountsByIds;
+import testtask.accounts.model.Money;
+import testtask.accounts.util.CursorUtil;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static testtask.accounts.exception.MicroserviceException.ErrorTypes;
 
@@ -24,11 +55,47 @@ public class AccountService {
 
     private final AccountRepository repository;
     private final AccountValidations validations;
+    private final ObjectMapper objectMapper;
+    private final AccountJournal journal;
+    private final ClientAccountsCache cache;
+    private final BalanceLedger ledger;
+
+    @Value("${accounts.page.default-size:100}")
+    private int defaultPageSize = 100;
+
+    @Value("${accounts.page.max-size:1000}")
+    private int maxPageSize = 1000;
+
+    @Value("${accounts.export.fetch-size:500}")
+    private int exportFetchSize = 500;
+
+    @Value("${accounts.import.max-errors:1000}")
+    private int importMaxErrors = 1000;
+
+    @Value("${accounts.by-ids.max-size:10000}")
+    private int maxIdsSize = 10000;
+
+    @Value("${accounts.by-ids.chunk-size:500}")
+    private int idsChunkSize = 500;
+
+    @Value("${accounts.by-client-ids.max-size:1000}")
+    private int maxClientIdsSize = 1000;
+
+    @Value("${accounts.by-client-ids.max-accounts:10000}")
+    private int maxClientIdsAccounts = 10000;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize = 50;
 
     @Autowired
-    public AccountService(AccountRepository accountRepository, AccountValidations validations) {
+    public AccountService(AccountRepository accountRepository, AccountValidations validations, ObjectMapper objectMapper,
+                          AccountJournal journal, ClientAccountsCache cache, BalanceLedger ledger) {
         this.repository = accountRepository;
         this.validations = validations;
+        this.objectMapper = objectMapper;
+        this.journal = journal;
+        this.cache = cache;
+        this.ledger = ledger;
     }
 
     /**
@@ -37,31 +104,84 @@ public class AccountService {
      * @param account
      * @return
      */
+    @Transactional
     public Account create(Account account) {
 
         validations.createValidations(account);
         AccountEntity accountEntity = AccountConvertor.toEntity(account);
         accountEntity = repository.save(accountEntity);
+        journal(Collections.singletonList(AccountEvent.created(accountEntity)));
+        cache.invalidateClient(accountEntity.getClientId());
         account = AccountConvertor.toModel(accountEntity);
-        log.info("Create account: " + account);
+        log.info("Create account: id={}", account.getId());
         return account;
     }
 
     /**
-     * Create List Accounts.
+     * Create List Accounts with jdbc batched inserts.
      *
      * @param accounts
      * @return
      */
+    @Transactional
     public List<Account> create(List<Account> accounts) {
         validations.createValidations(accounts);
-        Iterable<AccountEntity> accountEntities = AccountConvertor.toEntities(accounts);
-        accountEntities = repository.save(accountEntities);
+        List<AccountEntity> accountEntities = repository.insertAll(AccountConvertor.toEntities(accounts));
+        journal(accountEntities.stream().map(AccountEvent::created).collect(Collectors.toList()));
+        cache.invalidateClients(clientIds(accountEntities));
         accounts = AccountConvertor.toModels(accountEntities);
-        log.info("Create List Accounts: " + accounts.toString());
+        log.info("Create List Accounts: {} accounts", accounts.size());
         return accounts;
     }
 
+    /**
+     * Create accounts from json array read item by item from the stream.
+     * Accounts are inserted by jdbc batches, so neither the body nor created accounts are kept in memory.
+     * Nothing is saved if any account is invalid: after the first invalid account the stream is only validated,
+     * so the error lists invalid accounts of the whole body, up to {@code accounts.import.max-errors}.
+     *
+     * @param json json array of new accounts
+     * @return count of created accounts
+     * @throws IOException
+     */
+    @Transactional(rollbackFor = IOException.class)
+    public long importAccounts(InputStream json) throws IOException {
+        long count = 0;
+        int read = 0;
+        List<Account> batch = new ArrayList<>(batchSize);
+        List<ItemError> errors = new ArrayList<>();
+        try (MappingIterator<Account> iterator = objectMapper.readerFor(Account.class).readValues(json)) {
+            while (iterator.hasNextValue() && errors.size() < importMaxErrors) {
+                batch.add(iterator.nextValue());
+                if (batch.size() == batchSize) {
+                    count += importBatch(batch, read, errors);
+                    read += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        count += importBatch(batch, read, errors);
+        read += batch.size();
+        validations.throwIfInvalid(errors, read);
+        log.info("Import accounts: {} accounts", count);
+        return count;
+    }
+
+    private int importBatch(List<Account> batch, int firstIndex, List<ItemError> errors) {
+        errors.addAll(validations.checkCreate(batch, firstIndex));
+        if (!errors.isEmpty()) {
+            return 0;
+        }
+        return importBatch(AccountConvertor.toEntities(batch));
+    }
+
+    private int importBatch(List<AccountEntity> batch) {
+        List<AccountEntity> created = repository.insertAll(batch);
+        journal(created.stream().map(AccountEvent::created).collect(Collectors.toList()));
+        cache.invalidateClients(clientIds(created));
+        return created.size();
+    }
+
     public Account get(Long id) {
         AccountEntity accountEntity = repository.findOne(id);
         if (accountEntity == null) {
@@ -69,15 +189,107 @@ public class AccountService {
                     "Account with id: " + id + " not found");
         }
         Account account = AccountConvertor.toModel(accountEntity);
-        log.info("Get account: " + account);
+        log.debug("Get account: id={}", id);
         return account;
     }
 
+    /**
+     * Find accounts by ids, one IN query per chunk of ids.
+     * A repeated id is returned once, at the place of its first occurrence.
+     *
+     * @param ids account ids, not more than max size
+     * @return accounts in the order of ids and ids of not existing accounts
+     */
+    @Transactional(readOnly = true)
+    public AccountsByIds findByIds(List<Long> ids) {
+        List<Long> distinctIds = validations.validateIds(ids, maxIdsSize, "account ids");
+
+        Map<Long, Account> found = new HashMap<>(distinctIds.size() * 2);
+        for (List<Long> chunk : Lists.partition(distinctIds, idsChunkSize)) {
+            repository.findViewsByIds(chunk).forEach(account -> found.put(account.getId(), account));
+        }
+        List<Account> accounts = new ArrayList<>(found.size());
+        List<Long> missingIds = new ArrayList<>();
+        for (Long id : distinctIds) {
+            Account account = found.get(id);
+            if (account != null) {
+                accounts.add(account);
+            } else {
+                missingIds.add(id);
+            }
+        }
+        AccountsByIds result = new AccountsByIds(accounts, missingIds);
+        log.info("Find accounts by {} ids : {} found", ids.size(), accounts.size());
+        return result;
+    }
+
+    /**
+     * Find accounts of many clients, one IN query per chunk of client ids.
+     * A query reads not more than the rest of max accounts and one extra, which only tells that the limit is exceeded.
+     *
+     * @param clientIds client ids, not more than max size
+     * @return accounts ordered by id grouped by client id in the order of client ids,
+     * a client without accounts has an empty list
+     * @throws AccountException validation error when the clients have more accounts than max accounts,
+     *                          they are read by pages of every client
+     */
+    @Transactional(readOnly = true)
+    public Map<Long, List<Account>> findByClientIds(List<Long> clientIds) {
+        List<Long> distinctIds = validations.validateIds(clientIds, maxClientIdsSize, "client ids");
+
+        Map<Long, List<Account>> byClient = new LinkedHashMap<>(distinctIds.size() * 2);
+        distinctIds.forEach(clientId -> byClient.put(clientId, new ArrayList<>()));
+        int count = 0;
+        for (List<Long> chunk : Lists.partition(distinctIds, idsChunkSize)) {
+            List<Account> accounts = repository.findViewsOfClients(chunk,
+                    new PageRequest(0, maxClientIdsAccounts - count + 1));
+            count += accounts.size();
+            if (count > maxClientIdsAccounts) {
+                throw new AccountException(ErrorTypes.validation, "Clients have more than " + maxClientIdsAccounts
+                        + " accounts, find accounts of every client by pages");
+            }
+            accounts.forEach(account -> byClient.get(account.getClientId()).add(account));
+        }
+        log.info("Find accounts of {} clients : {} accounts", distinctIds.size(), count);
+        return byClient;
+    }
+
+    /**
+     * Update account by its managed entity, so the update is checked by the account version.
+     * The account is fenced in the balance ledger, pending ledger changes of the account stay on top of a new balance.
+     * Account which doesn't exist is created with new id.
+     *
+     * @param account
+     */
+    @Transactional
     public void update(Account account) {
         validations.validateItem(account);
-        AccountEntity accountEntity = AccountConvertor.toEntity(account);
-        log.info("Update account: " + account);
-        repository.save(accountEntity);
+        Map<Long, Money> pending = account.getId() == null ? Collections.emptyMap()
+                : ledger.fence(Collections.singleton(account.getId()));
+        AccountEntity accountEntity = account.getId() == null ? null : repository.findOne(account.getId());
+        if (accountEntity == null) {
+            accountEntity = AccountConvertor.toEntity(account);
+            accountEntity.setId(null);
+            repository.save(accountEntity);
+            journal(Collections.singletonList(AccountEvent.created(accountEntity)));
+            cache.invalidateClient(accountEntity.getClientId());
+            log.info("Update account, not existed account created: id={}", accountEntity.getId());
+            return;
+        }
+        // the account may move to another client, both lists change
+        Long oldClientId = accountEntity.getClientId();
+        cache.invalidateClients(Sets.newHashSet(oldClientId, account.getClientId()));
+        Money balance = checkSetBalances(Collections.singletonList(account),
+                Collections.singletonMap(accountEntity.getId(), accountEntity), pending).get(accountEntity.getId());
+        AccountConvertor.copyChanges(account, accountEntity);
+        accountEntity.setClientId(account.getClientId());
+        if (balance != null) {
+            journal(Collections.singletonList(AccountEvent.updated(accountEntity, balance)));
+        } else if (!Objects.equals(oldClientId, account.getClientId())) {
+            journal(Collections.singletonList(AccountEvent.clientChanged(accountEntity.getId(),
+                    account.getClientId())));
+        }
+        log.info("Update account: id={}", account.getId());
     }
 
     /**
@@ -85,77 +297,308 @@ public class AccountService {
      *
      * @param account
      */
+    @Transactional
     public void delete(Account account) {
         validations.validateItem(account);
         delete(account.getId());
     }
 
     /**
-     * Delete Account
+     * Delete Account by one statement.
      *
      * @param id
      */
+    @Transactional
     public void delete(Long id) {
         validations.validateNotNull(id, "Can't delete account with id = null");
-        if (!repository.exists(id)) {
+        if (deleteAll(Collections.singleton(id)) == 0) {
             throw new AccountException(ErrorTypes.not_found, id);
         }
+        journal(Collections.singletonList(AccountEvent.deleted(id)));
+        cache.invalidateAccounts(Collections.singleton(id));
         log.info("Delete account: id=" + id);
-        repository.delete(id);
     }
 
+    /**
+     * Delete Accounts by one statement per chunk of ids.
+     *
+     * @param accounts
+     */
+    @Transactional
     public void delete(List<Account> accounts) {
         validations.validateNotNull(accounts, "can't delete null accounts");
-        log.info("Delete list accounts: {} ", accounts);
-        repository.delete(AccountConvertor.toEntities(accounts));
+        Set<Long> ids = new HashSet<>(accounts.size());
+        accounts.forEach(account -> {
+            validations.validateNotNull(account, "can't delete null account");
+            validations.validateNotNull(account.getId(), "Can't delete account with id = null");
+            ids.add(account.getId());
+        });
+        if (ids.isEmpty()) {
+            return;
+        }
+        int deleted = deleteAll(ids);
+        if (deleted == 0) {
+            throw new AccountException(ErrorTypes.not_found, "Not found accounts, ids = " + ids);
+        }
+        // ids of accounts which didn't exist are journaled too, deleting them again in replay changes nothing
+        journal(ids.stream().map(AccountEvent::deleted).collect(Collectors.toList()));
+        cache.invalidateAccounts(ids);
+        log.info("Delete list accounts: {} of {} deleted", deleted, ids.size());
     }
 
-    public List<Account> getAll() {
-        Iterable<AccountEntity> accountEntities = repository.findAll();
-        List<Account> accounts = AccountConvertor.toModels(accountEntities);
-        log.info("Get all accounts: " + accounts);
-        return accounts;
+    /**
+     * Keyset page of all accounts ordered by id.
+     *
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit page size, default size when null, capped by max size
+     * @return
+     */
+    @Transactional(readOnly = true)
+    public AccountPage getAll(String cursor, Integer limit) {
+        int pageSize = pageSize(limit);
+        List<Account> accounts = repository.findViewsAfter(CursorUtil.decode(cursor), new PageRequest(0, pageSize + 1));
+        AccountPage page = toPage(accounts, pageSize);
+        log.debug("Get accounts page, cursor {} : {} accounts", cursor, page.getAccounts().size());
+        return page;
     }
 
-    public List<Account> findByClientId(Long clientId) {
+    /**
+     * Keyset page of client's accounts ordered by id.
+     *
+     * @param clientId client id
+     * @param cursor cursor of the previous page, null for the first page
+     * @param limit page size, default size when null, capped by max size
+     * @return
+     */
+    @Transactional(readOnly = true)
+    public AccountPage findByClientId(Long clientId, String cursor, Integer limit) {
         validations.validateNotNull(clientId, "client id is null");
-        List<AccountEntity> accountEntities = repository.findByClientId(clientId);
-        List<Account> accounts = AccountConvertor.toModels(accountEntities);
-        log.info("Find all accounts of client with ID {} : {}", clientId, accounts);
-        return accounts;
+        int pageSize = pageSize(limit);
+        long afterId = CursorUtil.decode(cursor);
+        List<Account> cached = cache.get(clientId, id -> repository.findViewsOfClientAfter(id, CursorUtil.FIRST,
+                new PageRequest(0, cache.getMaxAccountsPerClient() + 1)));
+        List<Account> accounts = cached != null ? pageOf(cached, afterId, pageSize)
+                : repository.findViewsOfClientAfter(clientId, afterId, new PageRequest(0, pageSize + 1));
+        AccountPage page = toPage(accounts, pageSize);
+        log.debug("Find accounts page of client with ID {}, cursor {} : {} accounts", clientId, cursor,
+                page.getAccounts().size());
+        return page;
+    }
+
+    /**
+     * Write all accounts as newline delimited json, one account per line.
+     * Rows are written while the database cursor is read, nothing is collected in memory.
+     *
+     * @param out
+     * @return count of exported accounts
+     * @throws IOException
+     */
+    @Transactional(readOnly = true)
+    public long exportAll(OutputStream out) throws IOException {
+        ObjectWriter writer = objectMapper.writerFor(Account.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.setRootValueSeparator(null);
+
+        long count;
+        try {
+            count = repository.scrollAll(exportFetchSize, accountEntity -> {
+                try {
+                    writer.writeValue(generator, AccountConvertor.toModel(accountEntity));
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        generator.flush();
+        log.info("Export accounts: {} rows", count);
+        return count;
     }
 
     /**
-     * Update list accounts and delete others client's accounts.
+     * Sync client's accounts with the list: delete accounts missing in the list,
+     * update only changed accounts and insert accounts which the client doesn't have yet (with new ids).
      *
      * @param accounts list accounts for update
      * @param clientId client id
      * @return
      */
+    @Transactional
     public List<Account> updateAllAccountsOfClient(List<Account> accounts, Long clientId) {
 
         validations.allAccountsHasClientId(accounts, clientId);
         validations.updateValidations(accounts);
 
-        List<AccountEntity> accountForUpdate = AccountConvertor.toEntities(accounts);
-        List<AccountEntity> accountsForDelete = repository.findByClientId(clientId);
-        accountsForDelete.removeAll(accountForUpdate);
+        Set<Long> keptIds = accounts.stream().map(Account::getId).filter(Objects::nonNull).collect(Collectors.toSet());
+        // kept ids are not bound to a NOT IN, the list of a client with many accounts exceeds bind limits
+        List<Long> deletedIds = repository.findIdsOfClient(clientId).stream()
+                .filter(id -> !keptIds.contains(id))
+                .collect(Collectors.toList());
+        Map<Long, Money> pending = ledger.fence(Sets.union(keptIds, new HashSet<>(deletedIds)));
+        int deleted = deleteAll(deletedIds);
 
-        repository.delete(accountsForDelete);
-        accounts = AccountConvertor.toModels(repository.save(accountForUpdate));
-        log.info("Bulk account update of client with ID {} : {}", clientId, accountsForDelete);
-        return accounts;
+        Map<Long, AccountEntity> existed = new HashMap<>(keptIds.size() * 2);
+        for (List<Long> chunk : Lists.partition(new ArrayList<>(keptIds), idsChunkSize)) {
+            repository.findByClientIdAndIdIn(clientId, chunk).forEach(entity -> existed.put(entity.getId(), entity));
+        }
+        Map<Long, Money> balances = checkSetBalances(accounts, existed, pending);
+
+        List<AccountEntity> result = new ArrayList<>(accounts.size());
+        List<AccountEntity> created = new ArrayList<>();
+        List<AccountEvent> events = new ArrayList<>(accounts.size() + deletedIds.size());
+        deletedIds.forEach(id -> events.add(AccountEvent.deleted(id)));
+        int updated = 0;
+        for (Account account : accounts) {
+            AccountEntity accountEntity = existed.get(account.getId());
+            if (accountEntity == null) {
+                accountEntity = AccountConvertor.toEntity(account);
+                accountEntity.setId(null);
+                created.add(accountEntity);
+            } else if (AccountConvertor.copyChanges(account, accountEntity)) {
+                updated++;
+                Money balance = balances.get(accountEntity.getId());
+                if (balance != null) {
+                    events.add(AccountEvent.updated(accountEntity, balance));
+                }
+            }
+            result.add(accountEntity);
+        }
+        // flushes updates of managed entities before inserts
+        repository.insertAll(created);
+        created.forEach(accountEntity -> events.add(AccountEvent.created(accountEntity)));
+        journal(events);
+        cache.invalidateClient(clientId);
+
+        log.info("Bulk account update of client with ID {} : deleted {}, updated {}, created {}",
+                clientId, deleted, updated, created.size());
+        return AccountConvertor.toModels(result);
     }
 
     /**
+     * Delete all client's accounts, the client may have no accounts.
      *
      * @param clientId
      */
+    @Transactional
     public void deleteAllAccountsOfClient(Long clientId) {
         validations.validateNotNull(clientId, "clientId is null");
-        List<AccountEntity> accountEntities = repository.findByClientId(clientId);
-        repository.delete(accountEntities);
-        log.info("Bulk account delete of client with ID {} : {}", clientId, accountEntities);
+        List<Long> ids = repository.findIdsOfClient(clientId);
+        int deleted = deleteAll(ids);
+        if (deleted > 0) {
+            journal(ids.stream().map(AccountEvent::deleted).collect(Collectors.toList()));
+            cache.invalidateClient(clientId);
+        }
+        log.info("Bulk account delete of client with ID {} : {} accounts", clientId, deleted);
+    }
+
+    /**
+     * Delete accounts by one statement per chunk of ids. The accounts are fenced in the balance ledger first,
+     * so their pending changes are dropped with them and later changes don't find them.
+     *
+     * @param ids account ids
+     * @return count of deleted accounts
+     */
+    private int deleteAll(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        ledger.fence(ids);
+        int deleted = 0;
+        for (List<Long> chunk : Lists.partition(new ArrayList<>(ids), idsChunkSize)) {
+            deleted += repository.deleteAllByIds(chunk);
+        }
+        return deleted;
+    }
+
+    /**
+     * Check new balances of existing accounts, pending ledger changes stay on top of them:
+     * the sum must not be negative and the currency of an account with pending changes must not change.
+     * The journal gets the sum for these accounts, other accounts keep their journaled balance.
+     *
+     * @param accounts new state of accounts
+     * @param existed managed entities of the accounts by id
+     * @param pending pending ledger changes of the fenced accounts by id
+     * @return balances with pending changes of accounts whose balance is set, by id
+     */
+    private static Map<Long, Money> checkSetBalances(List<Account> accounts, Map<Long, AccountEntity> existed,
+                                                     Map<Long, Money> pending) {
+        Map<Long, Money> balances = new HashMap<>();
+        for (Account account : accounts) {
+            AccountEntity accountEntity = existed.get(account.getId());
+            Money balance = Money.of(account.getBalance(), account.getCurrency());
+            if (accountEntity == null || balance.equals(accountEntity.getBalance())) {
+                continue;
+            }
+            Money change = pending.get(account.getId());
+            if (change != null) {
+                if (change.getCurrency() != balance.getCurrency()) {
+                    throw new AccountException(ErrorTypes.business, "Currency of account " + account.getId()
+                            + " can't change while its balance changes are not saved, try again later");
+                }
+                balance = balance.plus(change);
+                if (balance.isNegative()) {
+                    throw new AccountException(ErrorTypes.business, "Balance of account " + account.getId()
+                            + " is less than its not saved withdrawals");
+                }
+            }
+            balances.put(account.getId(), balance);
+        }
+        return balances;
+    }
+
+    /**
+     * Append events of the current transaction to the account journal, changed accounts are fenced in the ledger.
+     */
+    private void journal(List<AccountEvent> events) {
+        journal.appendOnCommit(events);
+    }
+
+    private int pageSize(Integer limit) {
+        if (limit == null) {
+            return Math.min(defaultPageSize, maxPageSize);
+        }
+        if (limit <= 0) {
+            throw new AccountException(ErrorTypes.validation, "Page limit must be positive, limit = " + limit);
+        }
+        return Math.min(limit, maxPageSize);
+    }
+
+    /**
+     * Page is fetched with one extra row, it only tells that the next page exists.
+     */
+    private AccountPage toPage(List<Account> accounts, int pageSize) {
+        String nextCursor = null;
+        if (accounts.size() > pageSize) {
+            accounts = accounts.subList(0, pageSize);
+            nextCursor = CursorUtil.encode(accounts.get(pageSize - 1).getId());
+        }
+        return new AccountPage(accounts, nextCursor);
+    }
+
+    /**
+     * Accounts after the id, with one extra for {@link #toPage}.
+     *
+     * @param accounts ordered by id
+     */
+    private static List<Account> pageOf(List<Account> accounts, long afterId, int pageSize) {
+        int low = 0;
+        int high = accounts.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (accounts.get(middle).getId() <= afterId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return new ArrayList<>(accounts.subList(low, Math.min(low + pageSize + 1, accounts.size())));
+    }
+
+    private static Set<Long> clientIds(List<AccountEntity> accountEntities) {
+        return accountEntities.stream().map(AccountEntity::getClientId).collect(Collectors.toSet());
     }
 
 }
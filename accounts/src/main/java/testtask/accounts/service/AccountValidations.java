@@ -4,11 +4,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import testtask.accounts.validation.BaseValidator;
 import testtask.accounts.exception.AccountException;
+import testtask.accounts.exception.ItemError;
 import testtask.accounts.exception.MicroserviceException;
 import testtask.accounts.model.Account;
+import testtask.accounts.model.BalanceChange;
+import testtask.accounts.model.Transfer;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
@@ -19,6 +25,12 @@ import java.util.Set;
 @Component
 public class AccountValidations extends BaseValidator<Account, AccountException> {
 
+    private static final String NOT_NULL = "may not be null";
+    private static final String NAME_PATTERN = "Only letters numbers and space";
+    private static final String BALANCE_MIN = "The value must be positive";
+    private static final String BALANCE_TOO_BIG = "The value is too big";
+    private static final BigDecimal BALANCE_MAX = new BigDecimal("92233720368547758.07");
+
     private final Validator validator;
 
     @Autowired
@@ -31,19 +43,90 @@ public class AccountValidations extends BaseValidator<Account, AccountException>
 
         validateNotNull(account, "Null Account not allowed");
 
-        Set<ConstraintViolation<Account>> constraintViolations = validator.validate(account);
-        if (!constraintViolations.isEmpty()) {
-            //TODO тут по-хорошему можно бы все ошибки собрать сразу, но это тест.задание, так что будет первая
-            @SuppressWarnings("ConstantConditions")
-            ConstraintViolation<Account> error = constraintViolations.stream().findFirst().get();
-            String info = error.getPropertyPath() + " = " + error.getInvalidValue() + ". " + error.getMessage();
-            throw new AccountException(MicroserviceException.ErrorTypes.validation, info);
+        List<ItemError> errors = new ArrayList<>(1);
+        checkFields(account, 0, errors, true);
+        if (!errors.isEmpty()) {
+            throw new AccountException(MicroserviceException.ErrorTypes.validation, errors.get(0).getMessage());
+        }
+    }
+
+    /**
+     * Collects all field errors of the account, not only the first one.
+     */
+    @Override
+    protected void checkItem(Account account, int index, List<ItemError> errors) {
+        if (account == null) {
+            super.checkItem(null, index, errors);
+            return;
+        }
+        checkFields(account, index, errors, false);
+    }
+
+    /**
+     * Precompiled equivalent of the bean constraints of {@link Account}: no regex and no reflection.
+     * {@code @Digits(integer = 19, fraction = 0)} of clientId holds for any Long.
+     * Messages are the same as of the bean validator.
+     *
+     * @param account
+     * @param index
+     * @param errors
+     * @param firstOnly stop on the first error
+     */
+    void checkFields(Account account, int index, List<ItemError> errors, boolean firstOnly) {
+        if (account.getClientId() == null) {
+            errors.add(fieldError(account, index, "clientId", null, NOT_NULL));
+            if (firstOnly) {
+                return;
+            }
+        }
+        String name = account.getName();
+        if (name == null || !isName(name)) {
+            errors.add(fieldError(account, index, "name", name, name == null ? NOT_NULL : NAME_PATTERN));
+            if (firstOnly) {
+                return;
+            }
+        }
+        BigDecimal balance = account.getBalance();
+        if (balance == null) {
+            errors.add(fieldError(account, index, "balance", null, NOT_NULL));
+        } else if (balance.signum() < 0) {
+            errors.add(fieldError(account, index, "balance", balance, BALANCE_MIN));
+        } else if (balance.compareTo(BALANCE_MAX) > 0) {
+            errors.add(fieldError(account, index, "balance", balance, BALANCE_TOO_BIG));
+        }
+    }
+
+    /**
+     * Same as {@code name.matches("[\\p{L} 0-9]+")}, \p{L} is the letter category of {@link Character#isLetter(int)}.
+     */
+    static boolean isName(String name) {
+        int length = name.length();
+        if (length == 0) {
+            return false;
+        }
+        for (int i = 0; i < length; ) {
+            int codePoint = name.codePointAt(i);
+            if (codePoint != ' ' && (codePoint < '0' || codePoint > '9') && !Character.isLetter(codePoint)) {
+                return false;
+            }
+            i += Character.charCount(codePoint);
         }
+        return true;
+    }
+
+    private static ItemError fieldError(Account account, int index, String field, Object value, String message) {
+        return new ItemError(index, account.getId(), field, field + " = " + value + ". " + message);
+    }
+
+    @Override
+    protected AccountException createException(MicroserviceException.ErrorTypes errorType, String message,
+                                               List<ItemError> itemErrors) {
+        return new AccountException(errorType, message, itemErrors);
     }
 
     @Override
-    protected AccountException createException(MicroserviceException.ErrorTypes errorType, String message) {
-        throw new AccountException(errorType, message.replace("{items}", "accounts").replace("{item}", "{account}"));
+    protected String format(String message) {
+        return message.replace("{items}", "accounts").replace("{item}", "Account");
     }
 
     public void accountHasClientId(Account account, Long clientId) throws AccountException {
@@ -57,4 +140,51 @@ public class AccountValidations extends BaseValidator<Account, AccountException>
         accountList.forEach(account -> accountHasClientId(account, clientId));
     }
 
+    public void validateTransfer(Transfer transfer) throws AccountException {
+        validateNotNull(transfer, "Null Transfer not allowed");
+
+        Set<ConstraintViolation<Transfer>> constraintViolations = validator.validate(transfer);
+        if (!constraintViolations.isEmpty()) {
+            ConstraintViolation<Transfer> error = constraintViolations.iterator().next();
+            String info = error.getPropertyPath() + " = " + error.getInvalidValue() + ". " + error.getMessage();
+            throw new AccountException(MicroserviceException.ErrorTypes.validation, info);
+        }
+        if (transfer.getFromAccountId().equals(transfer.getToAccountId())) {
+            throw new AccountException(MicroserviceException.ErrorTypes.validation,
+                    "Can't transfer to the same account: " + transfer.getFromAccountId());
+        }
+    }
+
+    /**
+     * Validate ids of a batch request.
+     *
+     * @param ids
+     * @param maxSize
+     * @param name name of ids in error messages
+     * @return distinct ids in the order of their first occurrence
+     */
+    public List<Long> validateIds(List<Long> ids, int maxSize, String name) throws AccountException {
+        validateNotNull(ids, name + " is null");
+        if (ids.size() > maxSize) {
+            throw new AccountException(MicroserviceException.ErrorTypes.validation,
+                    "Too many " + name + ": " + ids.size() + ", max " + maxSize);
+        }
+        List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (distinctIds.contains(null)) {
+            throw new AccountException(MicroserviceException.ErrorTypes.validation, name + " contain null");
+        }
+        return distinctIds;
+    }
+
+    public void validateBalanceChange(BalanceChange change) throws AccountException {
+        validateNotNull(change, "Null BalanceChange not allowed");
+        validateNotNull(change.getAccountId(), "Null account id not allowed");
+
+        Set<ConstraintViolation<BalanceChange>> constraintViolations = validator.validate(change);
+        if (!constraintViolations.isEmpty()) {
+            ConstraintViolation<BalanceChange> error = constraintViolations.iterator().next();
+            String info = error.getPropertyPath() + " = " + error.getInvalidValue() + ". " + error.getMessage();
+            throw new AccountException(MicroserviceException.ErrorTypes.validation, info);
+        }
+    }
 }
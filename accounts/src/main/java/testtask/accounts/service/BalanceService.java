@@ -0,0 +1,98 @@
+package testtask.accounts.service;
+
+import com.google.common.collect.Lists;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import testtask.accounts.dao.AccountJdbcDao;
+import testtask.accounts.ledger.BalanceLedger;
+import testtask.accounts.model.BalanceChange;
+import testtask.accounts.model.BalanceSummary;
+import testtask.accounts.model.Money;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Deposits and withdrawals through {@link BalanceLedger}: a change is acknowledged when it is in the local journal,
+ * balances in the database are updated by the ledger flush.
+ * Summaries of client balances are aggregated by the database, so they don't include not flushed changes.
+ */
+@Slf4j
+@Service
+public class BalanceService {
+
+    private final BalanceLedger ledger;
+    private final AccountJdbcDao dao;
+    private final AccountValidations validations;
+
+    @Value("${accounts.by-client-ids.max-size:1000}")
+    private int maxClientIdsSize = 1000;
+
+    @Value("${accounts.by-ids.chunk-size:500}")
+    private int idsChunkSize = 500;
+
+    @Autowired
+    public BalanceService(BalanceLedger ledger, AccountJdbcDao dao, AccountValidations validations) {
+        this.ledger = ledger;
+        this.dao = dao;
+        this.validations = validations;
+    }
+
+    /**
+     * @param change
+     * @return the change with expected balance of the account
+     */
+    public BalanceChange deposit(BalanceChange change) {
+        validations.validateBalanceChange(change);
+        Money balance = ledger.deposit(change.getAccountId(), Money.of(change.getAmount(), change.getCurrency()));
+        change.setBalance(balance.toBigDecimal());
+        log.debug("Deposit: {}", change);
+        return change;
+    }
+
+    /**
+     * @param change
+     * @return the change with expected balance of the account
+     */
+    public BalanceChange withdraw(BalanceChange change) {
+        validations.validateBalanceChange(change);
+        Money balance = ledger.withdraw(change.getAccountId(), Money.of(change.getAmount(), change.getCurrency()));
+        change.setBalance(balance.toBigDecimal());
+        log.debug("Withdraw: {}", change);
+        return change;
+    }
+
+    /**
+     * @param clientId
+     * @return summaries of client's balances by currency, empty if the client has no accounts
+     */
+    public List<BalanceSummary> summarize(Long clientId) {
+        validations.validateNotNull(clientId, "client id is null");
+        List<BalanceSummary> summaries = dao.summarizeBalances(Collections.singletonList(clientId));
+        log.info("Balance summary of client with ID {} : {}", clientId, summaries);
+        return summaries;
+    }
+
+    /**
+     * Summaries of many clients, one aggregate query per chunk of client ids.
+     *
+     * @param clientIds not more than max size
+     * @return summaries by currency grouped by client id in the order of client ids,
+     * a client without accounts has an empty list
+     */
+    public Map<Long, List<BalanceSummary>> summarize(List<Long> clientIds) {
+        List<Long> distinctIds = validations.validateIds(clientIds, maxClientIdsSize, "client ids");
+        Map<Long, List<BalanceSummary>> byClient = new LinkedHashMap<>(distinctIds.size() * 2);
+        distinctIds.forEach(clientId -> byClient.put(clientId, new ArrayList<>()));
+        for (List<Long> chunk : Lists.partition(distinctIds, idsChunkSize)) {
+            dao.summarizeBalances(chunk).forEach(summary -> byClient.get(summary.getClientId()).add(summary));
+        }
+        log.info("Balance summaries of {} clients", distinctIds.size());
+        return byClient;
+    }
+}
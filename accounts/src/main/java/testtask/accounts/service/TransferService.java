@@ -0,0 +1,135 @@
+package testtask.accounts.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import testtask.accounts.cache.ClientAccountsCache;
+import testtask.accounts.dao.AccountConvertor;
+import testtask.accounts.dao.AccountEntity;
+import testtask.accounts.dao.AccountRepository;
+import testtask.accounts.exception.AccountException;
+import testtask.accounts.journal.AccountEvent;
+import testtask.accounts.journal.AccountJournal;
+import testtask.accounts.ledger.BalanceLedger;
+import testtask.accounts.model.Account;
+import testtask.accounts.model.Money;
+import testtask.accounts.model.Transfer;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static testtask.accounts.exception.MicroserviceException.ErrorTypes;
+
+/**
+ * Transfers between accounts.
+ * Both accounts are fenced in {@link BalanceLedger} and locked by select for update in id order,
+ * so transfers on the same accounts are serialized and never deadlock with each other. Other account updates
+ * are checked by the account version. The funds check counts pending ledger withdrawals of the debited account,
+ * pending deposits are spent only when they are flushed, so the balance of a row never goes below zero.
+ * Conflicts (lock timeouts, deadlocks with other writers, version mismatch) are retried in a new transaction
+ * a bounded number of times.
+ */
+@Slf4j
+@Service
+public class TransferService {
+
+    private final AccountRepository repository;
+    private final AccountValidations validations;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountJournal journal;
+    private final ClientAccountsCache cache;
+    private final BalanceLedger ledger;
+
+    @Value("${accounts.transfer.max-attempts:5}")
+    private int maxAttempts = 5;
+
+    @Autowired
+    public TransferService(AccountRepository repository, AccountValidations validations,
+                           PlatformTransactionManager transactionManager, AccountJournal journal,
+                           ClientAccountsCache cache, BalanceLedger ledger) {
+        this.repository = repository;
+        this.validations = validations;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.journal = journal;
+        this.cache = cache;
+        this.ledger = ledger;
+    }
+
+    /**
+     * Debit one account and credit another in one transaction.
+     *
+     * @param transfer
+     * @return debited and credited accounts after transfer
+     */
+    public List<Account> transfer(Transfer transfer) {
+        validations.validateTransfer(transfer);
+        Money amount = Money.of(transfer.getAmount(), transfer.getCurrency());
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                List<Account> accounts = transactionTemplate.execute(status -> doTransfer(transfer, amount));
+                log.info("Transfer {} done, attempt {}", transfer, attempt);
+                return accounts;
+            } catch (ConcurrencyFailureException e) {
+                if (attempt >= maxAttempts) {
+                    log.warn("Transfer {} failed after {} attempts", transfer, attempt, e);
+                    throw new AccountException(ErrorTypes.business,
+                            "Transfer conflicts with other updates of accounts, try again later");
+                }
+                backoff(attempt);
+            }
+        }
+    }
+
+    private List<Account> doTransfer(Transfer transfer, Money amount) {
+        List<Long> ids = Arrays.asList(transfer.getFromAccountId(), transfer.getToAccountId());
+        Map<Long, Money> pending = ledger.fence(ids);
+        List<AccountEntity> locked = repository.findForUpdate(ids);
+        AccountEntity from = find(locked, transfer.getFromAccountId());
+        AccountEntity to = find(locked, transfer.getToAccountId());
+
+        if (from.getCurrency() != amount.getCurrency() || to.getCurrency() != amount.getCurrency()) {
+            throw new AccountException(ErrorTypes.business, "Currency of accounts " + from.getCurrency()
+                    + " and " + to.getCurrency() + " doesn't match transfer currency " + amount.getCurrency());
+        }
+        Money rest = from.getBalance().minus(amount);
+        Money withdrawn = pending.get(from.getId());
+        if (rest.isNegative() || withdrawn != null && rest.plus(withdrawn).isNegative()) {
+            throw new AccountException(ErrorTypes.business,
+                    "Not enough money on account " + from.getId() + " for transfer of " + amount);
+        }
+        from.setBalance(rest);
+        to.setBalance(to.getBalance().plus(amount));
+        List<AccountEvent> events = Arrays.asList(AccountEvent.balanceChanged(from.getId(), amount.negate()),
+                AccountEvent.balanceChanged(to.getId(), amount));
+        journal.appendOnCommit(events);
+        cache.invalidateClients(Arrays.asList(from.getClientId(), to.getClientId()));
+        return Arrays.asList(AccountConvertor.toModel(from), AccountConvertor.toModel(to));
+    }
+
+    private static AccountEntity find(List<AccountEntity> accounts, Long id) {
+        return accounts.stream()
+                .filter(accountEntity -> accountEntity.getId().equals(id))
+                .findFirst()
+                .orElseThrow(() -> new AccountException(ErrorTypes.not_found, id));
+    }
+
+    /**
+     * Random pause growing with attempts, so conflicting transactions don't retry in lockstep.
+     */
+    private static void backoff(int attempt) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(1L << Math.min(attempt, 6)));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AccountException(ErrorTypes.other, "Transfer interrupted");
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package testtask.accounts.util;
+
+import testtask.accounts.exception.AccountException;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+import static testtask.accounts.exception.MicroserviceException.ErrorTypes;
+
+/**
+ * Opaque keyset cursors: the last seen account id packed to url safe base64.
+ */
+public class CursorUtil {
+
+    /**
+     * Keyset start, every account id is greater.
+     */
+    public static final long FIRST = Long.MIN_VALUE;
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    /**
+     *
+     * @param lastId id of the last account on the page
+     * @return
+     */
+    public static String encode(long lastId) {
+        return ENCODER.encodeToString(ByteBuffer.allocate(Long.BYTES).putLong(lastId).array());
+    }
+
+    /**
+     *
+     * @param cursor cursor from the previous page, null for the first page
+     * @return id after which the next page starts
+     * @throws AccountException when cursor is malformed
+     */
+    public static long decode(String cursor) throws AccountException {
+        if (cursor == null || cursor.isEmpty()) {
+            return FIRST;
+        }
+        try {
+            byte[] bytes = DECODER.decode(cursor);
+            if (bytes.length != Long.BYTES) {
+                throw new IllegalArgumentException("Wrong cursor length");
+            }
+            return ByteBuffer.wrap(bytes).getLong();
+        } catch (IllegalArgumentException e) {
+            throw new AccountException(ErrorTypes.validation, "Invalid cursor: " + cursor);
+        }
+    }
+}
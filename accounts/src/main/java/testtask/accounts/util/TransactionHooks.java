@@ -0,0 +1,84 @@
+package testtask.accounts.util;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Consumer;
+
+/**
+ * Actions bound to the outcome of the current transaction.
+ */
+@Slf4j
+public class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * Run the action after commit of the current transaction, or right now when there is no transaction.
+     * The action isn't run if the transaction is rolled back.
+     * The data is already committed when the action runs, so its failure is only logged.
+     *
+     * @param action
+     */
+    public static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            run(action);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                run(action);
+            }
+        });
+    }
+
+    /**
+     * Run the action when the current transaction is completed, after its after commit actions.
+     * Unlike {@link #afterCommit} the action runs after rollback too, so it can release what the transaction holds.
+     *
+     * @param action gets true if the transaction is committed
+     * @throws IllegalStateException when there is no transaction
+     */
+    public static void afterCompletion(Consumer<Boolean> action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("No transaction to wait for");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCompletion(int status) {
+                run(() -> action.accept(status == STATUS_COMMITTED));
+            }
+        });
+    }
+
+    /**
+     * Write changes of entity managers of the current transaction to the database,
+     * so the commit doesn't run statements any more. Exceptions are translated as on commit.
+     */
+    public static void flushEntityManagers() {
+        for (Object resource : TransactionSynchronizationManager.getResourceMap().values()) {
+            if (resource instanceof EntityManagerHolder) {
+                try {
+                    ((EntityManagerHolder) resource).getEntityManager().flush();
+                } catch (RuntimeException e) {
+                    DataAccessException translated = EntityManagerFactoryUtils.convertJpaAccessExceptionIfPossible(e);
+                    throw translated != null ? translated : e;
+                }
+            }
+        }
+    }
+
+    private static void run(Runnable action) {
+        try {
+            action.run();
+        } catch (RuntimeException e) {
+            log.error("Action after transaction failed", e);
+        }
+    }
+}
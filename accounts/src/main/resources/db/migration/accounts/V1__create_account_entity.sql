@@ -0,0 +1,11 @@
+create table account_entity (
+    id bigint not null,
+    client_id bigint,
+    name varchar(255),
+    balance numeric(19, 2),
+    currency varchar(3),
+    primary key (id)
+);
+
+-- client's accounts by client_id and keyset pages ordered by id, read from the index only
+create index account_client_list_idx on account_entity (client_id, id, currency, balance, name);
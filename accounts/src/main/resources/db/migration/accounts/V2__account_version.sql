@@ -0,0 +1,2 @@
+-- optimistic lock of account updates
+alter table account_entity add column version bigint default 0 not null;
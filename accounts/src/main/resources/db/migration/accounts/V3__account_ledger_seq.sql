@@ -0,0 +1,2 @@
+-- last balance ledger record applied to the account, makes ledger replay idempotent
+alter table account_entity add column ledger_seq bigint default 0 not null;
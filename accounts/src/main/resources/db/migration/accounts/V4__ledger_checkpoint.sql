@@ -0,0 +1,17 @@
+-- ledger sequences belong to the journal of one instance, a row can't tell which journal its sequence came from
+alter table account_entity drop column ledger_seq;
+
+-- ledger changes of the journal up to flushed_seq are in the balances, except changes of held accounts
+create table ledger_checkpoint (
+    journal_id varchar(36) not null,
+    flushed_seq bigint not null,
+    primary key (journal_id)
+);
+
+-- accounts held by a transaction at the checkpoint, their changes from first_seq are not in the balances yet
+create table ledger_held_account (
+    journal_id varchar(36) not null,
+    account_id bigint not null,
+    first_seq bigint not null,
+    primary key (journal_id, account_id)
+);
@@ -0,0 +1,96 @@
+package testtask.accounts.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import testtask.accounts.AccountsApplication;
+import testtask.accounts.dao.AccountConvertor;
+import testtask.accounts.dao.AccountEntity;
+import testtask.accounts.dao.AccountRepository;
+import testtask.accounts.model.Account;
+import testtask.accounts.model.Currency;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static testtask.accounts.TestHelper.createAccount;
+
+/**
+ * Bulk insert of accounts: one save per entity (CrudRepository.save(Iterable))
+ * against jdbc batched persist with pooled ids (AccountRepository.insertAll).
+ * Runs against in-memory H2 from test properties, where a round trip is almost free,
+ * so on a network database the difference is much bigger.
+ *
+ * Run by the main method from the IDE or with exec:java in the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AccountBulkInsertBenchmark {
+
+    @Param({"100", "1000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private AccountRepository repository;
+    private TransactionTemplate transaction;
+    private List<Account> accounts;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = new SpringApplicationBuilder(AccountsApplication.class).web(false).run();
+        repository = context.getBean(AccountRepository.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        accounts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            accounts.add(createAccount(i, Currency.USD, (long) (i % 10), "Bench " + i));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void clean() {
+        repository.deleteAll();
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public Iterable<AccountEntity> saveOneByOne() {
+        return transaction.execute(status -> repository.save(AccountConvertor.toEntities(accounts)));
+    }
+
+    @Benchmark
+    public List<AccountEntity> insertByBatches() {
+        return transaction.execute(status -> repository.insertAll(AccountConvertor.toEntities(accounts)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AccountBulkInsertBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,120 @@
+package testtask.accounts.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import testtask.accounts.dao.AccountEntity;
+import testtask.accounts.dao.AccountMapper;
+import testtask.accounts.model.Account;
+import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static testtask.accounts.TestHelper.createAccount;
+
+/**
+ * Account list conversions: the generated {@link AccountMapper} against the former hand-written
+ * AccountConvertor, which filled a default sized list by forEach lambdas.
+ * The gc profiler reports allocation per operation (gc.alloc.rate.norm).
+ *
+ * Run by the main method from the IDE or with exec:java in the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AccountMapperBenchmark {
+
+    @Param({"1", "100", "100000"})
+    private int size;
+
+    private List<Account> accounts;
+    private List<AccountEntity> accountEntities;
+
+    @Setup(Level.Trial)
+    public void createData() {
+        accounts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Account account = createAccount((long) i, i, Currency.USD, (long) (i % 10), "Bench " + i);
+            account.setVersion(0L);
+            accounts.add(account);
+        }
+        accountEntities = legacyToEntities(accounts);
+    }
+
+    @Benchmark
+    public List<Account> legacyToModels() {
+        return legacyToModels(accountEntities);
+    }
+
+    @Benchmark
+    public List<Account> mapperToModels() {
+        return AccountMapper.INSTANCE.toModels(accountEntities);
+    }
+
+    @Benchmark
+    public List<AccountEntity> legacyToEntities() {
+        return legacyToEntities(accounts);
+    }
+
+    @Benchmark
+    public List<AccountEntity> mapperToEntities() {
+        return AccountMapper.INSTANCE.toEntities(accounts);
+    }
+
+    private static List<Account> legacyToModels(Iterable<AccountEntity> accountEntityList) {
+        List<Account> accountList = new ArrayList<>();
+        accountEntityList.forEach(accountEntity -> {
+            Account account = new Account();
+            account.setId(accountEntity.getId());
+            Money balance = accountEntity.getBalance();
+            if (balance != null) {
+                account.setBalance(balance.toBigDecimal());
+                account.setCurrency(balance.getCurrency());
+            }
+            account.setClientId(accountEntity.getClientId());
+            account.setName(accountEntity.getName());
+            account.setVersion(accountEntity.getVersion());
+            accountList.add(account);
+        });
+        return accountList;
+    }
+
+    private static List<AccountEntity> legacyToEntities(Iterable<Account> accountList) {
+        List<AccountEntity> entityList = new ArrayList<>();
+        accountList.forEach(account -> {
+            AccountEntity accountEntity = new AccountEntity();
+            accountEntity.setId(account.getId());
+            accountEntity.setBalance(Money.of(account.getBalance(), account.getCurrency()));
+            accountEntity.setClientId(account.getClientId());
+            accountEntity.setName(account.getName());
+            entityList.add(accountEntity);
+        });
+        return entityList;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AccountMapperBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,127 @@
+package testtask.accounts.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import testtask.accounts.AccountsApplication;
+import testtask.accounts.dao.AccountConvertor;
+import testtask.accounts.dao.AccountEntity;
+import testtask.accounts.dao.AccountRepository;
+import testtask.accounts.model.Account;
+import testtask.accounts.model.Currency;
+import testtask.accounts.util.CursorUtil;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static testtask.accounts.TestHelper.createAccount;
+
+/**
+ * Read of account pages: managed entities copied by AccountConvertor against
+ * constructor expression projections (AccountRepository.findViews*), both in read only transactions.
+ * The whole table is one page of one client, so both queries read all rows.
+ * The gc profiler reports allocation per operation (gc.alloc.rate.norm).
+ *
+ * Run by the main method from the IDE or with exec:java in the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AccountReadBenchmark {
+
+    private static final long CLIENT_ID = 1L;
+
+    @Param({"10000"})
+    private int size;
+
+    private ConfigurableApplicationContext context;
+    private AccountRepository repository;
+    private EntityManager entityManager;
+    private TransactionTemplate transaction;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = new SpringApplicationBuilder(AccountsApplication.class).web(false).run();
+        repository = context.getBean(AccountRepository.class);
+        entityManager = SharedEntityManagerCreator.createSharedEntityManager(
+                context.getBean(EntityManagerFactory.class));
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        transaction.setReadOnly(true);
+        List<Account> accounts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            accounts.add(createAccount(i, Currency.USD, CLIENT_ID, "Bench " + i));
+        }
+        new TransactionTemplate(context.getBean(PlatformTransactionManager.class))
+                .execute(status -> repository.insertAll(AccountConvertor.toEntities(accounts)));
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        repository.deleteAll();
+        context.close();
+    }
+
+    @Benchmark
+    public List<Account> getAllEntities() {
+        return transaction.execute(status -> AccountConvertor.toModels(entityManager
+                .createQuery("select a from AccountEntity a where a.id > :afterId order by a.id", AccountEntity.class)
+                .setParameter("afterId", CursorUtil.FIRST)
+                .setMaxResults(size)
+                .getResultList()));
+    }
+
+    @Benchmark
+    public List<Account> getAllProjection() {
+        return transaction.execute(status -> repository.findViewsAfter(CursorUtil.FIRST, new PageRequest(0, size)));
+    }
+
+    @Benchmark
+    public List<Account> findByClientIdEntities() {
+        return transaction.execute(status -> AccountConvertor.toModels(entityManager
+                .createQuery("select a from AccountEntity a where a.clientId = :clientId and a.id > :afterId"
+                        + " order by a.id", AccountEntity.class)
+                .setParameter("clientId", CLIENT_ID)
+                .setParameter("afterId", CursorUtil.FIRST)
+                .setMaxResults(size)
+                .getResultList()));
+    }
+
+    @Benchmark
+    public List<Account> findByClientIdProjection() {
+        return transaction.execute(status -> repository.findViewsOfClientAfter(CLIENT_ID, CursorUtil.FIRST,
+                new PageRequest(0, size)));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AccountReadBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,64 @@
+package testtask.accounts.cache;
+
+import org.junit.Test;
+import testtask.accounts.model.Account;
+import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ClientAccountsCacheTests {
+
+    private final ClientAccountsCache cache = new ClientAccountsCache(1_000, 2, 600);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void clientWithTooManyAccountsIsLoadedOnce() {
+        assertThat(cache.get(1L, id -> load(id, 10, 11, 12))).isNull();
+        assertThat(cache.get(1L, id -> load(id, 10, 11, 12))).isNull();
+        assertThat(loads.get()).isEqualTo(1);
+
+        cache.invalidateClient(1L);
+        assertThat(cache.get(1L, id -> load(id, 10))).hasSize(1);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void invalidationOfOtherAccountsDoesNotDiscardLoad() {
+        List<Account> accounts = cache.get(1L, id -> {
+            cache.invalidateAccounts(Collections.singleton(20L));
+            return load(id, 10, 11);
+        });
+
+        assertThat(accounts).hasSize(2);
+        assertThat(cache.get(1L, id -> load(id, 10, 11))).isSameAs(accounts);
+        assertThat(loads.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void loadIsNotCachedWhenItsAccountIsInvalidated() {
+        List<Account> accounts = cache.get(1L, id -> {
+            List<Account> loaded = load(id, 10, 11);
+            cache.invalidateAccounts(Collections.singleton(11L));
+            return loaded;
+        });
+
+        assertThat(accounts).isNull();
+        assertThat(cache.get(1L, id -> load(id, 10))).hasSize(1);
+        assertThat(loads.get()).isEqualTo(2);
+    }
+
+    private List<Account> load(Long clientId, long... accountIds) {
+        loads.incrementAndGet();
+        List<Account> accounts = new ArrayList<>();
+        for (long accountId : accountIds) {
+            accounts.add(new Account(accountId, clientId, "a" + accountId, Money.parse("1", Currency.USD), 0L));
+        }
+        return accounts;
+    }
+}
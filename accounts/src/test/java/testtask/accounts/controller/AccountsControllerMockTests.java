@@ -1,5 +1,7 @@
 package testtask.accounts.controller;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -8,6 +10,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.boot.test.json.JacksonTester;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
@@ -17,9 +20,17 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import testtask.accounts.AccountsApplication;
 import testtask.accounts.exception.AccountExceptionHandler;
 import testtask.accounts.model.Account;
+import testtask.accounts.model.AccountPage;
+import testtask.accounts.model.AccountsByIds;
 import testtask.accounts.model.Currency;
+import testtask.accounts.model.Transfer;
 import testtask.accounts.service.AccountService;
+import testtask.accounts.service.BalanceService;
+import testtask.accounts.serializator.ObjectMappers;
+import testtask.accounts.serializator.SmileHttpMessageConverter;
+import testtask.accounts.service.TransferService;
 
+import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
 
@@ -30,6 +41,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.
 import static testtask.accounts.TestHelper.*;
 import testtask.accounts.exception.AccountException;
 import testtask.accounts.exception.ApiErrorDto;
+import testtask.accounts.exception.MicroserviceException;
 
 /**
  *
@@ -45,12 +57,19 @@ public class AccountsControllerMockTests {
     @Mock
     private AccountService service;
 
+    @Mock
+    private TransferService transferService;
+
+    @Mock
+    private BalanceService balanceService;
+
     @InjectMocks
     private AccountsController controller;
 
     private JacksonTester<Account> accountJTester;
     private JacksonTester<List<Account>> listAccountJTester;
     private JacksonTester<ApiErrorDto> errorDtoJTester;
+    private JacksonTester<Transfer> transferJTester;
 
     @Before
     public void init() {
@@ -59,7 +78,8 @@ public class AccountsControllerMockTests {
 
         mockMvc = MockMvcBuilders.standaloneSetup(controller)
                 .setControllerAdvice(new AccountExceptionHandler()) // Init Exception Handler
-                .setMessageConverters(new MappingJackson2HttpMessageConverter(AccountsApplication.serializingObjectMapper()))// init custom serializator
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(AccountsApplication.serializingObjectMapper()),// init custom serializator
+                        new SmileHttpMessageConverter())
                 .build();
     }
 
@@ -81,13 +101,60 @@ public class AccountsControllerMockTests {
         assertThat(findAccount).isEqualTo(account);
     }
 
+    @Test
+    public void notModifiedWhenAccountVersionMatches() throws Exception {
+        // given
+        final Account account = createAccount(1L, 535234.64, Currency.RUB, 55L, "Deposit Rub");
+        account.setVersion(3L);
+        BDDMockito.given(service.get(1L)).willReturn(account);
+        String eTag = mockMvc.perform(get(URL + "/1")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // when
+        MockHttpServletResponse response = mockMvc.perform(get(URL + "/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andDo(print())
+                .andReturn().getResponse();
+
+        // then
+        assertThat(eTag).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+        assertThat(response.getContentAsString()).isEmpty();
+
+        // and the next version is sent again
+        account.setVersion(4L);
+        response = mockMvc.perform(get(URL + "/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andReturn().getResponse();
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNotEqualTo(eTag);
+    }
+
+    @Test
+    public void notModifiedWhenClientAccountsPageMatches() throws Exception {
+        // given
+        final Account account = createAccount(111L, 3456.34, Currency.USD, 1L, "Account Main");
+        account.setVersion(0L);
+        BDDMockito.given(service.findByClientId(1L, null, null))
+                .willReturn(new AccountPage(Arrays.asList(account), null));
+        String eTag = mockMvc.perform(get(URL + "/ClientId/1")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // when
+        MockHttpServletResponse response = mockMvc.perform(get(URL + "/ClientId/1")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andDo(print())
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+        assertThat(response.getContentAsString()).isEmpty();
+    }
+
     @Test
     public void findAccountsByClientId() throws Exception {
         // given
         final long clientId = 1L;
         final Account account1 = createAccount(111L, 3456.34, Currency.USD, clientId, "Account Main");
         final Account account2 = createAccount(222L, 124234.6, Currency.RUB, clientId, "Deposit One");
-        BDDMockito.given(service.findByClientId(clientId)).willReturn(Arrays.asList(account1, account2));
+        BDDMockito.given(service.findByClientId(clientId, null, null))
+                .willReturn(new AccountPage(Arrays.asList(account1, account2), null));
 
         // when
         MockHttpServletResponse response = mockMvc.perform(get(URL + "/ClientId/" + clientId))
@@ -98,12 +165,69 @@ public class AccountsControllerMockTests {
         assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
         assertThat(response.getContentType()).isEqualTo(MediaType.APPLICATION_JSON_UTF8_VALUE);
 
+        assertThat(response.getHeader(AccountPage.NEXT_CURSOR_HEADER)).isNull();
+
         List<Account> accounts = listAccountJTester.parseObject(response.getContentAsString());
         assertThat(accounts).isNotNull().isNotEmpty();
         assertThat(accounts).containsExactlyInAnyOrder(account1, account2);
 
     }
 
+    @Test
+    public void findAccountsByIds() throws Exception {
+        // given
+        final Account account = createAccount(222L, 124234.6, Currency.RUB, 1L, "Deposit One");
+        BDDMockito.given(service.findByIds(Arrays.asList(222L, 111L)))
+                .willReturn(new AccountsByIds(Arrays.asList(account), Arrays.asList(111L)));
+
+        // when
+        MockHttpServletResponse response = mockMvc.perform(get(URL).param("ids", "222,111"))
+                .andDo(print())
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentAsString()).contains("\"missingIds\":[111]");
+        BDDMockito.verify(service, BDDMockito.never()).getAll(any(), any());
+    }
+
+    @Test
+    public void getNextCursorHeaderWhenAccountsPageIsNotLast() throws Exception {
+        // given
+        final Account account = createAccount(111L, 3456.34, Currency.USD, 1L, "Account Main");
+        BDDMockito.given(service.getAll("cursor1", 1))
+                .willReturn(new AccountPage(Arrays.asList(account), "cursor2"));
+
+        // when
+        MockHttpServletResponse response = mockMvc.perform(get(URL).param("cursor", "cursor1").param("limit", "1"))
+                .andDo(print())
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getHeader(AccountPage.NEXT_CURSOR_HEADER)).isEqualTo("cursor2");
+        assertThat(listAccountJTester.parseObject(response.getContentAsString())).containsExactly(account);
+    }
+
+    @Test
+    public void getConflictWhenTransferFails() throws Exception {
+        // given
+        final Transfer transfer = new Transfer(1L, 2L, new BigDecimal("10.5"), Currency.USD);
+        BDDMockito.given(transferService.transfer(transfer))
+                .willThrow(new AccountException(MicroserviceException.ErrorTypes.business, "Not enough money"));
+
+        // when
+        MockHttpServletResponse response = mockMvc.perform(post(URL + "/transfers")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(transferJTester.write(transfer).getJson()))
+                .andDo(print())
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.CONFLICT.value());
+        assertThat(errorDtoJTester.parseObject(response.getContentAsString()).getMessage()).isEqualTo("Not enough money");
+    }
+
     @Test
     public void getBadRequestErrorThenGetAccountByNullClientId() throws Exception {
 
@@ -187,4 +311,47 @@ public class AccountsControllerMockTests {
         assertThat(accountsUpdates).isEqualTo(accounts);
     }
 
+    @Test
+    public void listIsExchangedAsSmileWhenAccepted() throws Exception {
+        // given
+        final List<Account> accounts = createAccountsNotNullIdList();
+        BDDMockito.given(service.create(anyList())).willReturn(accounts);
+        ObjectMapper smile = ObjectMappers.smile();
+        TypeReference<List<Account>> listType = new TypeReference<List<Account>>() {
+        };
+
+        // when
+        MockHttpServletResponse response = mockMvc.perform(
+                post(URL + "/list")
+                        .contentType(SmileHttpMessageConverter.APPLICATION_SMILE)
+                        .accept(SmileHttpMessageConverter.APPLICATION_SMILE, MediaType.valueOf("application/json;q=0.9"))
+                        .content(smile.writeValueAsBytes(createAccountsNullIdsList())))
+                .andReturn().getResponse();
+
+        // then
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentType()).startsWith(SmileHttpMessageConverter.APPLICATION_SMILE_VALUE);
+        List<Account> created = smile.readValue(response.getContentAsByteArray(), listType);
+        assertThat(created).isEqualTo(accounts);
+    }
+
+    @Test
+    public void errorIsSmileWhenAcceptedAndJsonIsDefault() throws Exception {
+        // given
+        BDDMockito.given(service.get(1L)).willThrow(new AccountException(MicroserviceException.ErrorTypes.validation,
+                "Invalid"));
+
+        // when
+        MockHttpServletResponse smileResponse = mockMvc.perform(get(URL + "/1")
+                .accept(SmileHttpMessageConverter.APPLICATION_SMILE)).andReturn().getResponse();
+        MockHttpServletResponse anyResponse = mockMvc.perform(get(URL + "/1")
+                .accept(MediaType.ALL)).andReturn().getResponse();
+
+        // then
+        assertThat(smileResponse.getContentType()).startsWith(SmileHttpMessageConverter.APPLICATION_SMILE_VALUE);
+        assertThat(ObjectMappers.smile().readValue(smileResponse.getContentAsByteArray(), ApiErrorDto.class)
+                .getMessage()).isEqualTo("Invalid");
+        assertThat(anyResponse.getContentType()).startsWith(MediaType.APPLICATION_JSON_VALUE);
+        assertThat(errorDtoJTester.parseObject(anyResponse.getContentAsString()).getMessage()).isEqualTo("Invalid");
+    }
 }
@@ -16,6 +16,7 @@ import org.springframework.test.context.TestPropertySource;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import testtask.accounts.AccountsApplication;
+import testtask.accounts.dao.AccountRepository;
 import testtask.accounts.exception.AccountException;
 import testtask.accounts.exception.ApiErrorDto;
 import testtask.accounts.model.Account;
@@ -23,6 +24,9 @@ import testtask.accounts.model.Currency;
 import testtask.accounts.service.AccountService;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
@@ -45,12 +49,16 @@ public class AccountsControllerTest {
     private MockMvc mockMvc;
 
     private JacksonTester<ApiErrorDto> jacksonErrorTester;
+    private JacksonTester<Account> jacksonAccountTester;
 
     private Account account;
 
     @Autowired
     private AccountService accountService;
 
+    @Autowired
+    private AccountRepository accountRepository;
+
     @Before
     public void init() {
         // initialize jacksonTester
@@ -110,4 +118,33 @@ public class AccountsControllerTest {
 
     }
 
+    @Test
+    public void exportAllAccountsAsNdjson() throws Exception {
+        MockHttpServletResponse response = mockMvc
+                .perform(get("/accounts/export"))
+                .andReturn().getResponse();
+
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        assertThat(response.getContentType()).startsWith(AccountsController.APPLICATION_NDJSON_VALUE);
+
+        String content = response.getContentAsString();
+        assertThat(content).endsWith("\n");
+        List<String> lines = Arrays.asList(content.split("\n"));
+        assertThat(lines).hasSize((int) accountRepository.count());
+
+        List<Account> exported = lines.stream().map(line -> {
+            try {
+                return jacksonAccountTester.parseObject(line);
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }).collect(Collectors.toList());
+        assertThat(exported).extracting(Account::getId).isSorted();
+        assertThat(exported).contains(account);
+
+        // same balance format as the rest api
+        assertThat(lines.stream().filter(line -> line.contains("\"id\":" + account.getId() + ",")).findFirst().get())
+                .contains("\"balance\":100.2,");
+    }
+
 }
@@ -0,0 +1,78 @@
+package testtask.accounts.dao;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import testtask.accounts.dao.AccountJdbcDao.BalanceDelta;
+import testtask.accounts.dao.AccountJdbcDao.LedgerCheckpoint;
+import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
+import testtask.accounts.statistics.CacheStatisticsEndpoint;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class AccountEntityCacheIntegrationTests {
+
+    @Autowired
+    private AccountRepository repository;
+
+    @Autowired
+    private AccountJdbcDao dao;
+
+    @Autowired
+    private CacheStatisticsEndpoint statistics;
+
+    /* Test Data */
+    private AccountEntity account;
+
+    @Before
+    public void init() {
+        account = new AccountEntity();
+        account.setBalance(Money.of(new BigDecimal("100.00"), Currency.USD));
+        account.setClientId(97L);
+        account.setName("Cached");
+        account = repository.save(account);
+    }
+
+    @After
+    public void clear() {
+        repository.deleteAll();
+    }
+
+    @Test
+    public void accountIsReadFromSecondLevelCache() {
+        long hits = regionCount("hits");
+
+        repository.findOne(account.getId());
+        repository.findOne(account.getId());
+
+        assertThat(regionCount("hits")).isGreaterThanOrEqualTo(hits + 2);
+    }
+
+    @Test
+    public void jdbcBalanceUpdateEvictsAccount() {
+        repository.findOne(account.getId());
+
+        dao.addToBalances(Collections.singletonList(new BalanceDelta(account.getId(), 2550, Currency.USD)),
+                "cache-test", new LedgerCheckpoint(0, Collections.emptyMap()));
+
+        assertThat(repository.findOne(account.getId()).getBalance())
+                .isEqualTo(Money.of(new BigDecimal("125.50"), Currency.USD));
+    }
+
+    @SuppressWarnings("unchecked")
+    private long regionCount(String name) {
+        Map<String, Object> regions = (Map<String, Object>) statistics.invoke().get("regions");
+        return (Long) ((Map<String, Object>) regions.get(AccountEntity.CACHE_REGION)).get(name);
+    }
+}
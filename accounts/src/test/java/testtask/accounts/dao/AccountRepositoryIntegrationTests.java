@@ -0,0 +1,69 @@
+package testtask.accounts.dao;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.support.TransactionTemplate;
+import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class AccountRepositoryIntegrationTests {
+
+    @Autowired
+    private AccountRepository repository;
+
+    @Autowired
+    private TransactionTemplate transaction;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @After
+    public void clear() {
+        repository.deleteAll();
+    }
+
+    @Test
+    public void insertAllKeepsEntitiesOfCallerManaged() {
+        Long id = repository.save(newAccount("Loaded")).getId();
+
+        transaction.execute(status -> {
+            AccountEntity loaded = repository.findOne(id);
+            List<AccountEntity> created = new ArrayList<>();
+            for (int i = 0; i < 120; i++) {
+                created.add(newAccount("Inserted " + i));
+            }
+
+            repository.insertAll(created);
+            loaded.setName("Renamed");
+
+            assertThat(entityManager.contains(loaded)).isTrue();
+            assertThat(created.stream().noneMatch(entityManager::contains)).isTrue();
+            return null;
+        });
+
+        assertThat(repository.findOne(id).getName()).isEqualTo("Renamed");
+        assertThat(repository.count()).isEqualTo(121);
+    }
+
+    private static AccountEntity newAccount(String name) {
+        AccountEntity entity = new AccountEntity();
+        entity.setBalance(Money.of(new BigDecimal("10.00"), Currency.USD));
+        entity.setClientId(96L);
+        entity.setName(name);
+        return entity;
+    }
+}
@@ -0,0 +1,40 @@
+package testtask.accounts.dao;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that migrated schema serves the hot account queries by the index.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class AccountSchemaIntegrationTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void findByClientIdUsesClientIndex() {
+        assertThat(explain("select id, client_id, name, balance, currency from account_entity where client_id = 81"))
+                .containsIgnoringCase(AccountEntity.CLIENT_LIST_INDEX);
+    }
+
+    @Test
+    public void clientPageSeeksClientIndexByClientAndId() {
+        String plan = explain("select id, client_id, name, balance, currency from account_entity"
+                + " where client_id = 81 and id > 100 order by id limit 101");
+
+        // both conditions of keyset page are the index range, not a filter
+        assertThat(plan).containsPattern("(?i)" + AccountEntity.CLIENT_LIST_INDEX + ": CLIENT_ID = 81\\s+AND ID > 100");
+    }
+
+    private String explain(String sql) {
+        return jdbcTemplate.queryForObject("explain " + sql, String.class);
+    }
+}
@@ -0,0 +1,277 @@
+package testtask.accounts.journal;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import testtask.accounts.dao.AccountEntity;
+import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountJournalTests {
+
+    private static final long SEGMENT_SIZE = AccountJournal.RECORD_SIZE * 4;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private final AtomicLong clock = new AtomicLong(1_000);
+    private Path dir;
+    private AccountJournal journal;
+
+    @Before
+    public void init() throws IOException {
+        dir = folder.newFolder("journal").toPath();
+        journal = open();
+    }
+
+    @After
+    public void clear() {
+        journal.close();
+    }
+
+    @Test
+    public void replayAppliesAllEvents() throws IOException {
+        append(AccountEvent.created(account(1, 10, "100")), AccountEvent.created(account(2, 10, "5")));
+        append(AccountEvent.balanceChanged(1, usd("-20.50")));
+        append(AccountEvent.updated(account(2, 11, "7")));
+        append(AccountEvent.created(account(3, 11, "1")), AccountEvent.deleted(3));
+
+        JournalState state = journal.replay(Long.MAX_VALUE);
+
+        assertThat(state.getSeq()).isEqualTo(6);
+        assertThat(state.getAccounts()).containsOnlyKeys(1L, 2L);
+        assertThat(state.get(1).getBalance()).isEqualTo(usd("79.50"));
+        assertThat(state.get(2).getClientId()).isEqualTo(11);
+        assertThat(state.get(2).getBalance()).isEqualTo(usd("7"));
+    }
+
+    @Test
+    public void clientDeletedRemovesOnlyCurrentAccountsOfClient() throws IOException {
+        append(AccountEvent.created(account(1, 10, "1")), AccountEvent.created(account(2, 10, "1")),
+                AccountEvent.created(account(3, 20, "1")));
+        // moved to the other client before the delete
+        append(AccountEvent.updated(account(2, 20, "1")));
+        append(AccountEvent.clientDeleted(10));
+
+        assertThat(journal.replay(Long.MAX_VALUE).getAccounts()).containsOnlyKeys(2L, 3L);
+    }
+
+    @Test
+    public void replayStopsAtTime() throws IOException {
+        append(AccountEvent.created(account(1, 10, "100")));
+        clock.set(2_000);
+        append(AccountEvent.balanceChanged(1, usd("1")));
+        clock.set(3_000);
+        append(AccountEvent.balanceChanged(1, usd("10")));
+
+        assertThat(journal.replay(999).getAccounts()).isEmpty();
+        assertThat(journal.replay(2_500).get(1).getBalance()).isEqualTo(usd("101"));
+        assertThat(journal.replay(2_500).getTime()).isEqualTo(2_000);
+        assertThat(journal.replay(3_000).get(1).getBalance()).isEqualTo(usd("111"));
+    }
+
+    @Test
+    public void replayStartsFromSnapshotBeforeTime() throws IOException {
+        for (int i = 1; i <= 10; i++) {
+            clock.set(i * 1_000L);
+            append(AccountEvent.created(account(i, 10, String.valueOf(i))));
+        }
+        journal.snapshot();
+        clock.set(20_000);
+        append(AccountEvent.balanceChanged(1, usd("1")), AccountEvent.deleted(10));
+        // segments with seq 1..4 and 5..8 are in the snapshot, replay after it doesn't read them
+        Files.delete(segments().get(0));
+        Files.delete(segments().get(0));
+
+        JournalState state = journal.replay(Long.MAX_VALUE);
+        assertThat(state.getSeq()).isEqualTo(12);
+        assertThat(state.getAccounts()).hasSize(9);
+        assertThat(state.get(1).getBalance()).isEqualTo(usd("2"));
+        assertThat(journal.replay(10_000).getAccounts()).hasSize(10);
+        // before the snapshot the deleted segments are needed
+        thrown.expect(IllegalArgumentException.class);
+        journal.replay(5_000);
+    }
+
+    @Test
+    public void notRetainedSnapshotsAndSegmentsFlushedByLedgerAreDeleted() throws IOException {
+        // 2 snapshots are retained, a segment has 4 events
+        for (int i = 1; i <= 3; i++) {
+            clock.set(i * 1_000L);
+            append(AccountEvent.created(account(i, 10, "1")), AccountEvent.balanceChanged(i, usd("1")),
+                    AccountEvent.ledgerChanged(i, usd("1")), AccountEvent.clientChanged(i, 20));
+            journal.snapshot();
+        }
+        assertThat(files("*.snap")).hasSize(2);
+        // the ledger hasn't flushed anything yet
+        assertThat(segments()).hasSize(3);
+
+        journal.setLedgerFlushedSeq(12);
+        journal.snapshot();
+
+        assertThat(segments()).hasSize(1);
+        JournalState state = journal.replay(2_000);
+        assertThat(state.getAccounts()).containsOnlyKeys(1L, 2L);
+        assertThat(state.get(2).getClientId()).isEqualTo(20);
+        assertThat(state.get(2).getBalance()).isEqualTo(usd("3"));
+        assertThat(journal.replay(Long.MAX_VALUE).getAccounts()).hasSize(3);
+
+        thrown.expect(IllegalArgumentException.class);
+        journal.replay(1_000);
+    }
+
+    @Test
+    public void eventsOfTransactionAreAppendedOnCommitAndCreatedAtOnce() throws IOException {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            journal.appendOnCommit(Arrays.asList(AccountEvent.created(account(1, 10, "100")),
+                    AccountEvent.clientChanged(2, 10)));
+            // the created account isn't visible to others, only the change of the existing one waits
+            assertThat(journal.getLastSeq()).isEqualTo(1);
+            append(AccountEvent.ledgerChanged(1, usd("-1")));
+
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertThat(journal.getLastSeq()).isEqualTo(3);
+        assertThat(journal.replay(Long.MAX_VALUE).get(1).getBalance()).isEqualTo(usd("99"));
+    }
+
+    @Test
+    public void accountsCreatedByRolledBackTransactionAreDeleted() throws IOException {
+        append(AccountEvent.created(account(1, 10, "1")));
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            journal.appendOnCommit(Arrays.asList(AccountEvent.created(account(2, 10, "1")),
+                    AccountEvent.created(account(3, 10, "1"))));
+            // a change of another account between appends of the transaction
+            append(AccountEvent.balanceChanged(1, usd("1")));
+            journal.appendOnCommit(Arrays.asList(AccountEvent.created(account(4, 10, "1")),
+                    AccountEvent.deleted(1)));
+
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        JournalState state = journal.replay(Long.MAX_VALUE);
+        assertThat(state.getSeq()).isEqualTo(8);
+        assertThat(state.getAccounts()).containsOnlyKeys(1L);
+        assertThat(state.get(1).getBalance()).isEqualTo(usd("2"));
+    }
+
+    @Test
+    public void segmentsAreRotatedAndReopened() throws IOException {
+        for (int i = 1; i <= 10; i++) {
+            append(AccountEvent.created(account(i, 10, "1")));
+        }
+        assertThat(segments()).hasSize(3);
+
+        journal.close();
+        journal = open();
+        assertThat(journal.getLastSeq()).isEqualTo(10);
+        append(AccountEvent.created(account(11, 10, "1")));
+
+        JournalState state = journal.replay(Long.MAX_VALUE);
+        assertThat(state.getSeq()).isEqualTo(11);
+        assertThat(state.getAccounts()).hasSize(11);
+    }
+
+    @Test
+    public void tornRecordIsOverwrittenAfterReopen() throws IOException {
+        append(AccountEvent.created(account(1, 10, "1")), AccountEvent.created(account(2, 10, "1")),
+                AccountEvent.created(account(3, 10, "1")));
+        journal.close();
+        try (RandomAccessFile file = new RandomAccessFile(segments().get(0).toFile(), "rw")) {
+            file.seek(AccountJournal.RECORD_SIZE * 2 + 20);
+            file.writeLong(-1);
+        }
+
+        journal = open();
+        assertThat(journal.getLastSeq()).isEqualTo(2);
+        assertThat(journal.replay(Long.MAX_VALUE).getAccounts()).containsOnlyKeys(1L, 2L);
+
+        append(AccountEvent.created(account(4, 10, "1")));
+        JournalState state = journal.replay(Long.MAX_VALUE);
+        assertThat(state.getSeq()).isEqualTo(3);
+        assertThat(state.getAccounts()).containsOnlyKeys(1L, 2L, 4L);
+    }
+
+    @Test
+    public void commitForcesAppendedRecords() throws IOException {
+        append(AccountEvent.created(account(1, 10, "1")));
+        journal.commit();
+        assertThat(journal.getCommittedSeq()).isEqualTo(1);
+    }
+
+    @Test(timeout = 10_000)
+    public void waitersAreCommittedWithoutWaitingForInterval() throws Exception {
+        // the commit interval of the test journal is a minute
+        long first = journal.append(Collections.singletonList(AccountEvent.ledgerChanged(1, usd("1"))));
+        long second = journal.append(Collections.singletonList(AccountEvent.ledgerChanged(1, usd("2"))));
+
+        journal.awaitCommitted(second);
+
+        assertThat(first).isEqualTo(1);
+        assertThat(journal.getCommittedSeq()).isEqualTo(2);
+    }
+
+    private AccountJournal open() throws IOException {
+        return new AccountJournal(dir, SEGMENT_SIZE, 60_000, 2, clock::get);
+    }
+
+    private void append(AccountEvent... events) {
+        journal.append(Arrays.asList(events));
+    }
+
+    private List<Path> segments() throws IOException {
+        return files("*.seg");
+    }
+
+    private List<Path> files(String glob) throws IOException {
+        List<Path> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, glob)) {
+            files.forEach(found::add);
+        }
+        Collections.sort(found);
+        return found;
+    }
+
+    private static AccountEntity account(long id, long clientId, String balance) {
+        AccountEntity account = new AccountEntity();
+        account.setId(id);
+        account.setClientId(clientId);
+        account.setBalance(usd(balance));
+        return account;
+    }
+
+    private static Money usd(String amount) {
+        return Money.parse(amount, Currency.USD);
+    }
+}
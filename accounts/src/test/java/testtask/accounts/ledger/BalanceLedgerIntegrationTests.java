@@ -0,0 +1,369 @@
+package testtask.accounts.ledger;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import testtask.accounts.cache.ClientAccountsCache;
+import testtask.accounts.dao.AccountConvertor;
+import testtask.accounts.dao.AccountEntity;
+import testtask.accounts.dao.AccountJdbcDao;
+import testtask.accounts.dao.AccountRepository;
+import testtask.accounts.exception.MicroserviceException.ErrorTypes;
+import testtask.accounts.journal.AccountJournal;
+import testtask.accounts.journal.JournalState;
+import testtask.accounts.model.Account;
+import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
+import testtask.accounts.model.Transfer;
+import testtask.accounts.service.AccountService;
+import testtask.accounts.service.TransferService;
+import testtask.accounts.util.TransactionHooks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static testtask.accounts.TestHelper.expMatcher;
+import static testtask.accounts.AccountsTestHelper.expNotFoundMatcher;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class BalanceLedgerIntegrationTests {
+
+    @Autowired
+    private BalanceLedger ledger;
+
+    @Autowired
+    private AccountJdbcDao dao;
+
+    @Autowired
+    private AccountJournal accountJournal;
+
+    @Autowired
+    private ClientAccountsCache cache;
+
+    @Autowired
+    private AccountRepository repository;
+
+    @Autowired
+    private TransferService transferService;
+
+    @Autowired
+    private AccountService accountService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /* Test Data */
+    private AccountEntity account;
+
+    @Before
+    public void init() {
+        account = save(100, Currency.USD);
+    }
+
+    @After
+    public void clear() throws Exception {
+        ledger.flush();
+        repository.deleteAll();
+    }
+
+    @Test
+    public void changesAreFlushedToDatabase() throws Exception {
+        assertThat(ledger.deposit(account.getId(), usd("50.25"))).isEqualTo(usd("150.25"));
+        assertThat(ledger.withdraw(account.getId(), usd("20.05"))).isEqualTo(usd("130.20"));
+        assertThat(balance(account)).isEqualTo("100.00");
+        assertThat(ledger.getPendingAccounts()).isEqualTo(1);
+
+        ledger.flush();
+
+        assertThat(balance(account)).isEqualTo("130.20");
+        assertThat(ledger.getPendingAccounts()).isZero();
+        assertThat(repository.findOne(account.getId()).getVersion()).isEqualTo(account.getVersion() + 1);
+    }
+
+    @Test
+    public void throwBusinessExceptionWhenNotEnoughMoney() {
+        ledger.withdraw(account.getId(), usd("60"));
+        thrown.expect(expMatcher(ErrorTypes.business));
+        ledger.withdraw(account.getId(), usd("40.01"));
+    }
+
+    @Test
+    public void throwBusinessExceptionWhenExposureExceeded() throws Exception {
+        long rejected = ledger.getRejectedByExposure();
+        ledger.deposit(account.getId(), usd("10000"));
+        try {
+            ledger.deposit(account.getId(), usd("0.01"));
+        } catch (RuntimeException e) {
+            assertThat(ledger.getRejectedByExposure()).isEqualTo(rejected + 1);
+            // the limit is on not flushed changes only
+            ledger.flush();
+            ledger.deposit(account.getId(), usd("0.01"));
+            assertThat(balance(account)).isEqualTo("10100.00");
+            thrown.expect(expMatcher(ErrorTypes.business));
+            throw e;
+        }
+    }
+
+    @Test
+    public void throwBusinessExceptionWhenCurrencyDiffers() {
+        thrown.expect(expMatcher(ErrorTypes.business));
+        ledger.deposit(account.getId(), Money.of(BigDecimal.ONE, Currency.RUB));
+    }
+
+    @Test
+    public void throwNotFoundExceptionWhenAccountNotExists() {
+        long id = account.getId() + 1000;
+        thrown.expect(expNotFoundMatcher(id));
+        ledger.deposit(id, usd("1"));
+    }
+
+    @Test
+    public void changesAreJournaledAndForced() {
+        ledger.deposit(account.getId(), usd("10"));
+
+        assertThat(accountJournal.getCommittedSeq()).isGreaterThanOrEqualTo(accountJournal.getLastSeq());
+    }
+
+    @Test
+    public void transferDoesNotSpendWithdrawnMoney() throws Exception {
+        AccountEntity other = save(0, Currency.USD);
+        ledger.withdraw(account.getId(), usd("100"));
+
+        try {
+            transferService.transfer(new Transfer(account.getId(), other.getId(), new BigDecimal("100"), Currency.USD));
+            fail("withdrawn money is transferred");
+        } catch (RuntimeException e) {
+            ledger.flush();
+            assertThat(balance(account)).isEqualTo("0.00");
+            assertThat(balance(other)).isEqualTo("0.00");
+            thrown.expect(expMatcher(ErrorTypes.business));
+            throw e;
+        }
+    }
+
+    @Test
+    public void transferSeesPendingWithdrawalsAndLedgerSeesTransfer() throws Exception {
+        AccountEntity other = save(0, Currency.USD);
+        ledger.withdraw(account.getId(), usd("30"));
+        ledger.deposit(other.getId(), usd("5"));
+
+        transferService.transfer(new Transfer(account.getId(), other.getId(), new BigDecimal("70"), Currency.USD));
+
+        assertThat(balance(account)).isEqualTo("30.00");
+        assertThat(balance(other)).isEqualTo("70.00");
+        assertThat(ledger.withdraw(other.getId(), usd("75"))).isEqualTo(usd("0"));
+        ledger.flush();
+        assertThat(balance(account)).isEqualTo("0.00");
+        assertThat(balance(other)).isEqualTo("0.00");
+
+        thrown.expect(expMatcher(ErrorTypes.business));
+        ledger.withdraw(account.getId(), usd("0.01"));
+    }
+
+    @Test
+    public void transferDoesNotSpendNotFlushedDeposits() throws Exception {
+        AccountEntity other = save(0, Currency.USD);
+        ledger.deposit(account.getId(), usd("50"));
+
+        try {
+            transferService.transfer(new Transfer(account.getId(), other.getId(), new BigDecimal("150"), Currency.USD));
+            fail("not flushed deposit is transferred");
+        } catch (RuntimeException e) {
+            ledger.flush();
+            transferService.transfer(new Transfer(account.getId(), other.getId(), new BigDecimal("150"), Currency.USD));
+            assertThat(balance(account)).isEqualTo("0.00");
+            thrown.expect(expMatcher(ErrorTypes.business));
+            throw e;
+        }
+    }
+
+    @Test
+    public void pendingChangesStayOnTopOfUpdatedBalance() throws Exception {
+        ledger.withdraw(account.getId(), usd("60"));
+        Account update = AccountConvertor.toModel(repository.findOne(account.getId()));
+        update.setBalance(new BigDecimal("70"));
+
+        accountService.update(update);
+        ledger.flush();
+
+        assertThat(balance(account)).isEqualTo("10.00");
+        assertThat(accountJournal.replay(Long.MAX_VALUE).get(account.getId()).getBalance()).isEqualTo(usd("10"));
+        assertThat(ledger.withdraw(account.getId(), usd("10"))).isEqualTo(usd("0"));
+    }
+
+    @Test
+    public void throwBusinessExceptionWhenUpdatedBalanceIsLessThanPendingWithdrawals() {
+        ledger.withdraw(account.getId(), usd("60"));
+        Account update = AccountConvertor.toModel(repository.findOne(account.getId()));
+        update.setBalance(new BigDecimal("50"));
+
+        thrown.expect(expMatcher(ErrorTypes.business));
+        accountService.update(update);
+    }
+
+    @Test
+    public void throwNotFoundExceptionWhenAccountIsDeletedWithPendingChanges() {
+        long missing = ledger.getMissingAccounts();
+        ledger.deposit(account.getId(), usd("10"));
+
+        accountService.delete(account.getId());
+        ledger.flush();
+
+        assertThat(ledger.getMissingAccounts()).isEqualTo(missing);
+        thrown.expect(expNotFoundMatcher(account.getId()));
+        ledger.deposit(account.getId(), usd("10"));
+    }
+
+    @Test
+    public void throwNotFoundExceptionWhenAccountsOfClientAreDeleted() {
+        ledger.withdraw(account.getId(), usd("10"));
+
+        accountService.deleteAllAccountsOfClient(account.getClientId());
+
+        thrown.expect(expNotFoundMatcher(account.getId()));
+        ledger.withdraw(account.getId(), usd("10"));
+    }
+
+    @Test
+    public void journaledBalanceKeepsLedgerChangesWhenOtherFieldsAreUpdated() throws Exception {
+        Account created = accountService.create(new Account(null, 98L, "Journaled", usd("100"), null));
+        ledger.deposit(created.getId(), usd("10"));
+        created.setName("Renamed");
+        created.setClientId(99L);
+
+        accountService.update(created);
+        ledger.flush();
+
+        assertThat(repository.findOne(created.getId()).getBalance()).isEqualTo(usd("110"));
+        JournalState.AccountState journaled = accountJournal.replay(Long.MAX_VALUE).get(created.getId());
+        assertThat(journaled.getClientId()).isEqualTo(99L);
+        assertThat(journaled.getBalance()).isEqualTo(usd("110"));
+    }
+
+    @Test
+    public void journalIsReplayedOnceAfterCrash() throws Exception {
+        BalanceLedger crashed = newLedger(accountJournal);
+        crashed.deposit(account.getId(), usd("10"));
+        crashed.withdraw(account.getId(), usd("2.50"));
+
+        // the next run replays not flushed changes of the crashed one
+        BalanceLedger recovered = newLedger(accountJournal);
+        assertThat(balance(account)).isEqualTo("107.50");
+
+        // the same events again, they are before the checkpoint now
+        newLedger(accountJournal).close();
+        recovered.close();
+
+        assertThat(balance(account)).isEqualTo("107.50");
+    }
+
+    @Test
+    public void newJournalChangesAreFlushedToAccountsOfOldJournal() throws Exception {
+        ledger.deposit(account.getId(), usd("10"));
+        ledger.flush();
+
+        // a lost journal directory or another instance: the new journal counts its sequence from 1 again
+        try (AccountJournal newJournal = new AccountJournal(folder.newFolder("journal").toString(),
+                1 << 20, 10, 2)) {
+            assertThat(newJournal.getId()).isNotEqualTo(accountJournal.getId());
+            BalanceLedger crashed = newLedger(newJournal);
+            crashed.deposit(account.getId(), usd("5"));
+            crashed.flush();
+            assertThat(balance(account)).isEqualTo("115.00");
+            crashed.withdraw(account.getId(), usd("15"));
+
+            newLedger(newJournal).close();
+
+            assertThat(balance(account)).isEqualTo("100.00");
+        }
+    }
+
+    @Test
+    public void ledgerChangesDoNotWaitForCommitOfImport() throws Exception {
+        int count = 2_000;
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"balance\":1,\"currency\":\"USD\",\"clientId\":78,\"name\":\"Import ")
+                    .append(i).append("\"}");
+        }
+        json.append("]");
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch deposited = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<Long> imported = executor.submit(() -> new TransactionTemplate(transactionManager).execute(status -> {
+                // the import transaction stays uncompleted after its commit until the deposit is done
+                TransactionHooks.afterCommit(() -> {
+                    committed.countDown();
+                    Uninterruptibles.awaitUninterruptibly(deposited, 10, TimeUnit.SECONDS);
+                });
+                try {
+                    return accountService.importAccounts(
+                            new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8)));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+            assertThat(committed.await(30, TimeUnit.SECONDS)).isTrue();
+
+            Future<Money> deposit = executor.submit(() -> ledger.deposit(account.getId(), usd("1")));
+
+            assertThat(deposit.get(5, TimeUnit.SECONDS)).isEqualTo(usd("101"));
+            deposited.countDown();
+            assertThat(imported.get(30, TimeUnit.SECONDS)).isEqualTo(count);
+        } finally {
+            deposited.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private BalanceLedger newLedger(AccountJournal journal) throws Exception {
+        BalanceLedger ledger = new BalanceLedger(dao, journal, cache, 4, "10000");
+        ledger.recover();
+        return ledger;
+    }
+
+    private AccountEntity save(double balance, Currency currency) {
+        AccountEntity entity = new AccountEntity();
+        entity.setBalance(Money.of(BigDecimal.valueOf(balance), currency));
+        entity.setClientId(98L);
+        entity.setName("Ledger");
+        return repository.save(entity);
+    }
+
+    private String balance(AccountEntity entity) {
+        return repository.findOne(entity.getId()).getBalance().toBigDecimal().toPlainString();
+    }
+
+    private static Money usd(String amount) {
+        return Money.of(new BigDecimal(amount), Currency.USD);
+    }
+}
@@ -9,19 +9,36 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import testtask.accounts.cache.ClientAccountsCache;
 import testtask.accounts.dao.AccountEntity;
 import testtask.accounts.dao.AccountRepository;
+import testtask.accounts.exception.AccountException;
+import testtask.accounts.exception.ItemError;
+import testtask.accounts.exception.MicroserviceException.ErrorTypes;
 import testtask.accounts.model.Account;
+import testtask.accounts.model.AccountPage;
+import testtask.accounts.model.AccountsByIds;
 import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
 
+import javax.validation.Validator;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.fail;
 import static testtask.accounts.dao.AccountConvertor.*;
 import static testtask.accounts.TestHelper.*;
 import static testtask.accounts.AccountsTestHelper.expNotFoundMatcher;
@@ -41,6 +58,15 @@ public class AccountsServiceIntegrationTests {
     @Autowired
     private AccountRepository repository;
 
+    @Autowired
+    private ClientAccountsCache cache;
+
+    @Autowired
+    private AccountValidations validations;
+
+    @Autowired
+    private Validator validator;
+
     @Rule
     public ExpectedException thrown = ExpectedException.none();
 
@@ -51,9 +77,8 @@ public class AccountsServiceIntegrationTests {
     @Before
     public void init() {
         AccountEntity entity = new AccountEntity();
-        entity.setBalance(new BigDecimal(9817.78));
+        entity.setBalance(Money.of(new BigDecimal(9817.78), Currency.USD));
         entity.setClientId(88L);
-        entity.setCurrency(Currency.USD);
         entity.setName("Deposit");
 
         entity = repository.save(entity);
@@ -65,6 +90,8 @@ public class AccountsServiceIntegrationTests {
     @After
     public void clear() {
         repository.deleteAll();
+        // accounts are saved and deleted by the repository, around the cache
+        cache.invalidateAll();
     }
 
     @Test
@@ -152,6 +179,20 @@ public class AccountsServiceIntegrationTests {
         service.delete(id);
     }
 
+    @Test
+    public void canDeleteAccountsList() {
+        service.delete(accounts);
+        accounts.forEach(acc -> assertThat(repository.exists(acc.getId())).isFalse());
+        assertThat(repository.exists(account.getId())).isTrue();
+    }
+
+    @Test
+    public void throwExceptionWhenDeleteListOfNotExistedAccounts() {
+        thrown.expect(expMatcher(ErrorTypes.not_found));
+        accounts.forEach(acc -> acc.setId(acc.getId() + 345346346L));
+        service.delete(accounts);
+    }
+
     @Test
     public void canDeleteAllAccountsByClientId() {
         assertThat(repository.exists(account.getId())).isTrue();
@@ -170,10 +211,62 @@ public class AccountsServiceIntegrationTests {
 
         // one account updated and one was deleted
         assertThat(accountsUpdated).hasSize(1);
-        assertThat(accountsUpdated.get(0).getBalance()).isEqualTo(accForUpdate.getBalance());
+        assertThat(accountsUpdated.get(0).getBalance()).isEqualByComparingTo(accForUpdate.getBalance());
         assertThat(repository.findByClientId(clientId)).hasSize(1);
     }
 
+    @Test
+    public void updateAccountsInsertsNewAccountsAndKeepsUnchanged() {
+        Account unchanged = accounts.get(0);
+        long clientId = unchanged.getClientId();
+        Account newAccount = createAccount(345L, 12.5, Currency.USD, clientId, "New Acc");
+        // the account of another client is not moved, a new account is created instead
+        Account otherClientAccount = createAccount(account.getId(), 1, Currency.RUB, clientId, "Not mine");
+
+        List<Account> accountsUpdated = service.updateAllAccountsOfClient(
+                Arrays.asList(unchanged, newAccount, otherClientAccount), clientId);
+
+        assertThat(accountsUpdated).hasSize(3);
+        assertThat(accountsUpdated.get(0)).isEqualTo(unchanged);
+        assertThat(accountsUpdated.get(1).getId()).isNotNull().isNotEqualTo(newAccount.getId());
+        assertThat(accountsUpdated.get(2).getId()).isNotEqualTo(account.getId());
+        assertThat(toModels(repository.findByClientId(clientId))).containsExactlyInAnyOrder(
+                accountsUpdated.toArray(new Account[0]));
+        assertThat(toModel(repository.findOne(account.getId()))).isEqualTo(account);
+    }
+
+    @Test
+    public void updateAccountsReadsKeptAccountsByChunks() {
+        long clientId = accounts.get(0).getClientId();
+        List<Account> kept = new ArrayList<>(accounts);
+        for (int i = 0; i < 3; i++) {
+            kept.add(service.create(createAccount(i + 1, Currency.RUB, clientId, "Chunked " + i)));
+        }
+        Account deleted = service.create(createAccount(7, Currency.RUB, clientId, "Deleted"));
+        kept.get(4).setName("Changed");
+        Object target = AopTestUtils.getTargetObject(service);
+        ReflectionTestUtils.setField(target, "idsChunkSize", 2);
+        try {
+            List<Account> accountsUpdated = service.updateAllAccountsOfClient(kept, clientId);
+
+            assertThat(accountsUpdated).containsExactlyElementsOf(kept);
+        } finally {
+            ReflectionTestUtils.setField(target, "idsChunkSize", 500);
+        }
+        assertThat(repository.exists(deleted.getId())).isFalse();
+        assertThat(toModels(repository.findByClientId(clientId))).containsExactlyInAnyOrder(
+                kept.toArray(new Account[0]));
+    }
+
+    @Test
+    public void updateAccountsWithEmptyListDeletesAllClientAccounts() {
+        long clientId = accounts.get(0).getClientId();
+
+        assertThat(service.updateAllAccountsOfClient(new ArrayList<>(), clientId)).isEmpty();
+        assertThat(repository.findByClientId(clientId)).isEmpty();
+        assertThat(repository.exists(account.getId())).isTrue();
+    }
+
     @Test
     public void throwExceptionWhenUpdateAccountsWithNullId() {
         thrown.expect(expValidationMatcher());
@@ -184,4 +277,251 @@ public class AccountsServiceIntegrationTests {
 
         service.updateAllAccountsOfClient(accounts, accounts.get(0).getClientId());
     }
+
+    @Test
+    public void canWalkAllAccountsByCursor() {
+        List<Account> walked = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            AccountPage page = service.getAll(cursor, 2);
+            assertThat(page.getAccounts().size()).isLessThanOrEqualTo(2);
+            walked.addAll(page.getAccounts());
+            cursor = page.getNextCursor();
+            pages++;
+        } while (cursor != null);
+
+        // account + two accounts of the list
+        assertThat(pages).isEqualTo(2);
+        assertThat(walked).extracting(Account::getId).isSorted().doesNotHaveDuplicates();
+        assertThat(walked).containsExactlyInAnyOrder(toModels(repository.findAll()).toArray(new Account[0]));
+    }
+
+    @Test
+    public void canWalkClientAccountsByCursor() {
+        long clientId = accounts.get(0).getClientId();
+
+        AccountPage first = service.findByClientId(clientId, null, 1);
+        assertThat(first.getAccounts()).hasSize(1);
+        assertThat(first.hasNext()).isTrue();
+
+        AccountPage second = service.findByClientId(clientId, first.getNextCursor(), 1);
+        assertThat(second.getAccounts()).hasSize(1);
+        assertThat(second.hasNext()).isFalse();
+
+        assertThat(Arrays.asList(first.getAccounts().get(0), second.getAccounts().get(0)))
+                .containsExactlyInAnyOrder(accounts.toArray(new Account[0]));
+    }
+
+    @Test
+    public void clientAccountsAreCachedUntilChanged() {
+        long clientId = accounts.get(0).getClientId();
+        long hits = cache.getStats().hitCount();
+
+        assertThat(service.findByClientId(clientId, null, null).getAccounts()).hasSize(2);
+        assertThat(service.findByClientId(clientId, null, null).getAccounts()).hasSize(2);
+        assertThat(cache.getStats().hitCount()).isEqualTo(hits + 1);
+
+        Account created = service.create(createAccount(10, Currency.RUB, clientId, "Cached"));
+        assertThat(service.findByClientId(clientId, null, null).getAccounts()).contains(created);
+
+        created.setBalance(new BigDecimal("20.00"));
+        service.update(created);
+        assertThat(service.findByClientId(clientId, null, null).getAccounts()).contains(created);
+
+        service.delete(created.getId());
+        assertThat(service.findByClientId(clientId, null, null).getAccounts()).doesNotContain(created);
+
+        service.deleteAllAccountsOfClient(clientId);
+        assertThat(service.findByClientId(clientId, null, null).getAccounts()).isEmpty();
+    }
+
+    @Test
+    public void throwValidationExceptionWhenCursorIsMalformed() {
+        thrown.expect(expValidationMatcher());
+        service.getAll("not a cursor", null);
+    }
+
+    @Test
+    public void canImportAccountsByBatches() throws IOException {
+        long before = repository.count();
+        int count = 120;
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"balance\":").append(i).append(",\"currency\":\"USD\",\"clientId\":77,\"name\":\"Import ")
+                    .append(i).append("\"}");
+        }
+        json.append("]");
+
+        long created = service.importAccounts(new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(created).isEqualTo(count);
+        assertThat(repository.count()).isEqualTo(before + count);
+        assertThat(repository.findByClientId(77L)).hasSize(count);
+    }
+
+    @Test
+    public void nothingImportedWhenOneOfAccountsIsInvalid() throws IOException {
+        long before = repository.count();
+        String json = "[{\"balance\":1,\"currency\":\"USD\",\"clientId\":77,\"name\":\"Valid\"},"
+                + "{\"id\":5,\"balance\":2,\"currency\":\"USD\",\"clientId\":77,\"name\":\"With id\"}]";
+        assertThatThrownBy(() -> service.importAccounts(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8))))
+                .isInstanceOf(AccountException.class)
+                .hasMessageContaining("predefined id");
+        assertThat(repository.count()).isEqualTo(before);
+    }
+
+    @Test
+    public void importReportsAllInvalidAccounts() throws IOException {
+        long before = repository.count();
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 120; i++) {
+            String name = i % 50 == 7 ? "Bad_" + i : "Import " + i;
+            json.append(i == 0 ? "" : ",")
+                    .append("{\"balance\":1,\"currency\":\"USD\",\"clientId\":77,\"name\":\"").append(name).append("\"}");
+        }
+        json.append("]");
+
+        try {
+            service.importAccounts(new ByteArrayInputStream(json.toString().getBytes(StandardCharsets.UTF_8)));
+            fail("Invalid accounts imported");
+        } catch (AccountException e) {
+            assertThat(e.getItemErrors()).extracting(ItemError::getIndex).containsExactly(7, 57, 107);
+            assertThat(e.getInfo()).startsWith("Validation failed for 3 of 120 accounts: [7] name = Bad_7.");
+        }
+        assertThat(repository.count()).isEqualTo(before);
+    }
+
+    @Test
+    public void createListReportsAllErrorsWithIndexes() {
+        List<Account> invalid = createAccountsNullIdsList();
+        invalid.get(0).setName("Bad!");
+        invalid.get(0).setBalance(new BigDecimal(-1));
+        invalid.get(1).setId(account.getId());
+        long before = repository.count();
+
+        try {
+            service.create(invalid);
+            fail("Invalid accounts created");
+        } catch (AccountException e) {
+            assertThat(e.getType()).isEqualTo(ErrorTypes.validation);
+            assertThat(e.getItemErrors()).extracting(ItemError::getIndex).containsExactly(0, 0, 1);
+            assertThat(e.getItemErrors()).extracting(ItemError::getField).containsExactly("name", "balance", "id");
+            assertThat(e.getItemErrors().get(2).getMessage())
+                    .isEqualTo("Can't create Account with predefined id: " + account.getId());
+        }
+        assertThat(repository.count()).isEqualTo(before);
+    }
+
+    @Test
+    public void bigListIsValidatedInParallelInIndexOrder() {
+        int size = AccountValidations.PARALLEL_THRESHOLD * 3;
+        List<Account> big = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            big.add(createAccount(i, Currency.USD, 5L, "Account " + i));
+        }
+        int[] invalid = {0, 2047, 2048, 9000, size / 2, size - 1};
+        for (int index : invalid) {
+            big.get(index).setClientId(null);
+        }
+
+        List<ItemError> errors = validations.checkCreate(big, 0);
+
+        assertThat(errors).extracting(ItemError::getIndex).containsExactly(0, 2047, 2048, 9000, size / 2, size - 1);
+        assertThat(errors.get(0).getMessage()).isEqualTo("clientId = null. may not be null");
+        assertThat(validations.checkCreate(big.subList(1, 2047), 1)).isEmpty();
+    }
+
+    @Test
+    public void fastChecksAgreeWithBeanValidator() {
+        String[] names = {"Deposit", "Счёт 1", "", " ", "a-b", "tab\t", "\uD801\uDC00", "\uD83D\uDE00", "x1 ٣", null};
+        BigDecimal[] balances = {BigDecimal.ZERO, new BigDecimal("-0.01"), new BigDecimal("92233720368547758.07"),
+                new BigDecimal("92233720368547758.071"), null};
+        Long[] clientIds = {1L, null};
+        for (String name : names) {
+            for (BigDecimal balance : balances) {
+                for (Long clientId : clientIds) {
+                    Account item = new Account();
+                    item.setName(name);
+                    item.setBalance(balance);
+                    item.setClientId(clientId);
+
+                    Set<String> expected = validator.validate(item).stream()
+                            .map(v -> v.getPropertyPath() + " = " + v.getInvalidValue() + ". " + v.getMessage())
+                            .collect(Collectors.toSet());
+                    List<ItemError> errors = new ArrayList<>();
+                    validations.checkFields(item, 0, errors, false);
+
+                    assertThat(errors).extracting(ItemError::getMessage).as(item.toString())
+                            .containsOnlyElementsOf(expected).hasSameSizeAs(expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void balanceOutOfLongRangeIsTooBig() {
+        Account item = createAccount(0, Currency.USD, 5L, "Big");
+        item.setBalance(new BigDecimal("1E+30"));
+        thrown.expect(expValidationMatcher());
+        thrown.expectMessage("balance = 1E+30. The value is too big");
+        validations.validateItem(item);
+    }
+
+    @Test
+    public void findByIdsInOrderOfIdsWithMissingIds() {
+        long missingId = account.getId() + 1000;
+        List<Long> ids = Arrays.asList(accounts.get(1).getId(), missingId, account.getId(), accounts.get(1).getId());
+
+        AccountsByIds found = service.findByIds(ids);
+
+        assertThat(found.getAccounts()).containsExactly(accounts.get(1), account);
+        assertThat(found.getMissingIds()).containsExactly(missingId);
+    }
+
+    @Test
+    public void throwAccountExceptionWhenFindByNullId() {
+        thrown.expect(expValidationMatcher());
+        service.findByIds(Arrays.asList(account.getId(), null));
+    }
+
+    @Test
+    public void findByClientIdsGroupedByClient() {
+        long clientId = accounts.get(0).getClientId();
+        long noAccountsClientId = 123456L;
+
+        Map<Long, List<Account>> found = service.findByClientIds(Arrays.asList(noAccountsClientId, clientId, 88L));
+
+        assertThat(found.keySet()).containsExactly(noAccountsClientId, clientId, 88L);
+        assertThat(found.get(noAccountsClientId)).isEmpty();
+        assertThat(found.get(clientId)).containsExactlyElementsOf(accounts.stream()
+                .filter(acc -> acc.getClientId() == clientId).collect(Collectors.toList()));
+        assertThat(found.get(88L)).containsExactly(account);
+    }
+
+    @Test
+    public void throwValidationExceptionWhenClientsHaveMoreThanMaxAccounts() {
+        Object target = AopTestUtils.getTargetObject(service);
+        ReflectionTestUtils.setField(target, "maxClientIdsAccounts", accounts.size() + 1);
+        try {
+            // the limit itself is allowed
+            assertThat(service.findByClientIds(Arrays.asList(81L, 88L)).get(81L)).hasSize(accounts.size());
+            service.create(createAccount(1, Currency.USD, 88L, "Over the limit"));
+
+            thrown.expect(expValidationMatcher());
+            service.findByClientIds(Arrays.asList(81L, 88L));
+        } finally {
+            ReflectionTestUtils.setField(target, "maxClientIdsAccounts", 10000);
+        }
+    }
+
+    @Test
+    public void pagesAreProjectedWithVersions() {
+        AccountPage page = service.findByClientId(88L, null, null);
+
+        assertThat(page.getAccounts()).containsExactly(account);
+        assertThat(page.getAccounts().get(0).getVersion())
+                .isEqualTo(repository.findOne(account.getId()).getVersion());
+    }
 }
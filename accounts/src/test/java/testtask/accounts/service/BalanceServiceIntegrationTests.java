@@ -0,0 +1,96 @@
+package testtask.accounts.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import testtask.accounts.dao.AccountEntity;
+import testtask.accounts.dao.AccountRepository;
+import testtask.accounts.model.BalanceSummary;
+import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static testtask.accounts.TestHelper.expValidationMatcher;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class BalanceServiceIntegrationTests {
+
+    private static final long CLIENT_ID = 501L;
+    private static final long OTHER_CLIENT_ID = 502L;
+
+    @Autowired
+    private BalanceService service;
+
+    @Autowired
+    private AccountRepository repository;
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Before
+    public void init() {
+        save(CLIENT_ID, "100.10", Currency.USD);
+        save(CLIENT_ID, "20.05", Currency.USD);
+        save(CLIENT_ID, "7", Currency.RUB);
+        save(OTHER_CLIENT_ID, "1.01", Currency.RUB);
+    }
+
+    @After
+    public void clear() {
+        repository.deleteAll();
+    }
+
+    @Test
+    public void summarizeBalancesOfClientByCurrency() {
+        List<BalanceSummary> summaries = service.summarize(CLIENT_ID);
+
+        assertThat(summaries).extracting("currency").containsExactlyInAnyOrder(Currency.USD, Currency.RUB);
+        BalanceSummary usd = summaries.stream().filter(summary -> summary.getCurrency() == Currency.USD)
+                .findFirst().get();
+        assertThat(usd.getClientId()).isEqualTo(CLIENT_ID);
+        assertThat(usd.getCount()).isEqualTo(2);
+        assertThat(usd.getTotal()).isEqualByComparingTo("120.15");
+        assertThat(usd.getMin()).isEqualByComparingTo("20.05");
+        assertThat(usd.getMax()).isEqualByComparingTo("100.10");
+    }
+
+    @Test
+    public void summarizeBalancesOfManyClients() {
+        long noAccountsClientId = 503L;
+
+        Map<Long, List<BalanceSummary>> summaries = service.summarize(
+                Arrays.asList(OTHER_CLIENT_ID, noAccountsClientId, CLIENT_ID));
+
+        assertThat(summaries.keySet()).containsExactly(OTHER_CLIENT_ID, noAccountsClientId, CLIENT_ID);
+        assertThat(summaries.get(OTHER_CLIENT_ID)).hasSize(1);
+        assertThat(summaries.get(OTHER_CLIENT_ID).get(0).getTotal()).isEqualByComparingTo("1.01");
+        assertThat(summaries.get(noAccountsClientId)).isEmpty();
+        assertThat(summaries.get(CLIENT_ID)).hasSize(2);
+    }
+
+    @Test
+    public void throwAccountExceptionWhenClientIdsContainNull() {
+        thrown.expect(expValidationMatcher());
+        service.summarize(Arrays.asList(CLIENT_ID, null));
+    }
+
+    private void save(long clientId, String balance, Currency currency) {
+        AccountEntity entity = new AccountEntity();
+        entity.setBalance(Money.of(new BigDecimal(balance), currency));
+        entity.setClientId(clientId);
+        entity.setName("Summary");
+        repository.save(entity);
+    }
+}
@@ -0,0 +1,148 @@
+package testtask.accounts.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import testtask.accounts.dao.AccountEntity;
+import testtask.accounts.dao.AccountRepository;
+import testtask.accounts.exception.MicroserviceException.ErrorTypes;
+import testtask.accounts.model.Account;
+import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
+import testtask.accounts.model.Transfer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static testtask.accounts.TestHelper.*;
+
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+public class TransferServiceIntegrationTests {
+
+    @Autowired
+    private TransferService service;
+
+    @Autowired
+    private AccountRepository repository;
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    /* Test Data */
+    private AccountEntity first;
+    private AccountEntity second;
+
+    @Before
+    public void init() {
+        first = save(1000, Currency.USD);
+        second = save(1000, Currency.USD);
+    }
+
+    @After
+    public void clear() {
+        repository.deleteAll();
+    }
+
+    @Test
+    public void canTransfer() {
+        List<Account> accounts = service.transfer(transfer(first, second, "250.55"));
+
+        assertThat(accounts).extracting(Account::getId).containsExactly(first.getId(), second.getId());
+        assertThat(balance(first)).isEqualTo("749.45");
+        assertThat(balance(second)).isEqualTo("1250.55");
+        assertThat(repository.findOne(first.getId()).getVersion()).isEqualTo(first.getVersion() + 1);
+    }
+
+    @Test
+    public void throwBusinessExceptionWhenNotEnoughMoney() {
+        thrown.expect(expMatcher(ErrorTypes.business));
+        try {
+            service.transfer(transfer(first, second, "1000.01"));
+        } finally {
+            assertThat(balance(first)).isEqualTo("1000.00");
+            assertThat(balance(second)).isEqualTo("1000.00");
+        }
+    }
+
+    @Test
+    public void throwBusinessExceptionWhenCurrencyDiffers() {
+        thrown.expect(expMatcher(ErrorTypes.business));
+        service.transfer(transfer(first, save(10, Currency.RUB), "1"));
+    }
+
+    @Test
+    public void throwNotFoundExceptionWhenAccountNotExists() {
+        thrown.expect(expMatcher(ErrorTypes.not_found));
+        AccountEntity notExisted = new AccountEntity();
+        notExisted.setId(second.getId() + 1000);
+        service.transfer(transfer(first, notExisted, "1"));
+    }
+
+    @Test
+    public void throwValidationExceptionWhenTransferToTheSameAccount() {
+        thrown.expect(expValidationMatcher());
+        service.transfer(transfer(first, first, "1"));
+    }
+
+    @Test
+    public void concurrentTransfersDoNotLoseUpdates() throws Exception {
+        int threads = 8;
+        int transfersPerThread = 25;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                // half of threads move money forward and half back, on the same two hot accounts
+                Transfer transfer = t % 2 == 0 ? transfer(first, second, "3.00") : transfer(second, first, "1.00");
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < transfersPerThread; i++) {
+                        service.transfer(transfer);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 4 threads * 25 * 3.00 forward, 4 threads * 25 * 1.00 back
+        assertThat(balance(first)).isEqualTo("800.00");
+        assertThat(balance(second)).isEqualTo("1200.00");
+    }
+
+    private AccountEntity save(double balance, Currency currency) {
+        AccountEntity entity = new AccountEntity();
+        entity.setBalance(Money.of(BigDecimal.valueOf(balance), currency));
+        entity.setClientId(99L);
+        entity.setName("Transfer");
+        return repository.save(entity);
+    }
+
+    private String balance(AccountEntity entity) {
+        return repository.findOne(entity.getId()).getBalance().toBigDecimal().toPlainString();
+    }
+
+    private static Transfer transfer(AccountEntity from, AccountEntity to, String amount) {
+        return new Transfer(from.getId(), to.getId(), new BigDecimal(amount), Currency.USD);
+    }
+}
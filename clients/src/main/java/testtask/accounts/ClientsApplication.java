@@ -1,18 +1,24 @@
 package testtask.accounts;
 
-import com.fasterxml.jackson.core.JsonParser;
-import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.math.BigDecimal;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.boot.jackson.JsonComponentModule;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
+import org.springframework.http.client.HttpComponentsAsyncClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.web.client.AsyncRestTemplate;
 import org.springframework.web.client.RestTemplate;
 import testtask.accounts.exception.ResponseMksErrorHandler;
-import testtask.accounts.serializator.JsonBigDecimalSerializer;
+import testtask.accounts.http.AccountMksAsyncHttpClient;
+import testtask.accounts.http.AccountMksHttpClient;
+import testtask.accounts.http.AsyncBasicAuthorizationInterceptor;
+import testtask.accounts.serializator.ObjectMappers;
+import testtask.accounts.serializator.SmileHttpMessageConverter;
+
+import java.util.Collections;
 
 /**
  *
@@ -24,23 +30,40 @@ public class ClientsApplication {
         SpringApplication.run(ClientsApplication.class, args);
     }
 
+    /**
+     * Credentials of accounts mks, the same for the blocking and non-blocking templates.
+     */
+    @Value("${acc-mks.user:user}")
+    private String accMksUser;
+
+    @Value("${acc-mks.password:123}")
+    private String accMksPassword;
+
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
+    public RestTemplate restTemplate(RestTemplateBuilder builder, AccountMksHttpClient httpClient) {
         return builder
+                .requestFactory(new HttpComponentsClientHttpRequestFactory(httpClient.getClient()))
                 .errorHandler(new ResponseMksErrorHandler())
-                .basicAuthorization("user", "123")
+                .additionalMessageConverters(new SmileHttpMessageConverter())
+                .basicAuthorization(accMksUser, accMksPassword)
                 .build();
     }
 
+    /**
+     * Non-blocking twin of the rest template, with its message converters, error handler and credentials.
+     */
+    @Bean
+    public AsyncRestTemplate asyncRestTemplate(RestTemplate restTemplate, AccountMksAsyncHttpClient httpClient) {
+        AsyncRestTemplate template = new AsyncRestTemplate(
+                new HttpComponentsAsyncClientHttpRequestFactory(httpClient.getClient()), restTemplate);
+        template.setInterceptors(Collections.singletonList(
+                new AsyncBasicAuthorizationInterceptor(accMksUser, accMksPassword)));
+        return template;
+    }
+
     @Bean
     @Primary
     public static ObjectMapper serializingObjectMapper() {
-        ObjectMapper mapper = new ObjectMapper();
-        JsonComponentModule jsonBigDecimal = new JsonComponentModule();
-        jsonBigDecimal.addSerializer(BigDecimal.class, new JsonBigDecimalSerializer());
-        mapper.registerModule(jsonBigDecimal);
-        mapper.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
-        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
-        return mapper;
+        return ObjectMappers.json();
     }
 }
@@ -3,6 +3,7 @@ package testtask.accounts.controller;
 import io.swagger.annotations.Api;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.List;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -15,6 +16,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import testtask.accounts.model.Client;
 import testtask.accounts.service.ClientService;
+import testtask.accounts.util.ETags;
 
 /**
  *
@@ -42,10 +44,23 @@ public class ClientController {
         return new ResponseEntity<>(client, HttpStatus.OK);
     }
 
+    /**
+     * Tagged by a hash of the client and the accounts, a matching If-None-Match is answered by 304 without the body.
+     * The tag is known only after the client and its accounts are read, so a match saves the body, not the reads;
+     * unchanged pages of accounts come back from accounts mks as 304 by their own tags.
+     */
     @GetMapping(value = "/withAccounts/{id}")
     public ResponseEntity<Client> findWithAccounts(@PathVariable Long id) {
         Client client = clientService.findWithAccounts(id);
-        return new ResponseEntity(client, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(ETags.of(client)).body(client);
+    }
+
+    /**
+     * Existing clients with accounts in the order of ids, not existing ids are skipped.
+     */
+    @PostMapping(value = "/withAccounts")
+    public ResponseEntity<List<Client>> findAllWithAccounts(@RequestBody List<Long> ids) {
+        return new ResponseEntity<>(clientService.findAllWithAccounts(ids), HttpStatus.OK);
     }
 
     @PostMapping
@@ -2,20 +2,35 @@
 package testtask.accounts.dao;
 
 import java.util.Date;
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.GenericGenerator;
+import testtask.accounts.id.SnowflakeHibernateGenerator;
 
 /**
  *
  * @author Olga Grazhdanova <dvl.java@gmail.com> at Jan 25, 2018
  */
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ClientEntity.CACHE_REGION)
 public class ClientEntity {
 
+    /**
+     * Second level cache region of clients, see ehcache-clients.xml.
+     */
+    public static final String CACHE_REGION = "client";
+
+    /**
+     * Time ordered id generated by the application, see {@link SnowflakeHibernateGenerator}.
+     */
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = SnowflakeHibernateGenerator.NAME)
+    @GenericGenerator(name = SnowflakeHibernateGenerator.NAME, strategy = SnowflakeHibernateGenerator.STRATEGY)
     private Long id;
 
     private String firstName;
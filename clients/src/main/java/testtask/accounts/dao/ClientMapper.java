@@ -0,0 +1,24 @@
+package testtask.accounts.dao;
+
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.ReportingPolicy;
+import org.mapstruct.factory.Mappers;
+import testtask.accounts.model.Client;
+
+/**
+ * Mapping of clients, the implementation is generated by MapStruct at compile time, no reflection.
+ */
+@Mapper(unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface ClientMapper {
+
+    ClientMapper INSTANCE = Mappers.getMapper(ClientMapper.class);
+
+    ClientEntity toEntity(Client client);
+
+    /**
+     * Accounts are not stored with the client, they are read from accounts mks.
+     */
+    @Mapping(target = "accounts", ignore = true)
+    Client toModel(ClientEntity clientEntity);
+}
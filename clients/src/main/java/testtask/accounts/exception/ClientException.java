@@ -1,5 +1,7 @@
 package testtask.accounts.exception;
 
+import java.util.List;
+
 /**
  *
  * @author Olga Grazhdanova <dvl.java@gmail.com> at Jan 27, 2018
@@ -27,6 +29,11 @@ public class ClientException extends MicroserviceException {
         this.clientId = null;
     }
 
+    public ClientException(ErrorTypes type, String info, List<ItemError> itemErrors) {
+        super(type, info, itemErrors);
+        this.clientId = null;
+    }
+
     public ClientException(Long clientId, ErrorTypes type, String info) {
         super(type, info);
         this.clientId = clientId;
@@ -14,9 +14,11 @@ public class ResponseMksErrorHandler extends DefaultResponseErrorHandler {
 
     @Override
     public void handleError(ClientHttpResponse response) throws IOException {
-        ApiErrorDto apiErrorDto = MksUtil.readBodyValue(response.getBody(), ApiErrorDto.class);
+        ApiErrorDto apiErrorDto = MksUtil.readBodyValue(response.getBody(), response.getHeaders().getContentType(),
+                ApiErrorDto.class);
         if (apiErrorDto != null) { // known error
-            throw new ClientException(MicroserviceException.ErrorTypes.bad_mks_request, apiErrorDto.toString());
+            throw new ClientException(MicroserviceException.ErrorTypes.bad_mks_request, apiErrorDto.toString(),
+                    apiErrorDto.getErrors());
         } else { // unknown error
             super.handleError(response);
         }
@@ -0,0 +1,112 @@
+package testtask.accounts.http;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking http client of accounts mks, the limits and timeouts are the same as of {@link AccountMksHttpClient}.
+ * <p>
+ * Requests in flight hold no threads, a few I/O dispatcher threads serve all connections of the pool.
+ * A connection closed by the server is noticed by the dispatcher at once. Connections idle longer than
+ * the idle timeout are closed by a background thread, as in the blocking client,
+ * so the pool doesn't keep sockets the server is about to close.
+ * The pool checks the lease timeout of waiting requests only when a connection is released or closed,
+ * so the same thread checks them several times per lease timeout.
+ */
+@Component
+public class AccountMksAsyncHttpClient {
+
+    private static final long MIN_VALIDATE_INTERVAL_MS = 10;
+
+    private final InstrumentedAsyncConnectionManager pool;
+    private final CloseableHttpAsyncClient client;
+    private final ScheduledExecutorService maintenance;
+
+    @Autowired
+    public AccountMksAsyncHttpClient(@Value("${acc-mks.http.max-total:50}") int maxTotal,
+                                     @Value("${acc-mks.http.max-per-route:20}") int maxPerRoute,
+                                     @Value("${acc-mks.http.connect-timeout-ms:1000}") int connectTimeout,
+                                     @Value("${acc-mks.http.read-timeout-ms:5000}") int readTimeout,
+                                     @Value("${acc-mks.http.lease-timeout-ms:1000}") int leaseTimeout,
+                                     @Value("${acc-mks.http.idle-timeout-ms:15000}") long idleTimeout) throws IOReactorException {
+        pool = new InstrumentedAsyncConnectionManager(new DefaultConnectingIOReactor(IOReactorConfig.custom()
+                .setTcpNoDelay(true)
+                .setConnectTimeout(connectTimeout)
+                .setSoTimeout(readTimeout)
+                .build()));
+        pool.setMaxTotal(maxTotal);
+        pool.setDefaultMaxPerRoute(maxPerRoute);
+
+        client = HttpAsyncClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(connectTimeout)
+                        .setSocketTimeout(readTimeout)
+                        .setConnectionRequestTimeout(leaseTimeout)
+                        .build())
+                .setKeepAliveStrategy((response, context) -> idleTimeout)
+                .disableCookieManagement()
+                .build();
+        client.start();
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "accmks-async-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(() -> {
+            pool.closeExpiredConnections();
+            pool.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+        }, idleTimeout, idleTimeout, TimeUnit.MILLISECONDS);
+        long validateInterval = Math.max(leaseTimeout / 4, MIN_VALIDATE_INTERVAL_MS);
+        maintenance.scheduleWithFixedDelay(pool::validatePendingRequests, validateInterval, validateInterval,
+                TimeUnit.MILLISECONDS);
+    }
+
+    public CloseableHttpAsyncClient getClient() {
+        return client;
+    }
+
+    /**
+     * @return leased, available, pending (waiting requests) and max connections of the pool
+     */
+    public PoolStats getPoolStats() {
+        return pool.getTotalStats();
+    }
+
+    public long getLeases() {
+        return pool.getStats().getLeases();
+    }
+
+    public long getLeaseTimeouts() {
+        return pool.getStats().getLeaseTimeouts();
+    }
+
+    public long getLeaseWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(pool.getStats().getWaitNanos());
+    }
+
+    public long getMaxLeaseWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(pool.getStats().getMaxWaitNanos());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        maintenance.shutdownNow();
+        client.close();
+    }
+}
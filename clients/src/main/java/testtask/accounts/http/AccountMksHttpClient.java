@@ -0,0 +1,177 @@
+package testtask.accounts.http;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Http client of accounts mks with a pool of keep-alive connections.
+ * <p>
+ * Requests wait for a free connection up to the lease timeout, then fail. Connections idle longer
+ * than the idle timeout are closed by a background thread, before the server closes them on its side;
+ * a connection idle for a while is checked before reuse anyway.
+ * When the application is ready, the pool is filled with warm-up connections,
+ * so the first requests don't pay for tcp connects.
+ */
+@Slf4j
+@Component
+public class AccountMksHttpClient {
+
+    /**
+     * connections idle longer than this are checked for a close by the server before reuse
+     */
+    private static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
+
+    private final HttpRoute route;
+    private final InstrumentedConnectionManager pool;
+    private final CloseableHttpClient client;
+    private final int connectTimeout;
+    private final long idleTimeout;
+    private final int warmUpConnections;
+
+    @Autowired
+    public AccountMksHttpClient(@Value("${acc-mks.host}") String host,
+                                @Value("${acc-mks.server.port}") int port,
+                                @Value("${acc-mks.http.max-total:50}") int maxTotal,
+                                @Value("${acc-mks.http.max-per-route:20}") int maxPerRoute,
+                                @Value("${acc-mks.http.connect-timeout-ms:1000}") int connectTimeout,
+                                @Value("${acc-mks.http.read-timeout-ms:5000}") int readTimeout,
+                                @Value("${acc-mks.http.lease-timeout-ms:1000}") int leaseTimeout,
+                                @Value("${acc-mks.http.idle-timeout-ms:15000}") long idleTimeout,
+                                @Value("${acc-mks.http.warm-up-connections:4}") int warmUpConnections) {
+        this.route = new HttpRoute(new HttpHost(host, port));
+        this.connectTimeout = connectTimeout;
+        this.idleTimeout = idleTimeout;
+        this.warmUpConnections = Math.min(warmUpConnections, Math.min(maxTotal, maxPerRoute));
+
+        pool = new InstrumentedConnectionManager();
+        pool.setMaxTotal(maxTotal);
+        pool.setDefaultMaxPerRoute(maxPerRoute);
+        pool.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
+        pool.setDefaultSocketConfig(SocketConfig.custom()
+                .setTcpNoDelay(true)
+                .setSoTimeout(readTimeout)
+                .build());
+
+        client = HttpClients.custom()
+                .setConnectionManager(pool)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectTimeout(connectTimeout)
+                        .setSocketTimeout(readTimeout)
+                        .setConnectionRequestTimeout(leaseTimeout)
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(idleTimeout, TimeUnit.MILLISECONDS)
+                .disableCookieManagement()
+                .build();
+    }
+
+    public CloseableHttpClient getClient() {
+        return client;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        int opened = warmUp(warmUpConnections);
+        if (warmUpConnections > 0) {
+            log.info("Accounts mks http pool warm-up: {} of {} connections to {} opened",
+                    opened, warmUpConnections, route.getTargetHost());
+        }
+    }
+
+    /**
+     * Open connections to accounts mks and return them to the pool idle.
+     * All of them are leased first, so every one is a new connection. Stops on the first failure,
+     * accounts mks may be not started yet.
+     *
+     * @param connections
+     * @return count of opened connections
+     */
+    public int warmUp(int connections) {
+        List<HttpClientConnection> leased = new ArrayList<>(connections);
+        try {
+            for (int i = 0; i < connections; i++) {
+                HttpClientConnection connection = pool.requestConnection(route, null)
+                        .get(connectTimeout, TimeUnit.MILLISECONDS);
+                leased.add(connection);
+                if (!connection.isOpen()) {
+                    connect(connection);
+                }
+            }
+        } catch (IOException | ExecutionException e) {
+            log.warn("Accounts mks http pool warm-up failed: {}", e.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int opened = 0;
+        for (HttpClientConnection connection : leased) {
+            if (connection.isOpen()) {
+                opened++;
+            }
+            pool.releaseConnection(connection, null, idleTimeout, TimeUnit.MILLISECONDS);
+        }
+        return opened;
+    }
+
+    private void connect(HttpClientConnection connection) throws IOException {
+        HttpClientContext context = HttpClientContext.create();
+        try {
+            pool.connect(connection, route, connectTimeout, context);
+            pool.routeComplete(connection, route, context);
+        } catch (IOException e) {
+            // the socket is bound but not connected, it must not return to the pool as open
+            try {
+                connection.shutdown();
+            } catch (IOException ignored) {
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return leased, available, pending (waiting requests) and max connections of the pool
+     */
+    public PoolStats getPoolStats() {
+        return pool.getTotalStats();
+    }
+
+    public long getLeases() {
+        return pool.getStats().getLeases();
+    }
+
+    public long getLeaseTimeouts() {
+        return pool.getStats().getLeaseTimeouts();
+    }
+
+    public long getLeaseWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(pool.getStats().getWaitNanos());
+    }
+
+    public long getMaxLeaseWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(pool.getStats().getMaxWaitNanos());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        client.close();
+    }
+}
@@ -0,0 +1,53 @@
+package testtask.accounts.http;
+
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Connection pools of {@link AccountMksHttpClient} and {@link AccountMksAsyncHttpClient}
+ * for the actuator /metrics endpoint.
+ */
+@Component
+public class AccountMksHttpMetrics implements PublicMetrics {
+
+    private final AccountMksHttpClient client;
+    private final AccountMksAsyncHttpClient asyncClient;
+
+    @Autowired
+    public AccountMksHttpMetrics(AccountMksHttpClient client, AccountMksAsyncHttpClient asyncClient) {
+        this.client = client;
+        this.asyncClient = asyncClient;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        PoolStats stats = client.getPoolStats();
+        List<Metric<?>> metrics = new ArrayList<>(16);
+        metrics.add(new Metric<>("accmks.pool.leased", stats.getLeased()));
+        metrics.add(new Metric<>("accmks.pool.available", stats.getAvailable()));
+        metrics.add(new Metric<>("accmks.pool.pending", stats.getPending()));
+        metrics.add(new Metric<>("accmks.pool.max", stats.getMax()));
+        metrics.add(new Metric<>("accmks.pool.utilization", stats.getMax() == 0 ? 0.0
+                : (double) stats.getLeased() / stats.getMax()));
+        metrics.add(new Metric<>("accmks.pool.leases", client.getLeases()));
+        metrics.add(new Metric<>("accmks.pool.lease.timeouts", client.getLeaseTimeouts()));
+        metrics.add(new Metric<>("accmks.pool.wait.ms", client.getLeaseWaitMillis()));
+        metrics.add(new Metric<>("accmks.pool.wait.max.ms", client.getMaxLeaseWaitMillis()));
+        PoolStats asyncStats = asyncClient.getPoolStats();
+        metrics.add(new Metric<>("accmks.async.pool.leased", asyncStats.getLeased()));
+        metrics.add(new Metric<>("accmks.async.pool.available", asyncStats.getAvailable()));
+        metrics.add(new Metric<>("accmks.async.pool.pending", asyncStats.getPending()));
+        metrics.add(new Metric<>("accmks.async.pool.leases", asyncClient.getLeases()));
+        metrics.add(new Metric<>("accmks.async.pool.lease.timeouts", asyncClient.getLeaseTimeouts()));
+        metrics.add(new Metric<>("accmks.async.pool.wait.ms", asyncClient.getLeaseWaitMillis()));
+        metrics.add(new Metric<>("accmks.async.pool.wait.max.ms", asyncClient.getMaxLeaseWaitMillis()));
+        return metrics;
+    }
+}
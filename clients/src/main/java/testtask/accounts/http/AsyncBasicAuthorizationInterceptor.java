@@ -0,0 +1,32 @@
+package testtask.accounts.http;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.AsyncClientHttpRequestExecution;
+import org.springframework.http.client.AsyncClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.util.Base64Utils;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Basic authorization of AsyncRestTemplate requests, Spring has the interceptor for RestTemplate only.
+ */
+public class AsyncBasicAuthorizationInterceptor implements AsyncClientHttpRequestInterceptor {
+
+    private final String authorization;
+
+    public AsyncBasicAuthorizationInterceptor(String username, String password) {
+        this.authorization = "Basic " + Base64Utils.encodeToString(
+                (username + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public ListenableFuture<ClientHttpResponse> intercept(HttpRequest request, byte[] body,
+                                                          AsyncClientHttpRequestExecution execution) throws IOException {
+        request.getHeaders().set(HttpHeaders.AUTHORIZATION, authorization);
+        return execution.executeAsync(request, body);
+    }
+}
@@ -0,0 +1,67 @@
+package testtask.accounts.http;
+
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.nio.NHttpClientConnection;
+import org.apache.http.nio.reactor.ConnectingIOReactor;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Non-blocking connection pool which measures how long requests wait for a connection.
+ * A lease completes when the connection is ready, so the wait of a new connection includes its connect.
+ */
+class InstrumentedAsyncConnectionManager extends PoolingNHttpClientConnectionManager {
+
+    private final LeaseStats stats = new LeaseStats();
+
+    InstrumentedAsyncConnectionManager(ConnectingIOReactor ioReactor) {
+        super(ioReactor);
+    }
+
+    @Override
+    public Future<NHttpClientConnection> requestConnection(HttpRoute route, Object state, long connectTimeout,
+                                                           long leaseTimeout, TimeUnit unit,
+                                                           FutureCallback<NHttpClientConnection> callback) {
+        long start = System.nanoTime();
+        return super.requestConnection(route, state, connectTimeout, leaseTimeout, unit,
+                new FutureCallback<NHttpClientConnection>() {
+
+                    @Override
+                    public void completed(NHttpClientConnection connection) {
+                        stats.leased(start);
+                        if (callback != null) {
+                            callback.completed(connection);
+                        }
+                    }
+
+                    @Override
+                    public void failed(Exception e) {
+                        // the pool fails a request waiting longer than the lease timeout by TimeoutException
+                        if (e instanceof TimeoutException) {
+                            stats.timedOut(start);
+                        } else {
+                            stats.waited(start);
+                        }
+                        if (callback != null) {
+                            callback.failed(e);
+                        }
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        stats.waited(start);
+                        if (callback != null) {
+                            callback.cancelled();
+                        }
+                    }
+                });
+    }
+
+    LeaseStats getStats() {
+        return stats;
+    }
+}
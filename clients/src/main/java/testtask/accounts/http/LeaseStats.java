@@ -0,0 +1,62 @@
+package testtask.accounts.http;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of connection leases of a pool and how long requests waited for them.
+ */
+class LeaseStats {
+
+    private final LongAdder leases = new LongAdder();
+    private final LongAdder leaseTimeouts = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final LongAccumulator maxWaitNanos = new LongAccumulator(Math::max, 0L);
+
+    void leased(long startNanos) {
+        leases.increment();
+        waited(startNanos);
+    }
+
+    void timedOut(long startNanos) {
+        leaseTimeouts.increment();
+        waited(startNanos);
+    }
+
+    /**
+     * A wait which ended otherwise: failed or cancelled.
+     */
+    void waited(long startNanos) {
+        long wait = System.nanoTime() - startNanos;
+        waitNanos.add(wait);
+        maxWaitNanos.accumulate(wait);
+    }
+
+    /**
+     * @return count of connections taken from the pool
+     */
+    long getLeases() {
+        return leases.sum();
+    }
+
+    /**
+     * @return count of requests which got no connection in the lease timeout
+     */
+    long getLeaseTimeouts() {
+        return leaseTimeouts.sum();
+    }
+
+    /**
+     * @return total wait for connections in nanoseconds, timed out waits included
+     */
+    long getWaitNanos() {
+        return waitNanos.sum();
+    }
+
+    /**
+     * @return the longest wait for a connection in nanoseconds
+     */
+    long getMaxWaitNanos() {
+        return maxWaitNanos.get();
+    }
+}
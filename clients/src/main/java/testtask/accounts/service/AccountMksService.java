@@ -1,5 +1,9 @@
 package testtask.accounts.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.reactivex.Completable;
+import io.reactivex.Single;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -9,6 +13,7 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.web.client.AsyncRestTemplate;
 import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -16,15 +21,24 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 import testtask.accounts.exception.ClientException;
 import testtask.accounts.model.Account;
+import testtask.accounts.model.AccountPage;
+import testtask.accounts.serializator.SmileHttpMessageConverter;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import org.springframework.core.ParameterizedTypeReference;
 
 import testtask.accounts.util.MksUtil;
+import testtask.accounts.util.RxFutures;
 
 /**
  * Rest Client for Accounts Mks.
+ * <p>
+ * Every request has a non-blocking variant, which returns a cold Rx type: the request is sent on subscription,
+ * disposing of the subscription cancels it, no thread waits for the response.
  *
  * @author Olga Grazhdanova <dvl.java@gmail.com> at Jan 30, 2018
  */
@@ -44,11 +58,62 @@ public class AccountMksService {
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private AsyncRestTemplate asyncRestTemplate;
+
+    /**
+     * Exchange Smile with accounts mks, json otherwise.
+     */
+    @Value("${acc-mks.smile.enabled:true}")
+    private boolean smile = true;
+
+    private static final List<MediaType> ACCEPT_SMILE = Collections.unmodifiableList(Arrays.asList(
+            SmileHttpMessageConverter.APPLICATION_SMILE, MediaType.valueOf("application/json;q=0.9")));
+
+    private static final List<MediaType> ACCEPT_JSON = Collections.singletonList(MediaType.APPLICATION_JSON);
+
     private final ParameterizedTypeReference<List<Account>> typeAccountList = new ParameterizedTypeReference<List<Account>>() {
     };
 
+    private final ParameterizedTypeReference<Map<Long, List<Account>>> typeAccountsByClient = new ParameterizedTypeReference<Map<Long, List<Account>>>() {
+    };
+
+    /**
+     * Page of accounts with the entity tag it was sent with.
+     */
+    private static class TaggedPage {
+
+        final String eTag;
+        final List<Account> accounts;
+        final String nextCursor;
+
+        TaggedPage(String eTag, List<Account> accounts, String nextCursor) {
+            this.eTag = eTag;
+            this.accounts = accounts;
+            this.nextCursor = nextCursor;
+        }
+    }
+
+    /**
+     * Last tagged page by url, weighed by count of accounts.
+     */
+    private final Cache<String, TaggedPage> taggedPages;
+
     /**
-     * Find Accounts by ClientId
+     * @param maxTaggedAccounts max count of accounts in cached tagged pages
+     */
+    @Autowired
+    public AccountMksService(@Value("${acc-mks.etag-cache.max-accounts:100000}") long maxTaggedAccounts) {
+        this.taggedPages = Caffeine.newBuilder()
+                .maximumWeight(maxTaggedAccounts)
+                .weigher((String url, TaggedPage page) -> page.accounts.size() + 1)
+                .build();
+    }
+
+    /**
+     * Find Accounts by ClientId, walks all pages of accounts mks.
+     * A page received before is requested with its ETag, so an unchanged page comes back as 304 without the body.
+     * Returned accounts may be shared with the cache of pages and must not be modified.
      *
      * @param clientId
      * @return
@@ -57,8 +122,126 @@ public class AccountMksService {
         String url = getBaseAccountUrl("/ClientId/" + clientId);
         log.info("Mks Request: find accounts by clientId, url: " + url);
 
-        return sendRequest(url, HttpEntity.EMPTY, HttpMethod.GET, typeAccountList);
+        List<Account> accounts = new ArrayList<>();
+        String pageUrl = url;
+        while (pageUrl != null) {
+            TaggedPage cached = taggedPages.getIfPresent(pageUrl);
+            HttpHeaders headers = newHeaders();
+            if (cached != null) {
+                headers.setIfNoneMatch(cached.eTag);
+            }
+            ResponseEntity<List<Account>> response = restTemplate.exchange(pageUrl, HttpMethod.GET,
+                    new HttpEntity<>(headers), typeAccountList);
+
+            TaggedPage page = toPage(pageUrl, cached, response);
+            accounts.addAll(page.accounts);
+            pageUrl = nextPageUrl(url, page);
+        }
+        return accounts;
+    }
+
+    /**
+     * Non-blocking {@link #findAccountsByClientId(Long)}, pages are requested one by one
+     * with the same cache of tagged pages.
+     *
+     * @param clientId
+     * @return
+     */
+    public Single<List<Account>> findAccountsByClientIdAsync(Long clientId) {
+        String url = getBaseAccountUrl("/ClientId/" + clientId);
+        return Single.defer(() -> {
+            log.info("Mks Request: find accounts by clientId, url: {}", url);
+            return findPagesAsync(url, url, new ArrayList<>());
+        });
+    }
+
+    private Single<List<Account>> findPagesAsync(String url, String pageUrl, List<Account> accounts) {
+        TaggedPage cached = taggedPages.getIfPresent(pageUrl);
+        HttpHeaders headers = newHeaders();
+        if (cached != null) {
+            headers.setIfNoneMatch(cached.eTag);
+        }
+        return RxFutures.single(() -> asyncRestTemplate.exchange(pageUrl, HttpMethod.GET,
+                new HttpEntity<>(headers), typeAccountList))
+                .flatMap(response -> {
+                    TaggedPage page = toPage(pageUrl, cached, response);
+                    accounts.addAll(page.accounts);
+                    String nextUrl = nextPageUrl(url, page);
+                    return nextUrl != null ? findPagesAsync(url, nextUrl, accounts) : Single.just(accounts);
+                });
+    }
+
+    /**
+     * @param pageUrl
+     * @param cached page sent before, null if it isn't cached
+     * @param response response to the request of the page
+     * @return page of the response, the cached one if it is not modified
+     */
+    private TaggedPage toPage(String pageUrl, TaggedPage cached, ResponseEntity<List<Account>> response) {
+        if (cached != null && response.getStatusCode().equals(HttpStatus.NOT_MODIFIED)) {
+            return cached;
+        }
+        if (!response.getStatusCode().equals(HttpStatus.OK)) {
+            throw MksUtil.createClientExceptionFromResponseError(response.getBody(), pageUrl);
+        }
+        TaggedPage page = new TaggedPage(response.getHeaders().getETag(),
+                response.getBody() != null ? response.getBody() : Collections.emptyList(),
+                response.getHeaders().getFirst(AccountPage.NEXT_CURSOR_HEADER));
+        if (page.eTag != null) {
+            taggedPages.put(pageUrl, page);
+        } else if (cached != null) {
+            taggedPages.invalidate(pageUrl);
+        }
+        return page;
+    }
+
+    /**
+     * @return url of the page after the given one, null for the last page
+     */
+    private static String nextPageUrl(String url, TaggedPage page) {
+        return page.nextCursor != null
+                ? UriComponentsBuilder.fromHttpUrl(url).queryParam("cursor", page.nextCursor).toUriString()
+                : null;
+    }
 
+    /**
+     * Find Accounts of many clients by one request.
+     *
+     * @param clientIds
+     * @return accounts grouped by client id, every requested client has a list, maybe empty
+     */
+    public Map<Long, List<Account>> findAccountsByClientIds(List<Long> clientIds) throws ClientException {
+        if (clientIds == null || clientIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        String url = getBaseAccountUrl("/byClientIds");
+        log.info("Mks Request: find accounts of {} clients, url: {}", clientIds.size(), url);
+
+        ResponseEntity<Map<Long, List<Account>>> response = restTemplate.exchange(url, HttpMethod.POST,
+                wrapToSend(clientIds), typeAccountsByClient);
+        if (!response.getStatusCode().equals(HttpStatus.OK)) {
+            throw MksUtil.createClientExceptionFromResponseError(response.getBody(), url);
+        }
+        return response.getBody();
+    }
+
+    /**
+     * Non-blocking {@link #findAccountsByClientIds(List)}.
+     *
+     * @param clientIds
+     * @return accounts grouped by client id, every requested client has a list, maybe empty
+     */
+    public Single<Map<Long, List<Account>>> findAccountsByClientIdsAsync(List<Long> clientIds) {
+        if (clientIds == null || clientIds.isEmpty()) {
+            return Single.just(Collections.emptyMap());
+        }
+
+        String url = getBaseAccountUrl("/byClientIds");
+        return RxFutures.single(() -> {
+            log.info("Mks Request: find accounts of {} clients, url: {}", clientIds.size(), url);
+            return asyncRestTemplate.exchange(url, HttpMethod.POST, wrapToSend(clientIds), typeAccountsByClient);
+        }).map(response -> bodyOf(response, url, Collections.emptyMap()));
     }
 
     /**
@@ -70,12 +253,27 @@ public class AccountMksService {
         String url = getBaseAccountUrl("/clientId/" + clientId);
         log.info("Mks Request: delete accounts by clientId, url: {}", url);
 
-        ResponseEntity<Object> response = restTemplate.exchange(url, HttpMethod.DELETE, HttpEntity.EMPTY, Object.class);
+        ResponseEntity<Object> response = restTemplate.exchange(url, HttpMethod.DELETE, new HttpEntity<>(newHeaders()),
+                Object.class);
         if (!response.getStatusCode().equals(HttpStatus.OK)) {
             throw MksUtil.createClientExceptionFromResponseError(response.getBody(), url);
         }
     }
 
+    /**
+     * Non-blocking {@link #deleteAccountsByClientId(Long)}.
+     *
+     * @param clientId
+     * @return
+     */
+    public Completable deleteAccountsByClientIdAsync(Long clientId) {
+        String url = getBaseAccountUrl("/clientId/" + clientId);
+        return RxFutures.single(() -> {
+            log.info("Mks Request: delete accounts by clientId, url: {}", url);
+            return asyncRestTemplate.exchange(url, HttpMethod.DELETE, new HttpEntity<>(newHeaders()), Object.class);
+        }).doOnSuccess(response -> checkOk(response, url)).toCompletable();
+    }
+
     /**
      * Create Accounts
      *
@@ -98,6 +296,26 @@ public class AccountMksService {
         return sendRequest(url, accounts, HttpMethod.POST, typeAccountList);
     }
 
+    /**
+     * Non-blocking {@link #createAccounts(Long, List)}.
+     *
+     * @param clientId
+     * @param accounts
+     * @return
+     */
+    public Single<List<Account>> createAccountsAsync(Long clientId, List<Account> accounts) {
+        if (accounts == null || accounts.isEmpty()) {
+            return Single.just(Collections.emptyList());
+        }
+
+        String url = getBaseAccountUrl("/list");
+        return Single.defer(() -> {
+            accounts.forEach(acc -> acc.setClientId(clientId));
+            log.info("Mks Request: create accounts, url: {} ", url);
+            return sendRequestAsync(url, accounts, HttpMethod.POST, typeAccountList);
+        });
+    }
+
     /**
      *
      * @param clientId
@@ -116,6 +334,25 @@ public class AccountMksService {
 
     }
     
+    /**
+     * Non-blocking {@link #updateAccounts(Long, List)}.
+     *
+     * @param clientId
+     * @param accounts
+     * @return
+     */
+    public Single<List<Account>> updateAccountsAsync(Long clientId, List<Account> accounts) {
+        if (accounts == null || accounts.isEmpty()) {
+            return Single.just(Collections.emptyList());
+        }
+
+        String url = getBaseAccountUrl("/list/client/" + clientId);
+        return Single.defer(() -> {
+            log.info("Mks Request: update accounts, url: {} ", url);
+            return sendRequestAsync(url, accounts, HttpMethod.PUT, typeAccountList);
+        });
+    }
+
      private <T extends Object> List<T> sendRequest(String url, Object content, HttpMethod method, ParameterizedTypeReference<List<T>> typeReference) {
          return sendRequest(url, wrapToSend(content), method, typeReference);
      }
@@ -130,6 +367,31 @@ public class AccountMksService {
         }
     }
 
+    private <T> Single<List<T>> sendRequestAsync(String url, Object content, HttpMethod method,
+                                                 ParameterizedTypeReference<List<T>> typeReference) {
+        return RxFutures.single(() -> asyncRestTemplate.exchange(url, method, wrapToSend(content), typeReference))
+                .map(response -> bodyOf(response, url, Collections.emptyList()));
+    }
+
+    /**
+     * @throws ClientException if the status is not OK
+     */
+    private static void checkOk(ResponseEntity<?> response, String url) {
+        if (!response.getStatusCode().equals(HttpStatus.OK)) {
+            throw MksUtil.createClientExceptionFromResponseError(response.getBody(), url);
+        }
+    }
+
+    /**
+     * @param empty value of the OK response without a body, Rx types don't emit null
+     * @return body of the OK response
+     * @throws ClientException for other statuses
+     */
+    private static <T> T bodyOf(ResponseEntity<T> response, String url, T empty) {
+        checkOk(response, url);
+        return response.getBody() != null ? response.getBody() : empty;
+    }
+
     private String getBaseAccountUrl(String path) {
         UriComponentsBuilder uri = UriComponentsBuilder.newInstance();
         uri.scheme("http").host(HOST).port(PORT).path(URL_ACCOUNTS);
@@ -143,10 +405,18 @@ public class AccountMksService {
             return HttpEntity.EMPTY;
         }
         
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
+        HttpHeaders headers = newHeaders();
+        headers.setContentType(smile ? SmileHttpMessageConverter.APPLICATION_SMILE : MediaType.APPLICATION_JSON);
         HttpEntity<?> requestEntity = new HttpEntity<>(content, headers);
         return requestEntity;
     }
 
+    /**
+     * Headers which ask for Smile first, errors of accounts mks come in the accepted format too.
+     */
+    private HttpHeaders newHeaders() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(smile ? ACCEPT_SMILE : ACCEPT_JSON);
+        return headers;
+    }
 }
@@ -2,7 +2,6 @@ package testtask.accounts.service;
 
 import io.reactivex.Completable;
 import io.reactivex.Single;
-import io.reactivex.schedulers.Schedulers;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -13,7 +12,13 @@ import testtask.accounts.exception.ClientException;
 import testtask.accounts.model.Account;
 import testtask.accounts.model.Client;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
 import org.springframework.transaction.annotation.Transactional;
 
 import static testtask.accounts.exception.MicroserviceException.ErrorTypes;
@@ -70,6 +75,32 @@ public class ClientService {
         return client;
     }
 
+    /**
+     * Find Clients with accounts, accounts of all clients are read by one request to accounts mks.
+     *
+     * @param ids
+     * @return existing clients in the order of ids
+     */
+    public List<Client> findAllWithAccounts(List<Long> ids) {
+
+        if (ids == null || ids.contains(null)) {
+            throw new ClientException(ErrorTypes.validation, "Client Ids must be not null.");
+        }
+
+        Map<Long, ClientEntity> entities = StreamSupport.stream(repository.findAll(ids).spliterator(), false)
+                .collect(Collectors.toMap(ClientEntity::getId, Function.identity()));
+        List<Long> foundIds = ids.stream().distinct().filter(entities::containsKey).collect(Collectors.toList());
+        Map<Long, List<Account>> accounts = accountsMksService.findAccountsByClientIds(foundIds);
+
+        List<Client> clients = new ArrayList<>(foundIds.size());
+        for (Long id : foundIds) {
+            Client client = ClientConverter.toModel(entities.get(id));
+            client.setAccounts(accounts.getOrDefault(id, Collections.emptyList()));
+            clients.add(client);
+        }
+        return clients;
+    }
+
     /**
      * Create new Client with accounts.
      *
@@ -86,26 +117,19 @@ public class ClientService {
             throw new ClientException(client.getId(), ErrorTypes.validation, "Can't create client with predefined id");
         }
 
-        // save client
+        // save client, then accounts with the id of the client; no thread waits for accounts mks
         Single<Client> jobClientSave = Single.fromCallable(() -> {
             ClientEntity entity = repository.save(ClientConverter.toEntity(client));
             Client clientSaved = ClientConverter.toModel(entity);
             return clientSaved;
         });
-        
-        // save accounts
-        Single<List<Account>> jobAccountSave = jobClientSave.flatMap((Client clientSaved) -> {
-            List<Account> accountsSavesd = accountsMksService.createAccounts(clientSaved.getId(), client.getAccounts());
-            return Single.just(accountsSavesd);
-        });
-        
-//        job1 = job1.subscribeOn(Schedulers.io());
-//        jobAccountSave = jobAccountSave.subscribeOn(Schedulers.io());
-        
-        Client clientResult = Single.zip(jobClientSave, jobAccountSave, (Client clientSaved, List<Account> accountsSaved) -> {
-            clientSaved.setAccounts(accountsSaved);
-            return clientSaved;
-        }).blockingGet();
+
+        Client clientResult = jobClientSave.flatMap((Client clientSaved) -> accountsMksService
+                .createAccountsAsync(clientSaved.getId(), client.getAccounts())
+                .map((List<Account> accountsSaved) -> {
+                    clientSaved.setAccounts(accountsSaved);
+                    return clientSaved;
+                })).blockingGet();
 
         return clientResult;
     }
@@ -124,23 +148,20 @@ public class ClientService {
             throw new ClientException(ErrorTypes.validation, "Can't update, id must be not null.");
         }
 
-        if (!repository.exists(id)) {
+        // findOne is served by the second level cache, exists always queries the database
+        if (repository.findOne(id) == null) {
             throw new ClientException(client.getId(), ErrorTypes.not_found);
         }
 
-        // action update accounts
-        Single<List<Account>> jobAccountsMks = Single.fromCallable(() -> accountsMksService.updateAccounts(id, client.getAccounts()));
+        // action update accounts, the request is in flight while the client is saved
+        Single<List<Account>> jobAccountsMks = accountsMksService.updateAccountsAsync(id, client.getAccounts());
 
-        // action update client
+        // action update client, in the transaction of the calling thread
         Single<Client> jobClient = Single.fromCallable(() -> {
             client.setId(id);
             return ClientConverter.toModel(repository.save(ClientConverter.toEntity(client)));
         });
 
-        // multithreading
-        jobAccountsMks = jobAccountsMks.subscribeOn(Schedulers.io());
-        //jobClient = jobClient.subscribeOn(Schedulers.io());
-
         // wait all results
         Client clientResult = Single.zip(jobAccountsMks, jobClient, (accounts, clientUpdated) -> {
             clientUpdated.setAccounts(accounts);
@@ -161,15 +182,12 @@ public class ClientService {
             throw new ClientException(ErrorTypes.validation, "Can't delete, id must be not null");
         }
 
-        if (!repository.exists(id)) {
+        if (repository.findOne(id) == null) {
             throw new ClientException(id, ErrorTypes.not_found);
         }
 
-        // action 1
-        Completable jobAccountsMks = Completable.fromAction(() -> {
-            log.info(">>> ActionOne, deleteAccountsByClientId >> Thread: " + Thread.currentThread().getName());
-            accountsMksService.deleteAccountsByClientId(id);
-        });
+        // action 1, non-blocking
+        Completable jobAccountsMks = accountsMksService.deleteAccountsByClientIdAsync(id);
 
         // action 2
         Completable jobMain = Completable.fromAction(() -> {
@@ -177,11 +195,8 @@ public class ClientService {
             repository.delete(id);
         });
 
-        // multithreading
-        jobAccountsMks = jobAccountsMks.subscribeOn(Schedulers.io());
-
-        // wait both actions
-        jobMain.mergeWith(jobAccountsMks).blockingAwait();
+        // send the request first, delete in the transaction of the calling thread and wait both actions
+        jobAccountsMks.mergeWith(jobMain).blockingAwait();
 
     }
 }
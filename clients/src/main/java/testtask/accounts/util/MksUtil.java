@@ -1,12 +1,15 @@
 package testtask.accounts.util;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.List;
 import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.MediaType;
 import testtask.accounts.exception.ApiErrorDto;
 import testtask.accounts.exception.ClientException;
+import testtask.accounts.serializator.SmileHttpMessageConverter;
 import static testtask.accounts.exception.MicroserviceException.*;
 
 /**
@@ -15,6 +18,9 @@ import static testtask.accounts.exception.MicroserviceException.*;
  */
 public class MksUtil {
 
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
+    private static final ObjectMapper SMILE_MAPPER = new ObjectMapper(new SmileFactory());
+
     /**
      *
      * @param <T>
@@ -24,7 +30,7 @@ public class MksUtil {
      */
     public static <T extends Object> T convertBodyValue(Object body, Class<T> clazz) {
         try {
-            T obj = new ObjectMapper().convertValue(body, clazz);
+            T obj = JSON_MAPPER.convertValue(body, clazz);
             return obj;
         } catch (IllegalArgumentException e) {
             return null;
@@ -39,8 +45,23 @@ public class MksUtil {
      * @return
      */
     public static <T extends Object> T readBodyValue(InputStream body, Class<T> clazz) {
+        return readBodyValue(body, null, clazz);
+    }
+
+    /**
+     * Read the body in the format of its content type: Smile or json.
+     *
+     * @param <T>
+     * @param body
+     * @param contentType content type of the body, json when null
+     * @param clazz
+     * @return null if the body can't be read
+     */
+    public static <T extends Object> T readBodyValue(InputStream body, MediaType contentType, Class<T> clazz) {
+        ObjectMapper mapper = contentType != null && SmileHttpMessageConverter.APPLICATION_SMILE.includes(contentType)
+                ? SMILE_MAPPER : JSON_MAPPER;
         try {
-            T obj = new ObjectMapper().readValue(body, clazz);
+            T obj = mapper.readValue(body, clazz);
             return obj;
         } catch (IOException e) {
             return null;
@@ -87,6 +108,7 @@ public class MksUtil {
         ApiErrorDto errorDto = convertBodyValue(bodyErrorDto, ApiErrorDto.class);
         message += (errorDto != null) ? errorDto.toString() : "Unknown response body";
 
-        return new ClientException(ErrorTypes.bad_mks_request, message);
+        return new ClientException(ErrorTypes.bad_mks_request, message,
+                errorDto != null ? errorDto.getErrors() : null);
     }
 }
@@ -0,0 +1,32 @@
+package testtask.accounts.util;
+
+import io.reactivex.Single;
+import org.springframework.util.concurrent.ListenableFuture;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Rx types over listenable futures of AsyncRestTemplate.
+ * <p>
+ * The request is sent on every subscription, not when the Single is created,
+ * and disposing of the subscription cancels the request in flight.
+ * Results and errors are emitted on the thread which completed the future, an I/O thread of the http client.
+ */
+public final class RxFutures {
+
+    private RxFutures() {
+    }
+
+    /**
+     * @param <T>
+     * @param request starts the request
+     * @return
+     */
+    public static <T> Single<T> single(Callable<ListenableFuture<T>> request) {
+        return Single.create(emitter -> {
+            ListenableFuture<T> future = request.call();
+            emitter.setCancellable(() -> future.cancel(true));
+            future.addCallback(emitter::onSuccess, emitter::onError);
+        });
+    }
+}
@@ -3,10 +3,13 @@ package testtask.accounts.validator;
 
 import org.springframework.stereotype.Component;
 import testtask.accounts.exception.ClientException;
+import testtask.accounts.exception.ItemError;
 import testtask.accounts.exception.MicroserviceException;
 import testtask.accounts.model.Client;
 import testtask.accounts.validation.BaseValidator;
 
+import java.util.List;
+
 /**
  *
  * @author Strannica
@@ -20,8 +23,14 @@ public class ClientValidator extends BaseValidator<Client, ClientException>{
     }
 
     @Override
-    protected ClientException createException(MicroserviceException.ErrorTypes errorType, String message) {
-        return new ClientException(errorType, message);
+    protected ClientException createException(MicroserviceException.ErrorTypes errorType, String message,
+                                              List<ItemError> itemErrors) {
+        return new ClientException(errorType, message, itemErrors);
+    }
+
+    @Override
+    protected String format(String message) {
+        return message.replace("{items}", "clients").replace("{item}", "Client");
     }
     
 }
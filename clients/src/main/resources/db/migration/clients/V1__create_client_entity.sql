@@ -0,0 +1,8 @@
+create table client_entity (
+    id bigint not null,
+    first_name varchar(255),
+    middle_name varchar(255),
+    last_name varchar(255),
+    birthday timestamp,
+    primary key (id)
+);
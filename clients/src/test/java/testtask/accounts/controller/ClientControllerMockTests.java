@@ -10,6 +10,7 @@ import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.boot.test.json.JacksonTester;
 import org.springframework.dao.InvalidDataAccessResourceUsageException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
@@ -31,6 +32,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static testtask.accounts.TestHelper.createAccountsNotNullIdList;
 import static testtask.accounts.exception.MicroserviceException.ErrorTypes;
 
 /**
@@ -180,6 +182,34 @@ public class ClientControllerMockTests {
         assertThat(errorDto.getErrType()).isEqualTo(exp.getType().toString());
     }
 
+    @Test
+    public void notModifiedWhenClientWithAccountsMatches() throws Exception {
+
+        // given
+        final Client client = new Client("Ivan", "Ivanov");
+        client.setId(1L);
+        client.setAccounts(createAccountsNotNullIdList());
+        BDDMockito.given(clientService.findWithAccounts(1L)).willReturn(client);
+        String eTag = mockMvc.perform(get(URL + "/withAccounts/1")).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // when
+        MockHttpServletResponse response = mockMvc.perform(get(URL + "/withAccounts/1")
+                .header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andDo(print())
+                .andReturn().getResponse();
+
+        // then
+        assertThat(eTag).isNotNull();
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_MODIFIED.value());
+        assertThat(response.getContentAsString()).isEmpty();
+
+        // and a changed account is sent again
+        client.getAccounts().get(1).setName("Renamed");
+        response = mockMvc.perform(get(URL + "/withAccounts/1").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andReturn().getResponse();
+        assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+    }
+
     @Test
     public void getErrorWhenMksAccountsInNotAvailable() throws Exception {
 
@@ -0,0 +1,105 @@
+package testtask.accounts.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class AccountMksAsyncHttpClientTests {
+
+    private final CountDownLatch released = new CountDownLatch(1);
+    private HttpServer server;
+    private AccountMksAsyncHttpClient httpClient;
+
+    @Before
+    public void init() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            if (exchange.getRequestURI().getPath().startsWith("/held")) {
+                try {
+                    released.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void clear() throws IOException {
+        released.countDown();
+        if (httpClient != null) {
+            httpClient.close();
+        }
+        server.stop(0);
+    }
+
+    @Test(timeout = 10_000)
+    public void idleConnectionsAreEvicted() throws Exception {
+        httpClient = new AccountMksAsyncHttpClient(10, 10, 500, 1000, 100, 200);
+
+        get("/accounts");
+        get("/accounts");
+        assertThat(httpClient.getLeases()).isEqualTo(2);
+        assertThat(httpClient.getPoolStats().getAvailable()).isEqualTo(1);
+
+        while (httpClient.getPoolStats().getAvailable() > 0) {
+            Thread.sleep(20);
+        }
+        assertThat(httpClient.getPoolStats().getLeased()).isZero();
+    }
+
+    @Test(timeout = 10_000)
+    public void leaseTimeoutsAndWaitsAreCounted() throws Exception {
+        httpClient = new AccountMksAsyncHttpClient(1, 1, 500, 5000, 100, 15000);
+
+        Future<HttpResponse> held = httpClient.getClient().execute(new HttpGet(url("/held")), null);
+        while (httpClient.getPoolStats().getLeased() == 0) {
+            Thread.sleep(5);
+        }
+        try {
+            get("/accounts");
+            fail("the only connection is leased");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause()).isInstanceOf(TimeoutException.class);
+        }
+        assertThat(httpClient.getLeaseTimeouts()).isEqualTo(1);
+        // timed out by the lease timeout, not when the held connection is released
+        assertThat(httpClient.getMaxLeaseWaitMillis()).isBetween(90L, 2_000L);
+
+        released.countDown();
+        EntityUtils.consume(held.get().getEntity());
+        assertThat(httpClient.getLeases()).isEqualTo(1);
+    }
+
+    private void get(String path) throws Exception {
+        HttpResponse response = httpClient.getClient().execute(new HttpGet(url(path)), null).get();
+        EntityUtils.consume(response.getEntity());
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+}
@@ -0,0 +1,104 @@
+package testtask.accounts.http;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.util.EntityUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+
+public class AccountMksHttpClientTests {
+
+    private HttpServer server;
+    private AccountMksHttpClient httpClient;
+
+    @Before
+    public void init() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void clear() throws IOException {
+        if (httpClient != null) {
+            httpClient.close();
+        }
+        server.stop(0);
+    }
+
+    @Test
+    public void warmedUpConnectionsAreReused() throws IOException {
+        httpClient = newClient(server.getAddress().getPort(), 10, 100);
+
+        assertThat(httpClient.warmUp(3)).isEqualTo(3);
+        assertThat(httpClient.getPoolStats().getAvailable()).isEqualTo(3);
+
+        for (int i = 0; i < 5; i++) {
+            get("/accounts");
+        }
+        assertThat(httpClient.getPoolStats().getAvailable()).isEqualTo(3);
+        assertThat(httpClient.getPoolStats().getLeased()).isZero();
+        assertThat(httpClient.getLeases()).isEqualTo(3 + 5);
+    }
+
+    @Test
+    public void requestFailsWhenNoConnectionIsFreeInLeaseTimeout() throws IOException {
+        httpClient = newClient(server.getAddress().getPort(), 1, 100);
+
+        try (CloseableHttpResponse held = httpClient.getClient().execute(new HttpGet(url("/accounts")))) {
+            assertThat(httpClient.getPoolStats().getLeased()).isEqualTo(1);
+            get("/accounts");
+            fail("the only connection is leased");
+        } catch (ConnectionPoolTimeoutException e) {
+            assertThat(httpClient.getLeaseTimeouts()).isEqualTo(1);
+            assertThat(httpClient.getMaxLeaseWaitMillis()).isGreaterThanOrEqualTo(90);
+        }
+        assertThat(httpClient.getPoolStats().getLeased()).isZero();
+    }
+
+    @Test
+    public void warmUpDoesNotFailWhenAccountsMksIsDown() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        httpClient = newClient(port, 10, 100);
+
+        assertThat(httpClient.warmUp(3)).isZero();
+        assertThat(httpClient.getPoolStats().getAvailable()).isZero();
+        assertThat(httpClient.getPoolStats().getLeased()).isZero();
+    }
+
+    private AccountMksHttpClient newClient(int port, int maxConnections, int leaseTimeout) {
+        return new AccountMksHttpClient("localhost", port, maxConnections, maxConnections, 500, 1000,
+                leaseTimeout, 15000, 0);
+    }
+
+    private void get(String path) throws IOException {
+        try (CloseableHttpResponse response = httpClient.getClient().execute(new HttpGet(url(path)))) {
+            EntityUtils.consume(response.getEntity());
+        }
+    }
+
+    private String url(String path) {
+        return "http://localhost:" + server.getAddress().getPort() + path;
+    }
+}
@@ -1,26 +1,46 @@
 package testtask.accounts.service;
 
+import io.reactivex.Single;
+import io.reactivex.observers.TestObserver;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.BDDMockito;
 import org.mockito.InjectMocks;
 import org.mockito.Matchers;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.client.MockClientHttpResponse;
+import org.springframework.util.concurrent.SettableListenableFuture;
+import org.springframework.web.client.AsyncRestTemplate;
 import org.springframework.web.client.RestTemplate;
 import testtask.accounts.exception.ApiErrorDto;
+import testtask.accounts.exception.ClientException;
+import testtask.accounts.exception.MicroserviceException;
+import testtask.accounts.exception.ResponseMksErrorHandler;
 import testtask.accounts.model.Account;
+import testtask.accounts.serializator.ObjectMappers;
+import testtask.accounts.serializator.SmileHttpMessageConverter;
+
+import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static testtask.accounts.TestHelper.*;
 import org.springframework.core.ParameterizedTypeReference;
 import static org.mockito.Matchers.any;
@@ -35,8 +55,11 @@ public class AccountMksServiceMockTests {
     @Mock
     private RestTemplate restTemplate;
 
+    @Mock
+    private AsyncRestTemplate asyncRestTemplate;
+
     @InjectMocks
-    private AccountMksService accountMksService;
+    private AccountMksService accountMksService = new AccountMksService(100_000);
 
     @Rule
     public ExpectedException thrown = ExpectedException.none();
@@ -81,6 +104,32 @@ public class AccountMksServiceMockTests {
         assertThat(accountsFind).isEqualTo(accounts);
     }
 
+    @Test
+    public void findAccountsByClientIdReusesNotModifiedPage() {
+        // given
+        final List<Account> accounts = createAccountsNotNullIdList();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"page1\"");
+        BDDMockito.given(restTemplate.exchange(anyString(),
+                any(HttpMethod.class),
+                Matchers.<HttpEntity<?>>any(),
+                Matchers.<ParameterizedTypeReference<List<Account>>>any()))
+                .willReturn(new ResponseEntity<>(accounts, headers, HttpStatus.OK))
+                .willReturn(new ResponseEntity<>(HttpStatus.NOT_MODIFIED));
+
+        // when
+        accountMksService.findAccountsByClientId(1L);
+        List<Account> accountsFind = accountMksService.findAccountsByClientId(1L);
+
+        // then
+        assertThat(accountsFind).isEqualTo(accounts);
+        ArgumentCaptor<HttpEntity> requests = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(restTemplate, times(2)).exchange(anyString(), eq(HttpMethod.GET), requests.capture(),
+                Matchers.<ParameterizedTypeReference<List<Account>>>any());
+        assertThat(requests.getAllValues().get(0).getHeaders().getIfNoneMatch()).isEmpty();
+        assertThat(requests.getAllValues().get(1).getHeaders().getIfNoneMatch()).containsExactly("\"page1\"");
+    }
+
     @Test
     public void throwExceptionWhenFindAccountsMksReturnError() {
         // expect
@@ -150,6 +199,112 @@ public class AccountMksServiceMockTests {
         accountMksService.updateAccounts(1L, createAccountsNullIdsList());
     }
 
+    @Test
+    public void createAccountsSendsSmileAndAcceptsJsonAsFallback() {
+        // given
+        final List<Account> accounts = createAccountsNotNullIdList();
+        mockRequestExchangeForList(new ResponseEntity(accounts, HttpStatus.OK));
+
+        // when
+        accountMksService.createAccounts(1L, createAccountsNullIdsList());
+
+        // then
+        ArgumentCaptor<HttpEntity> requests = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(restTemplate).exchange(anyString(), eq(HttpMethod.POST), requests.capture(),
+                Matchers.<ParameterizedTypeReference<List<Account>>>any());
+        HttpHeaders headers = requests.getValue().getHeaders();
+        assertThat(headers.getContentType()).isEqualTo(SmileHttpMessageConverter.APPLICATION_SMILE);
+        assertThat(headers.getAccept()).containsExactly(SmileHttpMessageConverter.APPLICATION_SMILE,
+                MediaType.valueOf("application/json;q=0.9"));
+    }
+
+    @Test
+    public void smileErrorOfAccountsMksIsRead() throws IOException {
+        // expect
+        thrown.expect(expBadMksRequestMatcher());
+        thrown.expectMessage("Can't create Account with predefined id");
+
+        // given
+        ApiErrorDto error = new ApiErrorDto(MicroserviceException.ErrorTypes.validation,
+                "Can't create Account with predefined id: 5");
+        MockClientHttpResponse response = new MockClientHttpResponse(
+                ObjectMappers.smile().writeValueAsBytes(error), HttpStatus.BAD_REQUEST);
+        response.getHeaders().setContentType(SmileHttpMessageConverter.APPLICATION_SMILE);
+
+        // when
+        new ResponseMksErrorHandler().handleError(response);
+    }
+
+    @Test
+    public void createAccountsAsyncSendsRequestOnSubscribe() {
+        // given
+        final List<Account> accounts = createAccountsNotNullIdList();
+        SettableListenableFuture<ResponseEntity<List<Account>>> future = mockAsyncExchangeForList();
+
+        // when
+        Single<List<Account>> created = accountMksService.createAccountsAsync(1L, createAccountsNullIdsList());
+
+        // then
+        verify(asyncRestTemplate, never()).exchange(anyString(), any(HttpMethod.class),
+                Matchers.<HttpEntity<?>>any(), Matchers.<ParameterizedTypeReference<List<Account>>>any());
+        TestObserver<List<Account>> observer = created.test();
+        observer.assertNoValues();
+        future.set(new ResponseEntity<>(accounts, HttpStatus.OK));
+        observer.assertValue(accounts);
+    }
+
+    @Test
+    public void okResponseWithoutBodyIsEmptyListOfAsyncRequest() {
+        // given
+        SettableListenableFuture<ResponseEntity<List<Account>>> future = mockAsyncExchangeForList();
+
+        // when
+        TestObserver<List<Account>> observer = accountMksService.updateAccountsAsync(1L, createAccountsNotNullIdList())
+                .test();
+        future.set(new ResponseEntity<>(HttpStatus.OK));
+
+        // then
+        observer.assertValue(Collections.emptyList());
+    }
+
+    @Test
+    public void disposeCancelsAsyncRequest() {
+        // given
+        SettableListenableFuture<ResponseEntity<List<Account>>> future = mockAsyncExchangeForList();
+
+        // when
+        accountMksService.updateAccountsAsync(1L, createAccountsNotNullIdList()).test().dispose();
+
+        // then
+        assertThat(future.isCancelled()).isTrue();
+    }
+
+    @Test
+    public void errorOfAccountsMksIsEmittedByAsyncRequest() {
+        // given
+        SettableListenableFuture<ResponseEntity<Object>> future = new SettableListenableFuture<>();
+        BDDMockito.given(asyncRestTemplate.exchange(anyString(), eq(HttpMethod.DELETE),
+                Matchers.<HttpEntity<?>>any(), eq(Object.class)))
+                .willReturn(future);
+
+        // when
+        TestObserver<Void> observer = accountMksService.deleteAccountsByClientIdAsync(1L).test();
+        future.setException(new ClientException(MicroserviceException.ErrorTypes.bad_mks_request));
+
+        // then
+        observer.assertError(ClientException.class);
+    }
+
+    private SettableListenableFuture<ResponseEntity<List<Account>>> mockAsyncExchangeForList() {
+        SettableListenableFuture<ResponseEntity<List<Account>>> future = new SettableListenableFuture<>();
+        BDDMockito.given(asyncRestTemplate.exchange(anyString(),
+                any(HttpMethod.class),
+                Matchers.<HttpEntity<?>>any(),
+                Matchers.<ParameterizedTypeReference<List<Account>>>any()))
+                .willReturn(future);
+        return future;
+    }
+
     private void mockRequestExchange(final ResponseEntity response) {
         BDDMockito.given(restTemplate.exchange(anyString(),
                 any(HttpMethod.class),
@@ -1,5 +1,7 @@
 package testtask.accounts.service;
 
+import io.reactivex.Completable;
+import io.reactivex.Single;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -14,9 +16,13 @@ import testtask.accounts.ClientsApplication;
 import testtask.accounts.dao.ClientConverter;
 import testtask.accounts.dao.ClientEntity;
 import testtask.accounts.dao.ClientRepository;
+import testtask.accounts.model.Account;
 import testtask.accounts.model.Client;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import static org.junit.Assert.assertEquals;
@@ -86,6 +92,21 @@ public class ClientServiceIntegrationTests {
         assertEquals(clientData.getLastName(), find.getLastName());
     }
 
+    @Test
+    public void findClientsWithAccountsByOneMksRequest() {
+        final long notExistedId = 52345345L;
+        List<Account> accounts = createAccountsNotNullIdList();
+        BDDMockito.given(accountMksService.findAccountsByClientIds(Arrays.asList(clientData.getId())))
+                .willReturn(Collections.singletonMap(clientData.getId(), accounts));
+
+        List<Client> found = service.findAllWithAccounts(Arrays.asList(notExistedId, clientData.getId()));
+
+        assertThat(found).hasSize(1);
+        assertThat(found.get(0).getId()).isEqualTo(clientData.getId());
+        assertThat(found.get(0).getAccounts()).isEqualTo(accounts);
+        BDDMockito.verify(accountMksService).findAccountsByClientIds(Matchers.anyListOf(Long.class));
+    }
+
     /**
      * Test throw exception then item not exist.
      */
@@ -103,9 +124,15 @@ public class ClientServiceIntegrationTests {
         clientNew.setFirstName("Max");
         clientNew.setMiddleName("Mad");
         clientNew.setBirthday(new Date());
+        final long countClientsBefore = repository.count();
+        BDDMockito.given(accountMksService.createAccountsAsync(Matchers.anyLong(), Matchers.anyListOf(Account.class)))
+                .willReturn(Single.just(Collections.emptyList()));
 
         clientNew = service.create(clientNew);
         assertNotNull(clientNew.getId());
+        assertThat(repository.count()).isEqualTo(countClientsBefore + 1);
+        BDDMockito.verify(accountMksService).createAccountsAsync(Matchers.eq(clientNew.getId()),
+                Matchers.anyListOf(Account.class));
 
         Client clientFromDb = ClientConverter.toModel(repository.findOne(clientNew.getId()));
         assertEquals(clientNew.getFirstName(), clientFromDb.getFirstName());
@@ -131,11 +158,16 @@ public class ClientServiceIntegrationTests {
     public void canUpdateExistedClient() {
 
         final String newMiddleName = "Daredevil";
+        List<Account> accounts = createAccountsNotNullIdList();
+        clientData.setAccounts(accounts);
+        BDDMockito.given(accountMksService.updateAccountsAsync(clientData.getId(), accounts))
+                .willReturn(Single.just(accounts));
         clientData.setMiddleName(newMiddleName);
-        service.update(clientData.getId(), clientData);
+        Client updated = service.update(clientData.getId(), clientData);
 
         Client clientFromDb = ClientConverter.toModel(repository.findOne(clientData.getId()));
         assertEquals(newMiddleName, clientFromDb.getMiddleName());
+        assertThat(updated.getAccounts()).isEqualTo(accounts);
     }
 
     /**
@@ -175,15 +207,25 @@ public class ClientServiceIntegrationTests {
         service.delete(notExistedId);
     }
 
+    @Test
+    public void canDeleteClientWithAccounts() {
+        BDDMockito.given(accountMksService.deleteAccountsByClientIdAsync(clientData.getId()))
+                .willReturn(Completable.complete());
+
+        service.delete(clientData.getId());
+
+        assertThat(repository.findOne(clientData.getId())).isNull();
+        BDDMockito.verify(accountMksService).deleteAccountsByClientIdAsync(clientData.getId());
+    }
+
     @Test
     public void rollbackTransactionThenDeleteAccountsWithError() throws Exception {
         thrown.expect(ClientException.class);
 
         // given
         final long countClientsBefore = repository.count();
-        BDDMockito.willThrow(new ClientException(MicroserviceException.ErrorTypes.bad_mks_request))
-                .given(accountMksService)
-                .deleteAccountsByClientId(Matchers.anyLong());
+        BDDMockito.given(accountMksService.deleteAccountsByClientIdAsync(Matchers.anyLong()))
+                .willReturn(Completable.error(new ClientException(MicroserviceException.ErrorTypes.bad_mks_request)));
 
         // when
         try {
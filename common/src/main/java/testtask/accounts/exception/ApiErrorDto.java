@@ -1,8 +1,11 @@
 package testtask.accounts.exception;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.client.ResourceAccessException;
 
+import java.util.List;
+
 /**
  * Created by Alex Volobuev on 26.01.2018.
  */
@@ -12,6 +15,12 @@ public class ApiErrorDto {
     private String message;
     private String errType;
 
+    /**
+     * Errors of items of a list request, absent for other errors.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<ItemError> errors;
+
     public ApiErrorDto() {
     }
 
@@ -45,6 +54,7 @@ public class ApiErrorDto {
 
     public ApiErrorDto(MicroserviceException e) {
         this(e.getType(), e.getInfo());
+        this.errors = e.getItemErrors();
     }
 
     public ApiErrorDto(ResourceAccessException exp) {
@@ -75,6 +85,14 @@ public class ApiErrorDto {
         this.errType = errType;
     }
 
+    public List<ItemError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<ItemError> errors) {
+        this.errors = errors;
+    }
+
     @Override
     public String toString() {
         return  (errType != null ? "errorType: " + errType : "")
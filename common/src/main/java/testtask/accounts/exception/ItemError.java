@@ -0,0 +1,68 @@
+package testtask.accounts.exception;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Error of one item of a list request.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ItemError {
+
+    private int index;
+    private Long id;
+    private String field;
+    private String message;
+
+    public ItemError() {
+    }
+
+    /**
+     * @param index index of the item in the request list
+     * @param id id of the item, if it has one
+     * @param field invalid field, null for an error of the whole item
+     * @param message
+     */
+    public ItemError(int index, Long id, String field, String message) {
+        this.index = index;
+        this.id = id;
+        this.field = field;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public void setField(String field) {
+        this.field = field;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + index + "] " + message;
+    }
+}
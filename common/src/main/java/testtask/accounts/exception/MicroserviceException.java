@@ -1,5 +1,7 @@
 package testtask.accounts.exception;
 
+import java.util.List;
+
 /**
  *
  * @author Olga Grazhdanova <dvl.java@gmail.com> at Jan 27, 2018
@@ -8,6 +10,7 @@ public class MicroserviceException extends RuntimeException {
 
     private final ErrorTypes type;
     private final String info;
+    private final List<ItemError> itemErrors;
 
     public enum ErrorTypes {
         business,
@@ -24,12 +27,23 @@ public class MicroserviceException extends RuntimeException {
     public MicroserviceException(RuntimeException ex) {
         info = ex.getLocalizedMessage();
         type = ErrorTypes.other;
+        itemErrors = null;
     }
 
     public MicroserviceException(ErrorTypes type, String info) {
+        this(type, info, null);
+    }
+
+    /**
+     * @param type
+     * @param info
+     * @param itemErrors errors of list items, null if the error is not about items
+     */
+    public MicroserviceException(ErrorTypes type, String info, List<ItemError> itemErrors) {
         super(info);
         this.type = type;
         this.info = info;
+        this.itemErrors = itemErrors;
     }
 
     public String getInfo() {
@@ -40,4 +54,8 @@ public class MicroserviceException extends RuntimeException {
         return type;
     }
 
+    public List<ItemError> getItemErrors() {
+        return itemErrors;
+    }
+
 }
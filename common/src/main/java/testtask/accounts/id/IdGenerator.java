@@ -0,0 +1,14 @@
+package testtask.accounts.id;
+
+/**
+ * Source of unique entity ids generated inside the application.
+ */
+public interface IdGenerator {
+
+    /**
+     * Next unique id, thread safe.
+     *
+     * @return
+     */
+    long nextId();
+}
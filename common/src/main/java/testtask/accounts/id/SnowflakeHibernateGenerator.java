@@ -0,0 +1,53 @@
+package testtask.accounts.id;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hibernate id generator backed by {@link SnowflakeIdGenerator}, so ids are assigned without database round trips
+ * and inserts can be jdbc batched.
+ * Node id is read from hibernate setting {@value #NODE_SETTING}
+ * (spring.jpa.properties.mks.id.node), it must be unique for every running instance of a service.
+ * One generator per node is shared by all entities.
+ */
+public class SnowflakeHibernateGenerator implements IdentifierGenerator, Configurable {
+
+    public static final String NAME = "snowflake";
+    public static final String STRATEGY = "testtask.accounts.id.SnowflakeHibernateGenerator";
+    public static final String NODE_SETTING = "mks.id.node";
+
+    private static final Map<Long, IdGenerator> GENERATORS = new ConcurrentHashMap<>();
+
+    private IdGenerator generator;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Object node = serviceRegistry.getService(ConfigurationService.class).getSettings().get(NODE_SETTING);
+        long nodeId;
+        try {
+            nodeId = node == null ? 0L : Long.parseLong(node.toString().trim());
+        } catch (NumberFormatException e) {
+            throw new MappingException("Invalid " + NODE_SETTING + ": " + node, e);
+        }
+        try {
+            generator = GENERATORS.computeIfAbsent(nodeId, SnowflakeIdGenerator::new);
+        } catch (IllegalArgumentException e) {
+            throw new MappingException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Serializable generate(SessionImplementor session, Object object) {
+        return generator.nextId();
+    }
+}
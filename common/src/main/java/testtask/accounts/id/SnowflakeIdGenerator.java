@@ -0,0 +1,83 @@
+package testtask.accounts.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Time ordered 64 bit ids: 41 bits of milliseconds since {@link #EPOCH}, 10 bits of node id
+ * and 12 bits of sequence inside the millisecond.
+ * Ids of one node are strictly increasing, nodes with different ids never collide.
+ * <p>
+ * Lock free: the last id is kept in one AtomicLong and the next id is taken by CAS.
+ * When the sequence of the current millisecond is exhausted or the clock goes back,
+ * the generator continues from the last id and borrows the next millisecond instead of waiting.
+ */
+public class SnowflakeIdGenerator implements IdGenerator {
+
+    /**
+     * 2018-01-01T00:00:00Z
+     */
+    public static final long EPOCH = 1514764800000L;
+
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final long MAX_NODE = (1L << NODE_BITS) - 1;
+
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+
+    private final long node;
+    private final LongSupplier clock;
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * @param node unique number of the service instance, 0..1023
+     */
+    public SnowflakeIdGenerator(long node) {
+        this(node, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(long node, LongSupplier clock) {
+        if (node < 0 || node > MAX_NODE) {
+            throw new IllegalArgumentException("Node id must be between 0 and " + MAX_NODE + ": " + node);
+        }
+        this.node = node;
+        this.clock = clock;
+    }
+
+    @Override
+    public long nextId() {
+        for (;;) {
+            long prev = last.get();
+            long next = ((clock.getAsLong() - EPOCH) << TIMESTAMP_SHIFT) | (node << SEQUENCE_BITS);
+            if (next <= prev) {
+                next = (prev & SEQUENCE_MASK) == SEQUENCE_MASK
+                        ? ((timestamp(prev) + 1) << TIMESTAMP_SHIFT) | (node << SEQUENCE_BITS)
+                        : prev + 1;
+            }
+            if (last.compareAndSet(prev, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Milliseconds since {@link #EPOCH} when the id was generated.
+     *
+     * @param id
+     * @return
+     */
+    public static long timestamp(long id) {
+        return id >>> TIMESTAMP_SHIFT;
+    }
+
+    /**
+     * Node which generated the id.
+     *
+     * @param id
+     * @return
+     */
+    public static long node(long id) {
+        return (id >>> SEQUENCE_BITS) & MAX_NODE;
+    }
+}
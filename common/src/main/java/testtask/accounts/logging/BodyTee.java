@@ -0,0 +1,54 @@
+package testtask.accounts.logging;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Copies the first bytes of a body going through a stream and counts all of them.
+ * Used by one request thread at a time.
+ */
+class BodyTee {
+
+    private final int limit;
+    private byte[] head = new byte[0];
+    private int length;
+    private long total;
+
+    BodyTee(int limit) {
+        this.limit = limit;
+    }
+
+    void write(int b) {
+        if (length < limit) {
+            ensure(length + 1);
+            head[length++] = (byte) b;
+        }
+        total++;
+    }
+
+    void write(byte[] b, int off, int len) {
+        if (len <= 0) {
+            return;
+        }
+        int copied = Math.min(len, limit - length);
+        if (copied > 0) {
+            ensure(length + copied);
+            System.arraycopy(b, off, head, length, copied);
+            length += copied;
+        }
+        total += len;
+    }
+
+    /**
+     * @param charset charset of a text body, null for a binary one
+     */
+    RequestLogEvent.BodyCapture capture(Charset charset) {
+        return new RequestLogEvent.BodyCapture(Arrays.copyOf(head, length), total, charset);
+    }
+
+    private void ensure(int capacity) {
+        if (capacity > head.length) {
+            head = Arrays.copyOf(head, Math.min(limit, Math.max(capacity, Math.max(64, head.length * 2))));
+        }
+    }
+}
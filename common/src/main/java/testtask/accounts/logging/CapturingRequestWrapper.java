@@ -0,0 +1,100 @@
+package testtask.accounts.logging;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Request which copies the first bytes of the body while the application reads it.
+ * Unlike caching wrappers it never keeps more than the limit, so streamed bodies stay streamed.
+ */
+class CapturingRequestWrapper extends HttpServletRequestWrapper {
+
+    private final BodyTee tee;
+    private ServletInputStream inputStream;
+    private BufferedReader reader;
+
+    CapturingRequestWrapper(HttpServletRequest request, int limit) {
+        super(request);
+        this.tee = new BodyTee(limit);
+    }
+
+    @Override
+    public ServletInputStream getInputStream() throws IOException {
+        if (inputStream == null) {
+            inputStream = new TeeInputStream(super.getInputStream());
+        }
+        return inputStream;
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        if (reader == null) {
+            reader = new BufferedReader(new InputStreamReader(getInputStream(), charset()));
+        }
+        return reader;
+    }
+
+    /**
+     * Bodies of binary content types are captured as bytes, they are not decoded by the charset.
+     */
+    RequestLogEvent.BodyCapture capture() {
+        return tee.capture(RequestLogEvent.BodyCapture.isText(getContentType()) ? charset() : null);
+    }
+
+    private Charset charset() {
+        String encoding = getCharacterEncoding();
+        return encoding == null || !Charset.isSupported(encoding) ? StandardCharsets.UTF_8 : Charset.forName(encoding);
+    }
+
+    private class TeeInputStream extends ServletInputStream {
+
+        private final ServletInputStream delegate;
+
+        TeeInputStream(ServletInputStream delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = delegate.read();
+            if (b >= 0) {
+                tee.write(b);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int count = delegate.read(b, off, len);
+            tee.write(b, off, count);
+            return count;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return delegate.isFinished();
+        }
+
+        @Override
+        public boolean isReady() {
+            return delegate.isReady();
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            delegate.setReadListener(readListener);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package testtask.accounts.logging;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+import java.nio.charset.Charset;
+import java.util.Base64;
+import java.util.Locale;
+
+/**
+ * One logged request with its response. Bodies are kept as captured bytes
+ * and decoded by the log writer, not by the request thread.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonPropertyOrder({"time", "method", "uri", "query", "status", "durationMs", "error",
+        "requestBytes", "request", "responseBytes", "response"})
+public class RequestLogEvent {
+
+    private final long time;
+    private final String method;
+    private final String uri;
+    private final String query;
+    private final int status;
+    private final long durationMs;
+    private final String error;
+    private final BodyCapture request;
+    private final BodyCapture response;
+
+    /**
+     * @param time start of the request, epoch millis
+     * @param method
+     * @param uri
+     * @param query query string, null if none
+     * @param status
+     * @param durationMs
+     * @param error class of exception thrown by the request, null if none
+     * @param request captured request body
+     * @param response captured response body
+     */
+    public RequestLogEvent(long time, String method, String uri, String query, int status, long durationMs,
+                           String error, BodyCapture request, BodyCapture response) {
+        this.time = time;
+        this.method = method;
+        this.uri = uri;
+        this.query = query;
+        this.status = status;
+        this.durationMs = durationMs;
+        this.error = error;
+        this.request = request;
+        this.response = response;
+    }
+
+    public long getTime() {
+        return time;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getRequestBytes() {
+        return request.getTotal();
+    }
+
+    /**
+     * @return request body, cut to the payload limit with "..." at the end, null if empty,
+     * see {@link BodyCapture#decode()}
+     */
+    public String getRequest() {
+        return request.decode();
+    }
+
+    public long getResponseBytes() {
+        return response.getTotal();
+    }
+
+    /**
+     * @return response body, cut to the payload limit with "..." at the end, null if empty,
+     * see {@link BodyCapture#decode()}
+     */
+    public String getResponse() {
+        return response.decode();
+    }
+
+    @JsonIgnore
+    public BodyCapture getRequestCapture() {
+        return request;
+    }
+
+    @JsonIgnore
+    public BodyCapture getResponseCapture() {
+        return response;
+    }
+
+    /**
+     * First bytes of a body and the count of all its bytes.
+     */
+    public static class BodyCapture {
+
+        static final String BASE64_PREFIX = "base64:";
+
+        private final byte[] head;
+        private final long total;
+        private final Charset charset;
+
+        /**
+         * @param head first bytes of the body
+         * @param total count of all bytes of the body
+         * @param charset charset of a text body, null for a binary one
+         */
+        public BodyCapture(byte[] head, long total, Charset charset) {
+            this.head = head;
+            this.total = total;
+            this.charset = charset;
+        }
+
+        public byte[] getHead() {
+            return head;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public boolean isTruncated() {
+            return total > head.length;
+        }
+
+        public boolean isBinary() {
+            return charset == null;
+        }
+
+        /**
+         * @return text of a text body, "base64:" and base64 of bytes of a binary body, e.g. smile
+         */
+        String decode() {
+            if (head.length == 0) {
+                return null;
+            }
+            String text = isBinary() ? BASE64_PREFIX + Base64.getEncoder().encodeToString(head)
+                    : new String(head, charset);
+            return isTruncated() ? text + "..." : text;
+        }
+
+        /**
+         * @param contentType content type of the body, null if unknown
+         * @return false for content types which are not text, e.g. application/x-jackson-smile
+         */
+        static boolean isText(String contentType) {
+            if (contentType == null) {
+                return true;
+            }
+            String type = contentType.toLowerCase(Locale.ROOT);
+            return type.startsWith("text/") || type.contains("json") || type.contains("xml")
+                    || type.contains("x-www-form-urlencoded") || type.contains("javascript");
+        }
+    }
+}
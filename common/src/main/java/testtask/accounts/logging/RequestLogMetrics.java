@@ -0,0 +1,34 @@
+package testtask.accounts.logging;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.PublicMetrics;
+import org.springframework.boot.actuate.metrics.Metric;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * State of {@link RequestLogWriter} for the actuator /metrics endpoint.
+ */
+@Component
+public class RequestLogMetrics implements PublicMetrics {
+
+    private final RequestLogWriter writer;
+
+    @Autowired
+    public RequestLogMetrics(RequestLogWriter writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public Collection<Metric<?>> metrics() {
+        List<Metric<?>> metrics = new ArrayList<>(4);
+        metrics.add(new Metric<>("requestlog.written", writer.getWritten()));
+        metrics.add(new Metric<>("requestlog.dropped", writer.getDropped()));
+        metrics.add(new Metric<>("requestlog.queued", writer.getQueued()));
+        metrics.add(new Metric<>("requestlog.capacity", writer.getCapacity()));
+        return metrics;
+    }
+}
@@ -0,0 +1,148 @@
+package testtask.accounts.logging;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes request log events to the "requests" logger, one json line per event, on its own daemon thread.
+ * <p>
+ * Request threads only put events to {@link RingBuffer}; formatting and appender work happen here.
+ * When the writer falls behind and the buffer is full, new events are dropped and counted,
+ * requests never wait for the log.
+ * <p>
+ * An idle writer parks until a request thread wakes it up: the thread which finds the writer idle after its offer
+ * unparks it. The park is still limited by the max idle time, so the writer never sleeps for long.
+ */
+@Slf4j
+@Component
+public class RequestLogWriter {
+
+    private static final Logger REQUESTS = LoggerFactory.getLogger("requests");
+    private static final long MAX_IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final RingBuffer<RequestLogEvent> buffer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong dropped = new AtomicLong();
+    /**
+     * set by the writer before it checks the buffer and parks, taken by the request thread which wakes it up
+     */
+    private final AtomicBoolean idle = new AtomicBoolean();
+    private volatile long written;
+    private volatile boolean running;
+    private volatile Thread thread;
+
+    @Autowired
+    public RequestLogWriter(@Value("${request-log.buffer-size:8192}") int bufferSize) {
+        this(new RingBuffer<>(bufferSize));
+    }
+
+    RequestLogWriter(RingBuffer<RequestLogEvent> buffer) {
+        this.buffer = buffer;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "request-log-writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stop the writer thread after it writes events already in the buffer.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    /**
+     * Queue the event without blocking.
+     *
+     * @param event
+     * @return false if the buffer is full and the event is dropped
+     */
+    public boolean offer(RequestLogEvent event) {
+        if (buffer.offer(event)) {
+            if (idle.get() && idle.compareAndSet(true, false)) {
+                LockSupport.unpark(thread);
+            }
+            return true;
+        }
+        dropped.incrementAndGet();
+        return false;
+    }
+
+    private void run() {
+        while (running) {
+            if (drain() > 0) {
+                continue;
+            }
+            idle.set(true);
+            // an offer after the check sees the idle flag and unparks
+            if (buffer.size() == 0 && running) {
+                LockSupport.parkNanos(this, MAX_IDLE_NANOS);
+            }
+            idle.set(false);
+        }
+        drain();
+    }
+
+    /**
+     * @return count of written events
+     */
+    int drain() {
+        int count = 0;
+        RequestLogEvent event;
+        while ((event = buffer.poll()) != null) {
+            write(event);
+            count++;
+        }
+        written += count;
+        return count;
+    }
+
+    private void write(RequestLogEvent event) {
+        if (!REQUESTS.isInfoEnabled()) {
+            return;
+        }
+        try {
+            REQUESTS.info(objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException | RuntimeException e) {
+            log.warn("Request log event of {} {} is not written", event.getMethod(), event.getUri(), e);
+        }
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getWritten() {
+        return written;
+    }
+
+    public int getQueued() {
+        return buffer.size();
+    }
+
+    public int getCapacity() {
+        return buffer.capacity();
+    }
+}
@@ -0,0 +1,99 @@
+package testtask.accounts.logging;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * Logs sampled requests with their responses, the health check is not logged.
+ * <p>
+ * Only the first {@code request-log.max-payload} bytes of bodies are copied on the request thread,
+ * the event goes to {@link RequestLogWriter} which formats and writes it in the background.
+ * Not sampled requests pass through without wrappers. The filter runs before security,
+ * so rejected requests are logged too.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+public class RequestLoggingFilter extends OncePerRequestFilter {
+
+    private final RequestLogWriter writer;
+    private final boolean enabled;
+    private final double sampleRate;
+    private final int maxPayload;
+    private final List<String> excluded;
+
+    /**
+     * @param writer
+     * @param enabled
+     * @param sampleRate share of logged requests, 0..1
+     * @param maxPayload bytes of a body kept in the event
+     * @param excluded paths which are not logged, with their subpaths
+     */
+    @Autowired
+    public RequestLoggingFilter(RequestLogWriter writer,
+                                @Value("${request-log.enabled:true}") boolean enabled,
+                                @Value("${request-log.sample-rate:1.0}") double sampleRate,
+                                @Value("${request-log.max-payload:1024}") int maxPayload,
+                                @Value("${request-log.exclude:/health}") String[] excluded) {
+        this.writer = writer;
+        this.enabled = enabled;
+        this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+        this.maxPayload = Math.max(0, maxPayload);
+        this.excluded = Arrays.stream(excluded).map(String::trim).filter(path -> !path.isEmpty())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        for (String excludedPath : excluded) {
+            if (path.equals(excludedPath) || path.startsWith(excludedPath + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long time = System.currentTimeMillis();
+        long start = System.nanoTime();
+        CapturingRequestWrapper requestWrapper = new CapturingRequestWrapper(request, maxPayload);
+        CapturingResponseWrapper responseWrapper = new CapturingResponseWrapper(response, maxPayload);
+        Throwable error = null;
+        try {
+            chain.doFilter(requestWrapper, responseWrapper);
+            responseWrapper.flushWriter();
+        } catch (IOException | ServletException | RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            writer.offer(new RequestLogEvent(time, request.getMethod(), request.getRequestURI(),
+                    request.getQueryString(),
+                    error == null ? responseWrapper.getStatus() : HttpServletResponse.SC_INTERNAL_SERVER_ERROR,
+                    (System.nanoTime() - start) / 1_000_000L, error == null ? null : error.getClass().getName(),
+                    requestWrapper.capture(), responseWrapper.capture()));
+        }
+    }
+}
@@ -1,6 +1,9 @@
 
 package testtask.accounts.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import javax.validation.constraints.DecimalMax;
 import javax.validation.constraints.Digits;
 import javax.validation.constraints.Min;
 import javax.validation.constraints.NotNull;
@@ -15,7 +18,7 @@ import java.util.Objects;
 public class Account extends BaseModel{
 
     @NotNull
-    @Digits(integer = 6, fraction = 0)
+    @Digits(integer = 19, fraction = 0)
     private Long clientId;
 
     @Pattern(regexp = "[\\p{L} 0-9]+", message = "Only letters numbers and space")
@@ -24,10 +27,34 @@ public class Account extends BaseModel{
 
     @NotNull
     @Min(value = 0L, message = "The value must be positive")
+    @DecimalMax(value = "92233720368547758.07", message = "The value is too big")
     private BigDecimal balance;
 
     private Currency currency;
 
+    /**
+     * Row version, not a part of the api, used for entity tags.
+     */
+    @JsonIgnore
+    private Long version;
+
+    public Account() {
+    }
+
+    /**
+     * For constructor expressions of queries, builds the account without a managed entity.
+     */
+    public Account(Long id, Long clientId, String name, Money balance, Long version) {
+        this.id = id;
+        this.clientId = clientId;
+        this.name = name;
+        if (balance != null) {
+            this.balance = balance.toBigDecimal();
+            this.currency = balance.getCurrency();
+        }
+        this.version = version;
+    }
+
     @Override
     public String toString() {
         return "Account{"
@@ -71,6 +98,14 @@ public class Account extends BaseModel{
         this.currency = currency;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
     @Override
     public boolean equals(Object obj) {
 
@@ -88,12 +123,18 @@ public class Account extends BaseModel{
                 && Objects.equals(this.name, acc.name)
                 && Objects.equals(this.clientId, acc.clientId)
                 && Objects.equals(this.currency, acc.currency)
-                && Objects.equals(this.balance.doubleValue(), acc.balance.doubleValue());
+                && (this.balance == null ? acc.balance == null
+                        : acc.balance != null
+                        && Money.roundToMinor(this.balance).equals(Money.roundToMinor(acc.balance)));
     }
 
+    /**
+     * Balance is compared in minor units, so 100.2 and 100.20 are equal and have equal hash codes.
+     * Any balance is compared, even one which doesn't fit to long minor units.
+     */
     @Override
     public int hashCode() {
-        return Objects.hash(id, clientId, name, balance, currency);
+        return Objects.hash(id, clientId, name, balance == null ? null : Money.roundToMinor(balance), currency);
     }
 
 }
@@ -0,0 +1,56 @@
+package testtask.accounts.model;
+
+import java.util.List;
+
+/**
+ * One keyset page of accounts.
+ *
+ * The page is sent to the wire as a plain json array of accounts, the cursor
+ * of the next page goes to the {@link #NEXT_CURSOR_HEADER} response header.
+ */
+public class AccountPage {
+
+    /**
+     * Response header with opaque cursor of the next page, absent on the last page.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private List<Account> accounts;
+    private String nextCursor;
+
+    public AccountPage() {
+    }
+
+    public AccountPage(List<Account> accounts, String nextCursor) {
+        this.accounts = accounts;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Account> getAccounts() {
+        return accounts;
+    }
+
+    public void setAccounts(List<Account> accounts) {
+        this.accounts = accounts;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountPage{"
+                + "size=" + (accounts != null ? accounts.size() : 0)
+                + ", nextCursor='" + nextCursor + '\''
+                + '}';
+    }
+}
@@ -0,0 +1,47 @@
+package testtask.accounts.model;
+
+import java.util.List;
+
+/**
+ * Accounts found by a list of ids.
+ *
+ * Accounts go in the order of the requested ids, ids of not existing accounts are listed in {@link #missingIds},
+ * so a missing account is not an error of the whole request.
+ */
+public class AccountsByIds {
+
+    private List<Account> accounts;
+    private List<Long> missingIds;
+
+    public AccountsByIds() {
+    }
+
+    public AccountsByIds(List<Account> accounts, List<Long> missingIds) {
+        this.accounts = accounts;
+        this.missingIds = missingIds;
+    }
+
+    public List<Account> getAccounts() {
+        return accounts;
+    }
+
+    public void setAccounts(List<Account> accounts) {
+        this.accounts = accounts;
+    }
+
+    public List<Long> getMissingIds() {
+        return missingIds;
+    }
+
+    public void setMissingIds(List<Long> missingIds) {
+        this.missingIds = missingIds;
+    }
+
+    @Override
+    public String toString() {
+        return "AccountsByIds{"
+                + "found=" + (accounts != null ? accounts.size() : 0)
+                + ", missingIds=" + missingIds
+                + '}';
+    }
+}
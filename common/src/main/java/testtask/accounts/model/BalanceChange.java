@@ -0,0 +1,75 @@
+package testtask.accounts.model;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+
+/**
+ * Deposit to or withdrawal from an account.
+ * In the response balance is the expected balance of the account after the change.
+ */
+public class BalanceChange {
+
+    private Long accountId;
+
+    @NotNull
+    @DecimalMin(value = "0.01", message = "The value must be positive")
+    @DecimalMax(value = "92233720368547758.07", message = "The value is too big")
+    private BigDecimal amount;
+
+    @NotNull
+    private Currency currency;
+
+    private BigDecimal balance;
+
+    public BalanceChange() {
+    }
+
+    public BalanceChange(BigDecimal amount, Currency currency) {
+        this.amount = amount;
+        this.currency = currency;
+    }
+
+    public Long getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(Long accountId) {
+        this.accountId = accountId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+    }
+
+    public BigDecimal getBalance() {
+        return balance;
+    }
+
+    public void setBalance(BigDecimal balance) {
+        this.balance = balance;
+    }
+
+    @Override
+    public String toString() {
+        return "BalanceChange{"
+                + "accountId=" + accountId
+                + ", amount=" + amount
+                + ", currency=" + currency
+                + ", balance=" + balance
+                + '}';
+    }
+}
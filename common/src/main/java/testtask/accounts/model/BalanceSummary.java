@@ -0,0 +1,95 @@
+package testtask.accounts.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregate of balances of client's accounts in one currency.
+ */
+public class BalanceSummary {
+
+    private Long clientId;
+    private Currency currency;
+    private long count;
+    private BigDecimal total;
+    private BigDecimal min;
+    private BigDecimal max;
+
+    public BalanceSummary() {
+    }
+
+    public BalanceSummary(Long clientId, Currency currency, long count, BigDecimal total, BigDecimal min,
+                          BigDecimal max) {
+        this.clientId = clientId;
+        this.currency = currency;
+        this.count = count;
+        this.total = total;
+        this.min = min;
+        this.max = max;
+    }
+
+    public Long getClientId() {
+        return clientId;
+    }
+
+    public void setClientId(Long clientId) {
+        this.clientId = clientId;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+    }
+
+    /**
+     * @return count of accounts
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+    /**
+     * @return sum of balances
+     */
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    public BigDecimal getMin() {
+        return min;
+    }
+
+    public void setMin(BigDecimal min) {
+        this.min = min;
+    }
+
+    public BigDecimal getMax() {
+        return max;
+    }
+
+    public void setMax(BigDecimal max) {
+        this.max = max;
+    }
+
+    @Override
+    public String toString() {
+        return "BalanceSummary{"
+                + "clientId=" + clientId
+                + ", currency=" + currency
+                + ", count=" + count
+                + ", total=" + total
+                + ", min=" + min
+                + ", max=" + max
+                + '}';
+    }
+}
@@ -0,0 +1,244 @@
+package testtask.accounts.model;
+
+import javax.persistence.Column;
+import javax.persistence.Convert;
+import javax.persistence.Embeddable;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Objects;
+
+/**
+ * Amount of money in minor units (cents) with its currency. Immutable.
+ * Arithmetic is exact and throws ArithmeticException on overflow instead of wrapping.
+ * In the database the amount is numeric(19, 2), see {@link MinorUnitsConverter}.
+ */
+@Embeddable
+public final class Money implements Comparable<Money>, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Digits after the decimal point.
+     */
+    public static final int SCALE = 2;
+
+    private static final long MINOR_PER_MAJOR = 100L;
+
+    @Convert(converter = MinorUnitsConverter.class)
+    @Column(precision = 19, scale = SCALE)
+    private long amount;
+
+    @Enumerated(EnumType.STRING)
+    @Column(length = 3)
+    private Currency currency;
+
+    /**
+     * For JPA only.
+     */
+    protected Money() {
+    }
+
+    private Money(long amount, Currency currency) {
+        this.amount = amount;
+        this.currency = currency;
+    }
+
+    /**
+     * @param minorUnits amount in minor units
+     * @param currency
+     * @return
+     */
+    public static Money ofMinor(long minorUnits, Currency currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    /**
+     * Amount is rounded HALF_UP to {@link #SCALE} digits.
+     *
+     * @param amount
+     * @param currency
+     * @return null if amount is null
+     * @throws ArithmeticException if amount doesn't fit to long minor units
+     */
+    public static Money of(BigDecimal amount, Currency currency) {
+        return amount == null ? null : new Money(toMinorUnits(amount), currency);
+    }
+
+    /**
+     * Parse plain decimal like "-123.4", without creating BigDecimal.
+     * More than {@link #SCALE} fraction digits are rounded HALF_UP.
+     *
+     * @param amount
+     * @param currency
+     * @return
+     * @throws NumberFormatException if amount is not a plain decimal
+     * @throws ArithmeticException on overflow
+     */
+    public static Money parse(CharSequence amount, Currency currency) {
+        int length = amount.length();
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (amount.charAt(0) == '-' || amount.charAt(0) == '+')) {
+            negative = amount.charAt(0) == '-';
+            i++;
+        }
+        // accumulated negative as in Long.parseLong, so Long.MIN_VALUE minor units can be parsed
+        long minor = 0;
+        int fraction = -1;
+        boolean digits = false;
+        boolean roundUp = false;
+        for (; i < length; i++) {
+            char c = amount.charAt(i);
+            if (c == '.' && fraction < 0) {
+                fraction = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                throw new NumberFormatException("Not a plain decimal: " + amount);
+            }
+            digits = true;
+            if (fraction == SCALE) {
+                // first dropped digit decides HALF_UP rounding, the rest are only checked
+                roundUp = c >= '5';
+                fraction++;
+            } else if (fraction < SCALE) {
+                minor = Math.subtractExact(Math.multiplyExact(minor, 10L), c - '0');
+                if (fraction >= 0) {
+                    fraction++;
+                }
+            }
+        }
+        if (!digits) {
+            throw new NumberFormatException("Not a plain decimal: " + amount);
+        }
+        for (int f = Math.max(fraction, 0); f < SCALE; f++) {
+            minor = Math.multiplyExact(minor, 10L);
+        }
+        if (roundUp) {
+            minor = Math.subtractExact(minor, 1L);
+        }
+        return new Money(negative ? minor : Math.negateExact(minor), currency);
+    }
+
+    /**
+     * @param amount
+     * @return amount rounded HALF_UP in minor units
+     * @throws ArithmeticException if amount doesn't fit to long
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Amount as it is in minor units, for comparisons of amounts which may not fit to long minor units.
+     *
+     * @param amount
+     * @return amount rounded HALF_UP to scale {@link #SCALE}
+     */
+    public static BigDecimal roundToMinor(BigDecimal amount) {
+        return amount.setScale(SCALE, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * @param minorUnits
+     * @return amount with scale {@link #SCALE}
+     */
+    public static BigDecimal toBigDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+
+    public Money plus(Money other) {
+        return new Money(Math.addExact(amount, checkCurrency(other).amount), currency);
+    }
+
+    public Money minus(Money other) {
+        return new Money(Math.subtractExact(amount, checkCurrency(other).amount), currency);
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(amount), currency);
+    }
+
+    public boolean isNegative() {
+        return amount < 0;
+    }
+
+    public boolean isZero() {
+        return amount == 0;
+    }
+
+    /**
+     * @return amount in minor units
+     */
+    public long getMinorUnits() {
+        return amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public BigDecimal toBigDecimal() {
+        return toBigDecimal(amount);
+    }
+
+    /**
+     * Amount without trailing fraction zeros and grouping, the same text as {@code JsonBigDecimalSerializer}
+     * writes for the amount: 100.2, -0.05, 7.
+     *
+     * @return
+     */
+    public String toPlainString() {
+        long major = amount / MINOR_PER_MAJOR;
+        int cents = (int) Math.abs(amount % MINOR_PER_MAJOR);
+        StringBuilder sb = new StringBuilder(24);
+        if (amount < 0) {
+            sb.append('-');
+        }
+        sb.append(Math.abs(major));
+        if (cents != 0) {
+            sb.append('.').append((char) ('0' + cents / 10));
+            if (cents % 10 != 0) {
+                sb.append((char) ('0' + cents % 10));
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(amount, checkCurrency(other).amount);
+    }
+
+    private Money checkCurrency(Money other) {
+        if (currency != other.currency) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+        return other;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Money)) {
+            return false;
+        }
+        Money other = (Money) obj;
+        return amount == other.amount && currency == other.currency;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Long.hashCode(amount) + Objects.hashCode(currency);
+    }
+
+    @Override
+    public String toString() {
+        return toPlainString() + " " + currency;
+    }
+}
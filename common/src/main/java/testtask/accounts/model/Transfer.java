@@ -0,0 +1,102 @@
+package testtask.accounts.model;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.util.Objects;
+
+/**
+ * Move of money from one account to another.
+ */
+public class Transfer {
+
+    @NotNull
+    private Long fromAccountId;
+
+    @NotNull
+    private Long toAccountId;
+
+    @NotNull
+    @DecimalMin(value = "0.01", message = "The value must be positive")
+    @DecimalMax(value = "92233720368547758.07", message = "The value is too big")
+    private BigDecimal amount;
+
+    /**
+     * Currency of the amount, both accounts must have it.
+     */
+    @NotNull
+    private Currency currency;
+
+    public Transfer() {
+    }
+
+    public Transfer(Long fromAccountId, Long toAccountId, BigDecimal amount, Currency currency) {
+        this.fromAccountId = fromAccountId;
+        this.toAccountId = toAccountId;
+        this.amount = amount;
+        this.currency = currency;
+    }
+
+    public Long getFromAccountId() {
+        return fromAccountId;
+    }
+
+    public void setFromAccountId(Long fromAccountId) {
+        this.fromAccountId = fromAccountId;
+    }
+
+    public Long getToAccountId() {
+        return toAccountId;
+    }
+
+    public void setToAccountId(Long toAccountId) {
+        this.toAccountId = toAccountId;
+    }
+
+    public BigDecimal getAmount() {
+        return amount;
+    }
+
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+
+    public Currency getCurrency() {
+        return currency;
+    }
+
+    public void setCurrency(Currency currency) {
+        this.currency = currency;
+    }
+
+    @Override
+    public String toString() {
+        return "Transfer{"
+                + "fromAccountId=" + fromAccountId
+                + ", toAccountId=" + toAccountId
+                + ", amount=" + amount
+                + ", currency=" + currency
+                + '}';
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof Transfer)) {
+            return false;
+        }
+        Transfer tr = (Transfer) obj;
+        return Objects.equals(fromAccountId, tr.fromAccountId)
+                && Objects.equals(toAccountId, tr.toAccountId)
+                && Objects.equals(currency, tr.currency)
+                && (amount == null ? tr.amount == null : tr.amount != null && amount.compareTo(tr.amount) == 0);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fromAccountId, toAccountId, currency);
+    }
+}
@@ -1,33 +1,148 @@
-
 package testtask.accounts.serializator;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.json.JsonGeneratorImpl;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
 import java.io.IOException;
 import java.math.BigDecimal;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
+import java.math.RoundingMode;
 
 /**
+ * Writes BigDecimal as plain decimal text without grouping, at most 3 fraction digits rounded half even,
+ * no trailing zeros and "-0" for negative values rounded to zero: the output of {@code DecimalFormat}
+ * of the default pattern with '.' separator, which was used before.
+ * <p>
+ * Stateless and thread-safe. A value of up to 18 digits is formatted into a per-thread char buffer
+ * and written to a json generator without an intermediate String.
+ * Binary formats (Smile) get the rounded BigDecimal itself.
  *
  * @author Olga Grazhdanova <dvl.java@gmail.com> at Jan 27, 2018
  */
 public class JsonBigDecimalSerializer extends JsonSerializer<BigDecimal> {
 
-    private final DecimalFormat format = (DecimalFormat) DecimalFormat.getInstance();
+    public static final int MAX_FRACTION_DIGITS = 3;
 
-    public JsonBigDecimalSerializer() {
-         format.setGroupingUsed(false);
-         DecimalFormatSymbols separator = new DecimalFormatSymbols();
-         separator.setDecimalSeparator('.');
-         format.setDecimalFormatSymbols(separator);
-    }
+    /**
+     * digits of the unscaled value which fit to long
+     */
+    private static final int MAX_FAST_DIGITS = 18;
+
+    /**
+     * sign, digits and point
+     */
+    private static final int BUFFER_SIZE = MAX_FAST_DIGITS + 2;
+
+    private static final ThreadLocal<char[]> BUFFERS = ThreadLocal.withInitial(() -> new char[BUFFER_SIZE]);
 
     @Override
     public void serialize(BigDecimal val, JsonGenerator jg, SerializerProvider sp) throws IOException, JsonProcessingException {
-        jg.writeNumber(format.format(val));
+        if (jg.canWriteBinaryNatively() && !(jg instanceof TokenBuffer)) {
+            // binary formats keep the number, not its text; TokenBuffer of convertValue gets the text as before
+            jg.writeNumber(val.scale() > MAX_FRACTION_DIGITS ? val.setScale(MAX_FRACTION_DIGITS, RoundingMode.HALF_EVEN) : val);
+            return;
+        }
+        char[] buffer = BUFFERS.get();
+        int start = formatFast(val, buffer);
+        if (start < 0) {
+            jg.writeNumber(formatSlow(val));
+        } else if (jg instanceof JsonGeneratorImpl && !jg.isEnabled(JsonGenerator.Feature.WRITE_NUMBERS_AS_STRINGS)) {
+            // json generators write the number text as it is, the same as writeNumber(String) does
+            jg.writeRawValue(buffer, start, BUFFER_SIZE - start);
+        } else {
+            jg.writeNumber(new String(buffer, start, BUFFER_SIZE - start));
+        }
+    }
+
+    /**
+     * @param value
+     * @return text of the value as the serializer writes it
+     */
+    public static String format(BigDecimal value) {
+        char[] buffer = BUFFERS.get();
+        int start = formatFast(value, buffer);
+        return start < 0 ? formatSlow(value) : new String(buffer, start, BUFFER_SIZE - start);
     }
 
+    /**
+     * Format into the end of the buffer by long arithmetic.
+     *
+     * @return index of the first char, -1 if the rounded value doesn't fit to long
+     */
+    private static int formatFast(BigDecimal value, char[] buffer) {
+        int scale = value.scale();
+        BigDecimal rounded = value;
+        if (scale > MAX_FRACTION_DIGITS) {
+            rounded = value.setScale(MAX_FRACTION_DIGITS, RoundingMode.HALF_EVEN);
+            scale = MAX_FRACTION_DIGITS;
+        } else if (scale < 0) {
+            if (value.precision() - scale > MAX_FAST_DIGITS) {
+                return -1;
+            }
+            rounded = value.setScale(0, RoundingMode.UNNECESSARY);
+            scale = 0;
+        }
+        if (rounded.precision() > MAX_FAST_DIGITS) {
+            return -1;
+        }
+        long unscaled = Math.abs(scale == 0 ? rounded.longValue() : rounded.movePointRight(scale).longValue());
+        while (scale > 0 && unscaled % 10 == 0) {
+            unscaled /= 10;
+            scale--;
+        }
+
+        int pos = BUFFER_SIZE;
+        for (int i = 0; i < scale; i++) {
+            buffer[--pos] = (char) ('0' + unscaled % 10);
+            unscaled /= 10;
+        }
+        if (scale > 0) {
+            buffer[--pos] = '.';
+        }
+        do {
+            buffer[--pos] = (char) ('0' + unscaled % 10);
+            unscaled /= 10;
+        } while (unscaled != 0);
+        // sign of the value, not of the rounded one: -0.0001 is "-0"
+        if (value.signum() < 0) {
+            buffer[--pos] = '-';
+        }
+        return pos;
+    }
+
+    /**
+     * Values of more than 18 digits are never rounded to zero, only trailing zeros of the fraction are cut.
+     */
+    private static String formatSlow(BigDecimal value) {
+        if (value.signum() == 0) {
+            return "0";
+        }
+        BigDecimal rounded = value.scale() > MAX_FRACTION_DIGITS
+                ? value.setScale(MAX_FRACTION_DIGITS, RoundingMode.HALF_EVEN) : value;
+        int scale = rounded.scale();
+        String digits = rounded.unscaledValue().abs().toString();
+        StringBuilder text = new StringBuilder(digits.length() + Math.max(0, -scale) + 2);
+        if (value.signum() < 0) {
+            text.append('-');
+        }
+        if (scale <= 0) {
+            text.append(digits);
+            for (int i = scale; i < 0; i++) {
+                text.append('0');
+            }
+            return text.toString();
+        }
+        int end = digits.length();
+        while (scale > 0 && digits.charAt(end - 1) == '0') {
+            end--;
+            scale--;
+        }
+        text.append(digits, 0, end - scale);
+        if (scale > 0) {
+            text.append('.').append(digits, end - scale, end);
+        }
+        return text.toString();
+    }
 }
@@ -0,0 +1,42 @@
+package testtask.accounts.serializator;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.jackson.JsonComponentModule;
+
+import java.math.BigDecimal;
+
+/**
+ * Object mappers of the microservices: the same model mapping for json and for Smile.
+ */
+public final class ObjectMappers {
+
+    private ObjectMappers() {
+    }
+
+    /**
+     * @return json mapper of the api
+     */
+    public static ObjectMapper json() {
+        ObjectMapper mapper = configure(new ObjectMapper());
+        mapper.configure(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES, true);
+        return mapper;
+    }
+
+    /**
+     * @return mapper of the binary json between microservices
+     */
+    public static ObjectMapper smile() {
+        return configure(new ObjectMapper(new SmileFactory()));
+    }
+
+    private static ObjectMapper configure(ObjectMapper mapper) {
+        JsonComponentModule jsonBigDecimal = new JsonComponentModule();
+        jsonBigDecimal.addSerializer(BigDecimal.class, new JsonBigDecimalSerializer());
+        mapper.registerModule(jsonBigDecimal);
+        mapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        return mapper;
+    }
+}
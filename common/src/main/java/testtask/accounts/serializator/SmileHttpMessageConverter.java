@@ -0,0 +1,29 @@
+package testtask.accounts.serializator;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.AbstractJackson2HttpMessageConverter;
+import org.springframework.util.Assert;
+
+/**
+ * Reads and writes bodies of {@code application/x-jackson-smile}, the binary form of json:
+ * field names are written once and back-referenced, numbers are binary. Same model mapping as json.
+ */
+public class SmileHttpMessageConverter extends AbstractJackson2HttpMessageConverter {
+
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType APPLICATION_SMILE = MediaType.valueOf(APPLICATION_SMILE_VALUE);
+
+    public SmileHttpMessageConverter() {
+        this(ObjectMappers.smile());
+    }
+
+    /**
+     * @param objectMapper mapper of {@link SmileFactory}
+     */
+    public SmileHttpMessageConverter(ObjectMapper objectMapper) {
+        super(objectMapper, APPLICATION_SMILE);
+        Assert.isInstanceOf(SmileFactory.class, objectMapper.getFactory(), "Smile mapper is required");
+    }
+}
@@ -0,0 +1,52 @@
+package testtask.accounts.statistics;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.AbstractEndpoint;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Actuator endpoint /cachestats: hit and miss counts of Hibernate second level cache regions.
+ * Counts are collected with hibernate.generate_statistics = true.
+ */
+@Component
+public class CacheStatisticsEndpoint extends AbstractEndpoint<Map<String, Object>> {
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    public CacheStatisticsEndpoint(EntityManagerFactory entityManagerFactory) {
+        super("cachestats");
+        this.entityManagerFactory = entityManagerFactory;
+    }
+
+    @Override
+    public Map<String, Object> invoke() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        Map<String, Object> regions = new TreeMap<>();
+        for (String name : statistics.getSecondLevelCacheRegionNames()) {
+            SecondLevelCacheStatistics region = statistics.getSecondLevelCacheStatistics(name);
+            if (region != null) {
+                Map<String, Object> counts = new LinkedHashMap<>();
+                counts.put("hits", region.getHitCount());
+                counts.put("misses", region.getMissCount());
+                counts.put("puts", region.getPutCount());
+                counts.put("elementsInMemory", region.getElementCountInMemory());
+                regions.put(name, counts);
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("statisticsEnabled", statistics.isStatisticsEnabled());
+        result.put("regions", regions);
+        return result;
+    }
+}
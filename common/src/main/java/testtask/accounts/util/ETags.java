@@ -0,0 +1,119 @@
+package testtask.accounts.util;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import testtask.accounts.model.Account;
+import testtask.accounts.model.Client;
+import testtask.accounts.model.Money;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Strong entity tags of api representations, computed from model fields without serializing the body.
+ * <p>
+ * An account with the row version is tagged by id and version, the version moves on every change of the row.
+ * Accounts without the version (received from another microservice) are tagged by a hash of their fields.
+ */
+public final class ETags {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private ETags() {
+    }
+
+    /**
+     * @param account
+     * @return quoted entity tag of the account
+     */
+    public static String of(Account account) {
+        if (account.getId() != null && account.getVersion() != null) {
+            return quote(Long.toHexString(account.getId()) + "." + Long.toHexString(account.getVersion()));
+        }
+        Hasher hasher = HASH.newHasher();
+        putAccount(hasher, account);
+        return quote(hasher.hash().toString());
+    }
+
+    /**
+     * @param accounts accounts of the page
+     * @param nextCursor cursor of the next page, null for the last page
+     * @return quoted entity tag of the page
+     */
+    public static String ofPage(List<Account> accounts, String nextCursor) {
+        Hasher hasher = HASH.newHasher();
+        putAccounts(hasher, accounts);
+        putString(hasher, nextCursor);
+        return quote(hasher.hash().toString());
+    }
+
+    /**
+     * @param client client with accounts
+     * @return quoted entity tag of the client
+     */
+    public static String of(Client client) {
+        Hasher hasher = HASH.newHasher();
+        putLong(hasher, client.getId());
+        putString(hasher, client.getFirstName());
+        putString(hasher, client.getMiddleName());
+        putString(hasher, client.getLastName());
+        putLong(hasher, client.getBirthday() == null ? null : client.getBirthday().getTime());
+        if (client.getAccounts() == null) {
+            hasher.putInt(-1);
+        } else {
+            putAccounts(hasher, client.getAccounts());
+        }
+        return quote(hasher.hash().toString());
+    }
+
+    private static void putAccounts(Hasher hasher, List<Account> accounts) {
+        hasher.putInt(accounts.size());
+        accounts.forEach(account -> putAccount(hasher, account));
+    }
+
+    private static void putAccount(Hasher hasher, Account account) {
+        putLong(hasher, account.getId());
+        if (account.getVersion() != null) {
+            hasher.putBoolean(true).putLong(account.getVersion());
+            return;
+        }
+        hasher.putBoolean(false);
+        putLong(hasher, account.getClientId());
+        putString(hasher, account.getName());
+        putAmount(hasher, account.getBalance());
+        hasher.putInt(account.getCurrency() == null ? -1 : account.getCurrency().ordinal());
+    }
+
+    private static void putLong(Hasher hasher, Long value) {
+        if (value == null) {
+            hasher.putBoolean(false);
+        } else {
+            hasher.putBoolean(true).putLong(value);
+        }
+    }
+
+    /**
+     * Amount in minor units, of any size.
+     */
+    private static void putAmount(Hasher hasher, BigDecimal amount) {
+        if (amount == null) {
+            hasher.putInt(-1);
+        } else {
+            byte[] minorUnits = Money.roundToMinor(amount).unscaledValue().toByteArray();
+            hasher.putInt(minorUnits.length).putBytes(minorUnits);
+        }
+    }
+
+    private static void putString(Hasher hasher, String value) {
+        if (value == null) {
+            hasher.putInt(-1);
+        } else {
+            hasher.putInt(value.length()).putUnencodedChars(value);
+        }
+    }
+
+    private static String quote(String tag) {
+        return "\"" + tag + "\"";
+    }
+}
@@ -1,47 +1,212 @@
 package testtask.accounts.validation;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import testtask.accounts.exception.ItemError;
 import testtask.accounts.exception.MicroserviceException;
 import static testtask.accounts.exception.MicroserviceException.*;
 import testtask.accounts.model.BaseModel;
 
 /**
+ * Validations of single items and of item lists.
+ * <p>
+ * A list is checked in one pass which collects errors of all items, the exception carries them
+ * with indexes of the items. Lists from {@link #PARALLEL_THRESHOLD} items are split across the common fork/join pool.
  *
  * @author Strannica
  */
 public abstract class BaseValidator<E extends BaseModel, T extends MicroserviceException> {
 
+    /**
+     * Lists of this size and bigger are checked in parallel.
+     */
+    public static final int PARALLEL_THRESHOLD = 8192;
+
+    /**
+     * Items checked by one fork/join task.
+     */
+    private static final int LEAF_SIZE = 2048;
+
+    /**
+     * Item errors listed in the exception message, all of them are in the item errors of the exception.
+     */
+    private static final int MESSAGE_ERRORS = 10;
+
     public abstract void validateItem(E item);
 
-    protected abstract T createException(ErrorTypes errorType, String message);
+    protected abstract T createException(ErrorTypes errorType, String message, List<ItemError> itemErrors);
+
+    protected T createException(ErrorTypes errorType, String message) {
+        return createException(errorType, message, null);
+    }
+
+    /**
+     * Replace item name placeholders of messages, "{item}" and "{items}".
+     *
+     * @param message
+     * @return
+     */
+    protected abstract String format(String message);
+
+    /**
+     * Add errors of the item to the list. Default implementation reports the first error of {@link #validateItem}.
+     *
+     * @param item
+     * @param index index of the item in the list
+     * @param errors
+     */
+    protected void checkItem(E item, int index, List<ItemError> errors) {
+        if (item == null) {
+            errors.add(new ItemError(index, null, null, format("Null {item} not allowed")));
+            return;
+        }
+        try {
+            validateItem(item);
+        } catch (MicroserviceException e) {
+            errors.add(new ItemError(index, item.getId(), null, e.getInfo()));
+        }
+    }
 
     public <T> void validateNotNull(T id, String errorMessage) {
         if (id == null) {
-            throw new MicroserviceException(ErrorTypes.null_argument, errorMessage);
+            throw new MicroserviceException(ErrorTypes.null_argument, format(errorMessage));
         }
     }
 
     public void updateValidations(E item) {
         validateItem(item);
         if (item.getId() == null) {
-            throw createException(ErrorTypes.validation, "Can't update {item} with null id");
+            throw createException(ErrorTypes.validation, format("Can't update {item} with null id"));
         }
     }
 
     public void createValidations(E item) {
         validateItem(item);
         if (item.getId() != null) {
-            throw createException(ErrorTypes.validation, "Can't create {item} with predefined id: " + item.getId());
+            throw createException(ErrorTypes.validation, format("Can't create {item} with predefined id: "
+                    + item.getId()));
         }
     }
 
     public void createValidations(List<E> items) {
         validateNotNull(items, "Can't create null {items}");
-        items.forEach(this::createValidations);
+        validateNoNullItems(items);
+        throwIfInvalid(checkCreate(items, 0), items.size());
     }
 
     public void updateValidations(List<E> items) {
         validateNotNull(items, "Null argument");
-        items.forEach(this::updateValidations);
+        validateNoNullItems(items);
+        throwIfInvalid(checkUpdate(items, 0), items.size());
+    }
+
+    private void validateNoNullItems(List<E> items) {
+        if (items.contains(null)) {
+            throw new MicroserviceException(ErrorTypes.null_argument, format("Null {item} not allowed"));
+        }
+    }
+
+    /**
+     * Check new items without throwing.
+     *
+     * @param items
+     * @param firstIndex index of the first item in the whole request, for lists validated by parts
+     * @return errors of all items ordered by index, empty if all items are valid
+     */
+    public List<ItemError> checkCreate(List<E> items, int firstIndex) {
+        return check(items, firstIndex, true);
+    }
+
+    /**
+     * Check changed items without throwing.
+     *
+     * @param items
+     * @param firstIndex index of the first item in the whole request, for lists validated by parts
+     * @return errors of all items ordered by index, empty if all items are valid
+     */
+    public List<ItemError> checkUpdate(List<E> items, int firstIndex) {
+        return check(items, firstIndex, false);
+    }
+
+    /**
+     * @param errors item errors
+     * @param total count of checked items
+     * @throws T validation exception with all item errors, if there are any
+     */
+    public void throwIfInvalid(List<ItemError> errors, long total) {
+        if (errors.isEmpty()) {
+            return;
+        }
+        StringBuilder message = new StringBuilder(format("Validation failed for "))
+                .append(errors.size()).append(" of ").append(total).append(format(" {items}: "));
+        for (int i = 0; i < errors.size() && i < MESSAGE_ERRORS; i++) {
+            message.append(i == 0 ? "" : "; ").append(errors.get(i));
+        }
+        if (errors.size() > MESSAGE_ERRORS) {
+            message.append("; ...");
+        }
+        throw createException(ErrorTypes.validation, message.toString(), errors);
+    }
+
+    private List<ItemError> check(List<E> items, int firstIndex, boolean create) {
+        if (items.size() < PARALLEL_THRESHOLD) {
+            return checkRange(items, 0, items.size(), firstIndex, create);
+        }
+        return ForkJoinPool.commonPool().invoke(new CheckTask(items, 0, items.size(), firstIndex, create));
+    }
+
+    private List<ItemError> checkRange(List<E> items, int from, int to, int firstIndex, boolean create) {
+        List<ItemError> errors = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            E item = items.get(i);
+            int index = firstIndex + i;
+            int before = errors.size();
+            checkItem(item, index, errors);
+            if (item == null || errors.size() > before) {
+                continue;
+            }
+            if (create && item.getId() != null) {
+                errors.add(new ItemError(index, item.getId(), "id",
+                        format("Can't create {item} with predefined id: " + item.getId())));
+            } else if (!create && item.getId() == null) {
+                errors.add(new ItemError(index, null, "id", format("Can't update {item} with null id")));
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Checks a range of the list, halves of big ranges are checked by forked tasks.
+     */
+    private class CheckTask extends RecursiveTask<List<ItemError>> {
+
+        private final List<E> items;
+        private final int from;
+        private final int to;
+        private final int firstIndex;
+        private final boolean create;
+
+        CheckTask(List<E> items, int from, int to, int firstIndex, boolean create) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+            this.firstIndex = firstIndex;
+            this.create = create;
+        }
+
+        @Override
+        protected List<ItemError> compute() {
+            if (to - from <= LEAF_SIZE) {
+                return checkRange(items, from, to, firstIndex, create);
+            }
+            int middle = (from + to) >>> 1;
+            CheckTask right = new CheckTask(items, middle, to, firstIndex, create);
+            right.fork();
+            List<ItemError> errors = new CheckTask(items, from, middle, firstIndex, create).compute();
+            errors.addAll(right.join());
+            return errors;
+        }
     }
 }
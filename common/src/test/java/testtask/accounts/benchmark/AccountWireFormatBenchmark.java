@@ -0,0 +1,97 @@
+package testtask.accounts.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import testtask.accounts.model.Account;
+import testtask.accounts.model.Currency;
+import testtask.accounts.serializator.ObjectMappers;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Account lists between microservices: json against smile. A round trip is writing the list
+ * by the sending mapper and reading it back by the receiving one. Payload sizes are printed by the setup.
+ *
+ * Run by the main method from the IDE or with exec:java in the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AccountWireFormatBenchmark {
+
+    @Param({"1", "100", "10000"})
+    private int size;
+
+    @Param({"json", "smile"})
+    private String format;
+
+    private List<Account> accounts;
+    private ObjectMapper mapper;
+    private ObjectReader reader;
+    private byte[] payload;
+
+    @Setup
+    public void init() throws IOException {
+        accounts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Account account = new Account();
+            account.setId(1000L + i);
+            account.setClientId(100L + i / 10);
+            account.setName("Account " + i);
+            account.setBalance(BigDecimal.valueOf(1000000L + i * 7919L, 2));
+            account.setCurrency(Currency.values()[i % Currency.values().length]);
+            accounts.add(account);
+        }
+        mapper = "smile".equals(format) ? ObjectMappers.smile() : ObjectMappers.json();
+        reader = mapper.readerFor(new TypeReference<List<Account>>() {
+        });
+        payload = mapper.writeValueAsBytes(accounts);
+        System.out.println();
+        System.out.println(format + " payload of " + size + " accounts: " + payload.length + " bytes");
+    }
+
+    @Benchmark
+    public byte[] write() throws IOException {
+        return mapper.writeValueAsBytes(accounts);
+    }
+
+    @Benchmark
+    public List<Account> read() throws IOException {
+        return reader.readValue(payload);
+    }
+
+    @Benchmark
+    public List<Account> roundTrip() throws IOException {
+        return reader.readValue(mapper.writeValueAsBytes(accounts));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(AccountWireFormatBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
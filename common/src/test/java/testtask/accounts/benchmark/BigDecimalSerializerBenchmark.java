@@ -0,0 +1,90 @@
+package testtask.accounts.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import testtask.accounts.serializator.JsonBigDecimalSerializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of a balance to json: the former DecimalFormat against {@link JsonBigDecimalSerializer}.
+ * A typical balance, a value rounded to 3 fraction digits and a value too long for the long arithmetic.
+ * The gc profiler shows allocation per operation.
+ *
+ * Run by the main method from the IDE or with exec:java in the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class BigDecimalSerializerBenchmark {
+
+    @Param({"9817.78", "0.12345", "123456789012345678901.5"})
+    private String text;
+
+    private BigDecimal value;
+    private DecimalFormat format;
+    private final JsonBigDecimalSerializer serializer = new JsonBigDecimalSerializer();
+    private JsonGenerator generator;
+
+    @Setup
+    public void init() throws IOException {
+        value = new BigDecimal(text);
+        format = (DecimalFormat) DecimalFormat.getInstance();
+        format.setGroupingUsed(false);
+        DecimalFormatSymbols separator = new DecimalFormatSymbols();
+        separator.setDecimalSeparator('.');
+        format.setDecimalFormatSymbols(separator);
+        generator = new JsonFactory().createGenerator(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+        generator.writeStartArray();
+    }
+
+    @Benchmark
+    public JsonGenerator decimalFormat() throws IOException {
+        generator.writeNumber(format.format(value));
+        return generator;
+    }
+
+    @Benchmark
+    public JsonGenerator serializer() throws IOException {
+        serializer.serialize(value, generator, null);
+        return generator;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(BigDecimalSerializerBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,104 @@
+package testtask.accounts.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
+import testtask.accounts.serializator.JsonBigDecimalSerializer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Money against BigDecimal: parse of an amount, sum of two amounts
+ * and serialization of an amount to json in the account wire format.
+ *
+ * Run by the main method from the IDE or with exec:java in the test classpath.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MoneyBenchmark {
+
+    private String text = "12345.67";
+    private BigDecimal decimal;
+    private BigDecimal otherDecimal;
+    private Money money;
+    private Money otherMoney;
+
+    private final JsonBigDecimalSerializer serializer = new JsonBigDecimalSerializer();
+    private JsonGenerator generator;
+
+    @Setup
+    public void init() throws IOException {
+        decimal = new BigDecimal(text);
+        otherDecimal = new BigDecimal("0.33");
+        money = Money.parse(text, Currency.USD);
+        otherMoney = Money.parse("0.33", Currency.USD);
+        generator = new JsonFactory().createGenerator(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        });
+    }
+
+    @Benchmark
+    public BigDecimal parseBigDecimal() {
+        return new BigDecimal(text);
+    }
+
+    @Benchmark
+    public Money parseMoney() {
+        return Money.parse(text, Currency.USD);
+    }
+
+    @Benchmark
+    public BigDecimal addBigDecimal() {
+        return decimal.add(otherDecimal);
+    }
+
+    @Benchmark
+    public Money addMoney() {
+        return money.plus(otherMoney);
+    }
+
+    @Benchmark
+    public JsonGenerator serializeBigDecimal() throws IOException {
+        serializer.serialize(decimal, generator, null);
+        return generator;
+    }
+
+    @Benchmark
+    public JsonGenerator serializeMoney() throws IOException {
+        generator.writeNumber(money.toPlainString());
+        return generator;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MoneyBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
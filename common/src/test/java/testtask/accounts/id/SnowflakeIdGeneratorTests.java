@@ -0,0 +1,92 @@
+package testtask.accounts.id;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SnowflakeIdGeneratorTests {
+
+    private static final long NOW = SnowflakeIdGenerator.EPOCH + 1000L;
+
+    @Test
+    public void idsContainTimestampAndNode() {
+        long id = new SnowflakeIdGenerator(7, () -> NOW).nextId();
+
+        assertThat(SnowflakeIdGenerator.timestamp(id)).isEqualTo(1000L);
+        assertThat(SnowflakeIdGenerator.node(id)).isEqualTo(7L);
+    }
+
+    @Test
+    public void idsIncreaseWhenSequenceIsExhaustedAndClockGoesBack() {
+        long[] time = {NOW};
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE, () -> time[0]);
+
+        long prev = generator.nextId();
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5_000) {
+                time[0] = NOW - 100;
+            }
+            long id = generator.nextId();
+            assertThat(id).isGreaterThan(prev);
+            assertThat(SnowflakeIdGenerator.node(id)).isEqualTo(SnowflakeIdGenerator.MAX_NODE);
+            prev = id;
+        }
+    }
+
+    @Test
+    public void differentNodesNeverCollide() {
+        SnowflakeIdGenerator first = new SnowflakeIdGenerator(1, () -> NOW);
+        SnowflakeIdGenerator second = new SnowflakeIdGenerator(2, () -> NOW);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+
+        for (int i = 0; i < 10_000; i++) {
+            assertThat(ids.add(first.nextId())).isTrue();
+            assertThat(ids.add(second.nextId())).isTrue();
+        }
+    }
+
+    @Test
+    public void idsAreUniqueFromManyThreads() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3);
+        int threads = 8;
+        int perThread = 50_000;
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        ids.add(generator.nextId());
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ids).hasSize(threads * perThread);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwExceptionWhenNodeIsOutOfRange() {
+        new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE + 1);
+    }
+}
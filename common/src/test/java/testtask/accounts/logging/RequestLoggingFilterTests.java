@@ -0,0 +1,131 @@
+package testtask.accounts.logging;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import javax.servlet.FilterChain;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RequestLoggingFilterTests {
+
+    private final RingBuffer<RequestLogEvent> buffer = new RingBuffer<>(4);
+    private final RequestLogWriter writer = new RequestLogWriter(buffer);
+
+    @After
+    public void clear() {
+        writer.drain();
+    }
+
+    @Test
+    public void bodiesAreCapturedUpToLimit() throws Exception {
+        RequestLoggingFilter filter = new RequestLoggingFilter(writer, true, 1.0, 8, new String[]{"/health"});
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/accounts");
+        request.setQueryString("limit=2");
+        request.setContent("[{\"name\":\"Deposit\"}]".getBytes(StandardCharsets.UTF_8));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, resp) -> {
+            byte[] body = StreamUtils.copyToByteArray(req.getInputStream());
+            ((HttpServletResponse) resp).setStatus(201);
+            resp.getWriter().write("created " + body.length);
+        };
+
+        filter.doFilter(request, response, chain);
+
+        assertThat(response.getContentAsString()).isEqualTo("created 20");
+        RequestLogEvent event = poll();
+        assertThat(event.getMethod()).isEqualTo("POST");
+        assertThat(event.getUri()).isEqualTo("/accounts");
+        assertThat(event.getQuery()).isEqualTo("limit=2");
+        assertThat(event.getStatus()).isEqualTo(201);
+        assertThat(event.getRequestBytes()).isEqualTo(20);
+        assertThat(event.getRequest()).isEqualTo("[{\"name\"...");
+        assertThat(event.getResponseBytes()).isEqualTo(10);
+        assertThat(event.getResponse()).isEqualTo("created ...");
+        assertThat(event.getError()).isNull();
+    }
+
+    @Test
+    public void binaryBodiesAreLoggedAsBase64() throws Exception {
+        RequestLoggingFilter filter = new RequestLoggingFilter(writer, true, 1.0, 4, new String[0]);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/accounts");
+        request.setContentType("application/x-jackson-smile");
+        request.setContent(new byte[]{':', ')', '\n', 1, (byte) 0xFA});
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, resp) -> {
+            StreamUtils.copyToByteArray(req.getInputStream());
+            resp.setContentType("application/json");
+            resp.getOutputStream().write("{}".getBytes(StandardCharsets.UTF_8));
+        };
+
+        filter.doFilter(request, response, chain);
+
+        RequestLogEvent event = poll();
+        assertThat(event.getRequestCapture().isBinary()).isTrue();
+        assertThat(event.getRequestBytes()).isEqualTo(5);
+        assertThat(event.getRequest()).isEqualTo("base64:OikKAQ==...");
+        assertThat(event.getResponseCapture().isBinary()).isFalse();
+        assertThat(event.getResponse()).isEqualTo("{}");
+    }
+
+    @Test(timeout = 10_000)
+    public void startedWriterWritesOfferedEvents() throws Exception {
+        RequestLogWriter started = new RequestLogWriter(new RingBuffer<>(4));
+        started.start();
+        try {
+            for (int i = 1; i <= 3; i++) {
+                started.offer(new RequestLogEvent(0, "GET", "/accounts/" + i, null, 200, 1, null,
+                        new RequestLogEvent.BodyCapture(new byte[0], 0, StandardCharsets.UTF_8),
+                        new RequestLogEvent.BodyCapture(new byte[0], 0, StandardCharsets.UTF_8)));
+                while (started.getWritten() < i) {
+                    Thread.sleep(1);
+                }
+            }
+        } finally {
+            started.stop();
+        }
+        assertThat(started.getQueued()).isZero();
+    }
+
+    @Test
+    public void healthCheckAndNotSampledRequestsAreNotLogged() throws Exception {
+        RequestLoggingFilter filter = new RequestLoggingFilter(writer, true, 1.0, 8, new String[]{"/health"});
+        filter.doFilter(new MockHttpServletRequest("GET", "/health"), new MockHttpServletResponse(),
+                new MockFilterChain());
+        filter.doFilter(new MockHttpServletRequest("GET", "/healthy"), new MockHttpServletResponse(),
+                new MockFilterChain());
+        assertThat(poll().getUri()).isEqualTo("/healthy");
+        assertThat(writer.getQueued()).isZero();
+
+        RequestLoggingFilter notSampling = new RequestLoggingFilter(writer, true, 0, 8, new String[0]);
+        notSampling.doFilter(new MockHttpServletRequest("GET", "/accounts"), new MockHttpServletResponse(),
+                new MockFilterChain());
+        assertThat(writer.getQueued()).isZero();
+    }
+
+    @Test
+    public void eventsAreDroppedAndCountedWhenBufferIsFull() throws Exception {
+        RequestLoggingFilter filter = new RequestLoggingFilter(writer, true, 1.0, 8, new String[0]);
+        for (int i = 0; i < 6; i++) {
+            filter.doFilter(new MockHttpServletRequest("GET", "/accounts/" + i), new MockHttpServletResponse(),
+                    new MockFilterChain());
+        }
+
+        assertThat(writer.getQueued()).isEqualTo(4);
+        assertThat(writer.getDropped()).isEqualTo(2);
+        assertThat(writer.drain()).isEqualTo(4);
+        assertThat(writer.getWritten()).isEqualTo(4);
+    }
+
+    private RequestLogEvent poll() {
+        RequestLogEvent event = buffer.poll();
+        assertThat(event).isNotNull();
+        return event;
+    }
+}
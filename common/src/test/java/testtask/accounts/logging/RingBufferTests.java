@@ -0,0 +1,94 @@
+package testtask.accounts.logging;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RingBufferTests {
+
+    @Test
+    public void offerFailsWhenFullAndSucceedsAfterPoll() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        assertThat(buffer.capacity()).isEqualTo(4);
+        for (int i = 0; i < 4; i++) {
+            assertThat(buffer.offer(i)).isTrue();
+        }
+        assertThat(buffer.offer(4)).isFalse();
+        assertThat(buffer.size()).isEqualTo(4);
+
+        assertThat(buffer.poll()).isEqualTo(0);
+        assertThat(buffer.offer(4)).isTrue();
+        for (int i = 1; i <= 4; i++) {
+            assertThat(buffer.poll()).isEqualTo(i);
+        }
+        assertThat(buffer.poll()).isNull();
+        assertThat(buffer.size()).isZero();
+    }
+
+    @Test
+    public void everyAcceptedElementIsTakenOnceInProducerOrder() throws Exception {
+        int producers = 4;
+        int perProducer = 200_000;
+        RingBuffer<Long> buffer = new RingBuffer<>(1024);
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(producers);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            long producer = p;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < perProducer; i++) {
+                    if (!buffer.offer(producer << 32 | i)) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        BitSet[] taken = new BitSet[producers];
+        int[] last = new int[producers];
+        for (int p = 0; p < producers; p++) {
+            taken[p] = new BitSet(perProducer);
+            last[p] = -1;
+        }
+        start.countDown();
+        int received = 0;
+        while (!allDone(futures) || buffer.size() > 0) {
+            Long element = buffer.poll();
+            if (element == null) {
+                continue;
+            }
+            int producer = (int) (element >>> 32);
+            int index = (int) (long) element;
+            assertThat(taken[producer].get(index)).isFalse();
+            assertThat(index).isGreaterThan(last[producer]);
+            taken[producer].set(index);
+            last[producer] = index;
+            received++;
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+
+        assertThat(received + rejected.get()).isEqualTo(producers * perProducer);
+        assertThat(buffer.poll()).isNull();
+    }
+
+    private static boolean allDone(List<Future<?>> futures) {
+        return futures.stream().allMatch(Future::isDone);
+    }
+}
@@ -0,0 +1,42 @@
+package testtask.accounts.model;
+
+import org.junit.Test;
+import testtask.accounts.util.ETags;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountTests {
+
+    @Test
+    public void balancesAreComparedInMinorUnits() {
+        assertThat(account("100.2")).isEqualTo(account("100.20"));
+        assertThat(account("100.2").hashCode()).isEqualTo(account("100.20").hashCode());
+        assertThat(account("100.004")).isEqualTo(account("100"));
+        assertThat(account("100.01")).isNotEqualTo(account("100"));
+        assertThat(ETags.of(account("100.2"))).isEqualTo(ETags.of(account("100.20")));
+    }
+
+    @Test
+    public void balancesOutOfMinorUnitsAreComparedAndTagged() {
+        // more than long minor units, e.g. received from another microservice
+        String huge = "92233720368547758.08";
+
+        assertThat(account(huge)).isEqualTo(account(huge + "0"));
+        assertThat(account(huge).hashCode()).isEqualTo(account(huge + "0").hashCode());
+        assertThat(account(huge)).isNotEqualTo(account("92233720368547758.07"));
+        assertThat(ETags.of(account(huge))).isEqualTo(ETags.of(account(huge + "0")))
+                .isNotEqualTo(ETags.of(account("92233720368547758.07")));
+    }
+
+    private static Account account(String balance) {
+        Account account = new Account();
+        account.setId(1L);
+        account.setClientId(10L);
+        account.setName("Account");
+        account.setCurrency(Currency.USD);
+        account.setBalance(new BigDecimal(balance));
+        return account;
+    }
+}
@@ -0,0 +1,69 @@
+package testtask.accounts.model;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.Test;
+import testtask.accounts.serializator.JsonBigDecimalSerializer;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MoneyTests {
+
+    private static final String[] AMOUNTS = {"0", "7", "-7", "100.2", "100.20", "-0.05", "0.5", "12345678.9",
+            "1.005", "-1.005", "1.0049", "2.999", "+3.1", "92233720368547758.07", "-92233720368547758.08"};
+
+    @Test
+    public void parseIsTheSameAsBigDecimalRoundedHalfUp() {
+        for (String amount : AMOUNTS) {
+            assertThat(Money.parse(amount, Currency.USD).getMinorUnits())
+                    .as(amount)
+                    .isEqualTo(Money.toMinorUnits(new BigDecimal(amount)));
+        }
+    }
+
+    @Test
+    public void toPlainStringIsTheSameAsJsonBigDecimalSerializer() throws Exception {
+        ObjectMapper mapper = new ObjectMapper().registerModule(
+                new SimpleModule().addSerializer(BigDecimal.class, new JsonBigDecimalSerializer()));
+        for (String amount : AMOUNTS) {
+            BigDecimal value = new BigDecimal(amount).setScale(Money.SCALE, RoundingMode.HALF_UP);
+            assertThat(Money.of(value, Currency.RUB).toPlainString())
+                    .as(amount)
+                    .isEqualTo(mapper.writeValueAsString(value));
+        }
+    }
+
+    @Test
+    public void arithmeticIsExact() {
+        Money a = Money.parse("0.1", Currency.USD);
+        Money b = Money.parse("0.2", Currency.USD);
+
+        assertThat(a.plus(b)).isEqualTo(Money.parse("0.3", Currency.USD));
+        assertThat(a.minus(b).isNegative()).isTrue();
+        assertThat(a.minus(b).negate()).isEqualTo(a);
+        assertThat(a.plus(b).toBigDecimal()).isEqualTo(new BigDecimal("0.30"));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void throwExceptionOnOverflow() {
+        Money.ofMinor(Long.MAX_VALUE, Currency.USD).plus(Money.ofMinor(1, Currency.USD));
+    }
+
+    @Test(expected = ArithmeticException.class)
+    public void throwExceptionWhenAmountDoesNotFit() {
+        Money.of(new BigDecimal("92233720368547758.08"), Currency.USD);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void throwExceptionOnCurrencyMismatch() {
+        Money.ofMinor(1, Currency.USD).plus(Money.ofMinor(1, Currency.RUB));
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void throwExceptionWhenAmountIsNotPlainDecimal() {
+        Money.parse("1e3", Currency.USD);
+    }
+}
@@ -0,0 +1,145 @@
+package testtask.accounts.serializator;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The serializer against DecimalFormat configured as the serializer was before.
+ */
+public class JsonBigDecimalSerializerTests {
+
+    private static final String[] EDGE_VALUES = {"0", "0.000", "-0.0001", "-0.0005", "0.0005", "0.0015", "0.0025",
+            "-1.2345", "1E+5", "-1E-7", "12.10", "100", "0.5", "-0.5", "9817.78", "92233720368547758.07",
+            "999999999999999999", "999999999999999999.9996", "-999999999999999.9995", "1000000000000000000",
+            "123456789012345678901234.56789", "1E+30", "0E+20", "-5E-4", "0.9999", "-0.9995", "1.0005"};
+
+    @Test
+    public void formatIsSameAsDecimalFormat() {
+        DecimalFormat reference = legacyFormat();
+        for (String value : EDGE_VALUES) {
+            BigDecimal decimal = new BigDecimal(value);
+            assertThat(JsonBigDecimalSerializer.format(decimal)).as(value).isEqualTo(reference.format(decimal));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            BigDecimal decimal = randomDecimal(random);
+            assertThat(JsonBigDecimalSerializer.format(decimal)).as(decimal.toString())
+                    .isEqualTo(reference.format(decimal));
+        }
+    }
+
+    @Test
+    public void jsonIsByteIdenticalToDecimalFormatSerializer() throws Exception {
+        ObjectMapper mapper = mapper(new JsonBigDecimalSerializer());
+        ObjectMapper legacy = mapper(new LegacySerializer());
+        List<Object> values = new ArrayList<>();
+        for (String value : EDGE_VALUES) {
+            values.add(Collections.singletonMap("balance", new BigDecimal(value)));
+        }
+
+        assertThat(mapper.writeValueAsBytes(values)).isEqualTo(legacy.writeValueAsBytes(values));
+        assertThat(mapper.writeValueAsString(values)).isEqualTo(legacy.writeValueAsString(values));
+        assertThat(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(values))
+                .isEqualTo(legacy.writerWithDefaultPrettyPrinter().writeValueAsString(values));
+        // TokenBuffer of convertValue gets the number as text
+        TypeReference<Map<String, Object>> mapType = new TypeReference<Map<String, Object>>() {
+        };
+        Map<String, Object> converted = mapper.convertValue(values.get(14), mapType);
+        assertThat(converted).isEqualTo(legacy.<Map<String, Object>>convertValue(values.get(14), mapType));
+    }
+
+    @Test
+    public void concurrentSerializationIsCorrect() throws Exception {
+        ObjectMapper mapper = mapper(new JsonBigDecimalSerializer());
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long seed = t;
+            futures.add(executor.submit(() -> {
+                DecimalFormat reference = legacyFormat();
+                Random random = new Random(seed);
+                start.await();
+                int checked = 0;
+                for (int i = 0; i < 20_000; i++) {
+                    BigDecimal decimal = randomDecimal(random);
+                    byte[] json = mapper.writeValueAsBytes(Collections.singletonList(decimal));
+                    assertThat(new String(json, StandardCharsets.UTF_8)).as(decimal.toString())
+                            .isEqualTo("[" + reference.format(decimal) + "]");
+                    checked++;
+                }
+                return checked;
+            }));
+        }
+        start.countDown();
+        int checked = 0;
+        for (Future<Integer> future : futures) {
+            checked += future.get();
+        }
+        executor.shutdown();
+        assertThat(checked).isEqualTo(threads * 20_000);
+    }
+
+    private static BigDecimal randomDecimal(Random random) {
+        int digits = 1 + random.nextInt(random.nextInt(4) == 0 ? 30 : 18);
+        BigInteger unscaled = new BigInteger(digits * 4, random);
+        if (random.nextBoolean()) {
+            unscaled = unscaled.negate();
+        }
+        return new BigDecimal(unscaled, random.nextInt(12) - 3);
+    }
+
+    private static ObjectMapper mapper(JsonSerializer<BigDecimal> serializer) {
+        SimpleModule module = new SimpleModule();
+        module.addSerializer(BigDecimal.class, serializer);
+        return new ObjectMapper().registerModule(module);
+    }
+
+    /**
+     * The former serializer: DecimalFormat of the default pattern without grouping and with '.' separator.
+     */
+    private static DecimalFormat legacyFormat() {
+        DecimalFormat format = (DecimalFormat) DecimalFormat.getInstance(Locale.US);
+        format.setGroupingUsed(false);
+        DecimalFormatSymbols separator = new DecimalFormatSymbols(Locale.US);
+        separator.setDecimalSeparator('.');
+        format.setDecimalFormatSymbols(separator);
+        return format;
+    }
+
+    private static class LegacySerializer extends JsonSerializer<BigDecimal> {
+
+        private final DecimalFormat format = legacyFormat();
+
+        @Override
+        public void serialize(BigDecimal value, JsonGenerator generator,
+                              SerializerProvider provider) throws IOException {
+            generator.writeNumber(format.format(value));
+        }
+    }
+}
@@ -24,6 +24,7 @@ import testtask.accounts.exception.MicroserviceException;
 import testtask.accounts.model.Account;
 import testtask.accounts.model.Client;
 import testtask.accounts.model.Currency;
+import testtask.accounts.model.Money;
 
 import java.math.BigDecimal;
 import org.junit.After;
@@ -79,14 +80,12 @@ public class MksServiceIntegrationTests {
 
         AccountEntity account1 = new AccountEntity();
         account1.setName("Main Acc");
-        account1.setCurrency(Currency.USD);
-        account1.setBalance(new BigDecimal(543757));
+        account1.setBalance(Money.of(new BigDecimal(543757), Currency.USD));
         account1.setClientId(clientWithAccountsEntity.getId());
 
         AccountEntity account2 = new AccountEntity();
         account2.setName("Film Budget");
-        account2.setCurrency(Currency.USD);
-        account2.setBalance(new BigDecimal(754555));
+        account2.setBalance(Money.of(new BigDecimal(754555), Currency.USD));
         account2.setClientId(clientWithAccountsEntity.getId());
 
         Iterable<AccountEntity> accountsEntities = accountRepository.save(Arrays.asList(account1, account2));
@@ -130,6 +129,16 @@ public class MksServiceIntegrationTests {
         clientService.findWithAccounts(notExistedId);
     }
 
+    @Test
+    public void findClientsWithAccountsByOneRequest() {
+        List<Client> clientsFind = clientService.findAllWithAccounts(
+                Arrays.asList(clientWithoutAccounts.getId(), clientWithAccounts.getId()));
+
+        assertThat(clientsFind).containsExactly(clientWithoutAccounts, clientWithAccounts);
+        assertThat(clientsFind.get(0).getAccounts()).isEmpty();
+        assertThat(clientsFind.get(1).getAccounts()).isEqualTo(accounts);
+    }
+
     @Test
     public void findClientWitoutAccounts() {
         Client clientFind = clientService.findWithAccounts(clientWithoutAccounts.getId());
@@ -236,7 +245,7 @@ public class MksServiceIntegrationTests {
         ClientEntity clientUpdated = clientRepository.findOne(clientWithAccounts.getId());
 
         assertThat(clientUpdated.getFirstName()).isEqualTo(newName);
-        assertThat(accountUpdated.getBalance().doubleValue()).isEqualTo(newBalance.doubleValue());
+        assertThat(accountUpdated.getBalance().toBigDecimal()).isEqualByComparingTo(newBalance);
     }
 
     @Test
@@ -0,0 +1,13 @@
+-- ledger tables of the accounts service, they have no entities, see db/migration/accounts/V4__ledger_checkpoint.sql
+create table ledger_checkpoint (
+    journal_id varchar(36) not null,
+    flushed_seq bigint not null,
+    primary key (journal_id)
+);
+
+create table ledger_held_account (
+    journal_id varchar(36) not null,
+    account_id bigint not null,
+    first_seq bigint not null,
+    primary key (journal_id, account_id)
+);